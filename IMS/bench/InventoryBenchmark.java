@@ -0,0 +1,463 @@
+package bench;
+
+import data.DatabaseConnection;
+import model.InventoryItem;
+import service.Checkout;
+import service.InventoryManager;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.stream.IntStream;
+
+// Micro-benchmark harness for InventoryManager operations.
+//
+// Seeds one SQLite file per catalog size, then runs each operation for a number of
+// time-boxed warm-up and measurement iterations, single- and multi-threaded. Write
+// benchmarks run twice under concurrency: all threads on one SKU ("contended") and each
+// call on a random SKU ("spread").
+//
+// Reports throughput (mean and spread over iterations), latency percentiles and bytes
+// allocated per operation. With --csv the results are written in a stable format, and
+// --baseline compares against an earlier CSV and exits with status 1 when any benchmark
+// lost more than --tolerance percent throughput, so it can gate CI builds.
+//
+// Usage (from the IMS directory, with the SQLite JDBC driver on the classpath):
+//   java -cp .:sqlite-jdbc.jar bench.InventoryBenchmark --sizes 1000,100000,1000000 --threads 1,8
+//        [--ops save,sell,checkout1,checkout30,price,get,search,searchIndexed,page,getAll]
+//        [--warmup 2] [--iterations 5] [--seconds 2] [--dir bench-data] [--csv results.csv] [--baseline old.csv] [--tolerance 10]
+public class InventoryBenchmark {
+
+    private static final int SEED_QUANTITY = 1_000_000_000;
+    private static final int MAX_SAMPLES_PER_THREAD = 200_000;
+
+    // One benchmarked call. 'sku' is chosen by the harness according to the scenario.
+    private interface Operation {
+        void run(InventoryManager manager, String sku) throws SQLException;
+    }
+
+    private static final Map<String, Operation> OPERATIONS = new LinkedHashMap<>();
+    private static final Map<String, Boolean> IS_WRITE = new HashMap<>();
+
+    static {
+        register("save", true, (m, sku) -> m.saveItem(sku, 1, 10.0));
+        register("sell", true, (m, sku) -> m.sellItem(sku, 1, 10.0));
+        register("price", false, (m, sku) -> m.getItemPrice(sku));
+        register("get", false, (m, sku) -> m.getItem(sku));
+        register("search", false, (m, sku) -> m.searchItems(searchTermFor(sku)));
+        register("searchIndexed", false, (m, sku) -> m.searchItems(searchTermFor(sku)));
+        register("checkout1", true, (m, sku) -> m.checkout(basketFor(sku, 1)));
+        register("checkout30", true, (m, sku) -> m.checkout(basketFor(sku, 30)));
+        register("page", false, (m, sku) -> m.getItemsPage(sku, 50));
+        register("getAll", false, (m, sku) -> m.getAllItems());
+    }
+
+    private static void register(String name, boolean write, Operation op) {
+        OPERATIONS.put(name, op);
+        IS_WRITE.put(name, write);
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> opts = parseArgs(args);
+        int[] sizes = parseInts(opts.getOrDefault("sizes", "1000,100000"));
+        int[] threadCounts = parseInts(opts.getOrDefault("threads", "1,8"));
+        List<String> ops = Arrays.asList(opts.getOrDefault("ops", String.join(",", OPERATIONS.keySet())).split(","));
+        int warmups = Integer.parseInt(opts.getOrDefault("warmup", "2"));
+        int iterations = Integer.parseInt(opts.getOrDefault("iterations", "5"));
+        double seconds = Double.parseDouble(opts.getOrDefault("seconds", "2"));
+        Path dir = Paths.get(opts.getOrDefault("dir", "bench-data"));
+        Files.createDirectories(dir);
+
+        List<Result> results = new ArrayList<>();
+        printHeader(System.out);
+
+        for (int size : sizes) {
+            DatabaseConnection.useDatabase("jdbc:sqlite:" + dir.resolve("bench-" + size + ".db"));
+            InventoryManager manager = new InventoryManager();
+            seed(manager, size);
+
+            for (String opName : ops) {
+                Operation op = OPERATIONS.get(opName);
+                if (op == null) {
+                    throw new IllegalArgumentException("Unknown operation '" + opName + "'; known: " + OPERATIONS.keySet());
+                }
+                InventoryManager target = manager;
+                if (opName.equals("searchIndexed")) {
+                    target = new InventoryManager();
+                    target.enableSearchIndex();
+                }
+
+                for (int threads : threadCounts) {
+                    List<String> scenarios = threads > 1 && IS_WRITE.get(opName)
+                            ? List.of("contended", "spread")
+                            : List.of("spread");
+                    for (String scenario : scenarios) {
+                        Result r = run(target, opName, op, size, threads, scenario, warmups, iterations, seconds);
+                        results.add(r);
+                        r.print(System.out);
+                    }
+                }
+            }
+            DatabaseConnection.shutdown();
+        }
+
+        if (opts.containsKey("csv")) {
+            writeCsv(Paths.get(opts.get("csv")), results);
+        }
+        if (opts.containsKey("baseline")) {
+            double tolerance = Double.parseDouble(opts.getOrDefault("tolerance", "10"));
+            if (!compareWithBaseline(Paths.get(opts.get("baseline")), results, tolerance)) {
+                System.exit(1);
+            }
+        }
+    }
+
+    // ------------------------------------------------------------------
+    // Seeding
+    // ------------------------------------------------------------------
+
+    static String skuName(int i) {
+        return String.format("SKU-%07d Widget", i);
+    }
+
+    // Substring from the middle of the SKU number, so the search cannot use a prefix
+    private static String searchTermFor(String sku) {
+        return sku.substring(6, 10);
+    }
+
+    // One unit each of 'sku' and the SKUs just below it (just above it near the start)
+    private static List<Checkout.Line> basketFor(String sku, int lines) {
+        int i = Integer.parseInt(sku.substring(4, 11));
+        List<Checkout.Line> basket = new ArrayList<>(lines);
+        for (int k = 0; k < lines; k++) {
+            basket.add(new Checkout.Line(skuName(i - k >= 0 ? i - k : i + k), 1));
+        }
+        return basket;
+    }
+
+    private static void seed(InventoryManager manager, int size) throws SQLException {
+        int existing = manager.countItems();
+        if (existing == size) {
+            return;
+        }
+        if (existing != 0) {
+            throw new IllegalStateException("Benchmark database for " + size + " items already holds "
+                    + existing + " rows; delete it and rerun");
+        }
+        System.out.printf("Seeding %,d items...%n", size);
+        long start = System.nanoTime();
+        manager.importItems(IntStream.range(0, size)
+                .mapToObj(i -> new InventoryItem(skuName(i), SEED_QUANTITY, 10.0 + (i % 1000))));
+        System.out.printf("Seeded in %.1f s%n", (System.nanoTime() - start) / 1e9);
+    }
+
+    // ------------------------------------------------------------------
+    // Measurement
+    // ------------------------------------------------------------------
+
+    private static Result run(InventoryManager manager, String opName, Operation op, int size, int threads,
+                              String scenario, int warmups, int iterations, double seconds) throws Exception {
+        String contendedSku = skuName(size / 2);
+        for (int i = 0; i < warmups; i++) {
+            runIteration(manager, op, size, threads, scenario, contendedSku, seconds);
+        }
+
+        double[] throughput = new double[iterations];
+        List<long[]> samples = new ArrayList<>();
+        long totalOps = 0;
+        long totalBytes = 0;
+        long errors = 0;
+        for (int i = 0; i < iterations; i++) {
+            Iteration it = runIteration(manager, op, size, threads, scenario, contendedSku, seconds);
+            throughput[i] = it.ops / it.seconds;
+            totalOps += it.ops;
+            totalBytes += it.allocatedBytes;
+            errors += it.errors;
+            samples.addAll(it.latencies);
+        }
+
+        long[] all = merge(samples);
+        Arrays.sort(all);
+        return new Result(opName, size, threads, scenario, mean(throughput), stddev(throughput),
+                percentile(all, 0.50), percentile(all, 0.90), percentile(all, 0.99), percentile(all, 0.999),
+                totalOps == 0 ? 0 : (double) totalBytes / totalOps, errors);
+    }
+
+    private static Iteration runIteration(InventoryManager manager, Operation op, int size, int threads,
+                                          String scenario, String contendedSku, double seconds) throws InterruptedException {
+        Iteration it = new Iteration();
+        CountDownLatch start = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(threads);
+        long durationNanos = (long) (seconds * 1e9);
+        Worker[] workers = new Worker[threads];
+
+        for (int t = 0; t < threads; t++) {
+            Worker w = new Worker(manager, op, size, scenario.equals("contended") ? contendedSku : null,
+                    durationNanos, start, done);
+            workers[t] = w;
+            Thread thread = new Thread(w, "bench-" + t);
+            thread.setDaemon(true);
+            thread.start();
+        }
+
+        long begin = System.nanoTime();
+        start.countDown();
+        done.await();
+        it.seconds = (System.nanoTime() - begin) / 1e9;
+
+        for (Worker w : workers) {
+            it.ops += w.ops;
+            it.errors += w.errors;
+            it.allocatedBytes += w.allocatedBytes;
+            it.latencies.add(Arrays.copyOf(w.latencies, w.samples));
+        }
+        return it;
+    }
+
+    private static final class Iteration {
+        long ops;
+        long errors;
+        long allocatedBytes;
+        double seconds;
+        final List<long[]> latencies = new ArrayList<>();
+    }
+
+    private static final class Worker implements Runnable {
+        private final InventoryManager manager;
+        private final Operation op;
+        private final int size;
+        private final String fixedSku;
+        private final long durationNanos;
+        private final CountDownLatch start;
+        private final CountDownLatch done;
+
+        final long[] latencies = new long[MAX_SAMPLES_PER_THREAD];
+        int samples;
+        long ops;
+        long errors;
+        long allocatedBytes;
+
+        Worker(InventoryManager manager, Operation op, int size, String fixedSku, long durationNanos,
+               CountDownLatch start, CountDownLatch done) {
+            this.manager = manager;
+            this.op = op;
+            this.size = size;
+            this.fixedSku = fixedSku;
+            this.durationNanos = durationNanos;
+            this.start = start;
+            this.done = done;
+        }
+
+        @Override
+        public void run() {
+            com.sun.management.ThreadMXBean mx =
+                    (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+            // Pre-build the SKU names so name formatting is not part of the measurement
+            String[] skus = new String[Math.min(size, 4096)];
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            for (int i = 0; i < skus.length; i++) {
+                skus[i] = fixedSku != null ? fixedSku : skuName(random.nextInt(size));
+            }
+
+            try {
+                start.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                done.countDown();
+                return;
+            }
+
+            long allocStart = mx.getCurrentThreadAllocatedBytes();
+            long end = System.nanoTime() + durationNanos;
+            int i = 0;
+            long now;
+            while ((now = System.nanoTime()) < end) {
+                String sku = skus[i];
+                if (++i == skus.length) {
+                    i = 0;
+                }
+                try {
+                    op.run(manager, sku);
+                } catch (SQLException e) {
+                    errors++;
+                }
+                long latency = System.nanoTime() - now;
+                if (samples < latencies.length) {
+                    latencies[samples++] = latency;
+                }
+                ops++;
+            }
+            allocatedBytes = mx.getCurrentThreadAllocatedBytes() - allocStart;
+            done.countDown();
+        }
+    }
+
+    // ------------------------------------------------------------------
+    // Statistics and reporting
+    // ------------------------------------------------------------------
+
+    private static long[] merge(List<long[]> parts) {
+        int total = 0;
+        for (long[] p : parts) {
+            total += p.length;
+        }
+        long[] all = new long[total];
+        int pos = 0;
+        for (long[] p : parts) {
+            System.arraycopy(p, 0, all, pos, p.length);
+            pos += p.length;
+        }
+        return all;
+    }
+
+    private static double percentile(long[] sorted, double p) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.min(sorted.length - 1, Math.ceil(p * sorted.length) - 1);
+        return sorted[Math.max(0, index)] / 1000.0;
+    }
+
+    private static double mean(double[] values) {
+        double sum = 0;
+        for (double v : values) {
+            sum += v;
+        }
+        return values.length == 0 ? 0 : sum / values.length;
+    }
+
+    private static double stddev(double[] values) {
+        double m = mean(values);
+        double sum = 0;
+        for (double v : values) {
+            sum += (v - m) * (v - m);
+        }
+        return values.length < 2 ? 0 : Math.sqrt(sum / (values.length - 1));
+    }
+
+    private static final class Result {
+        final String op;
+        final int size;
+        final int threads;
+        final String scenario;
+        final double opsPerSec;
+        final double opsPerSecStddev;
+        final double p50Micros;
+        final double p90Micros;
+        final double p99Micros;
+        final double p999Micros;
+        final double bytesPerOp;
+        final long errors;
+
+        Result(String op, int size, int threads, String scenario, double opsPerSec, double opsPerSecStddev,
+               double p50Micros, double p90Micros, double p99Micros, double p999Micros, double bytesPerOp, long errors) {
+            this.op = op;
+            this.size = size;
+            this.threads = threads;
+            this.scenario = scenario;
+            this.opsPerSec = opsPerSec;
+            this.opsPerSecStddev = opsPerSecStddev;
+            this.p50Micros = p50Micros;
+            this.p90Micros = p90Micros;
+            this.p99Micros = p99Micros;
+            this.p999Micros = p999Micros;
+            this.bytesPerOp = bytesPerOp;
+            this.errors = errors;
+        }
+
+        String key() {
+            return op + "/" + size + "/" + threads + "/" + scenario;
+        }
+
+        void print(PrintStream out) {
+            out.printf(Locale.ROOT, "%-14s %9d %3d %-10s %12.1f ±%5.1f%% %10.1f %10.1f %10.1f %10.1f %12.0f %6d%n",
+                    op, size, threads, scenario, opsPerSec,
+                    opsPerSec == 0 ? 0 : opsPerSecStddev * 100 / opsPerSec,
+                    p50Micros, p90Micros, p99Micros, p999Micros, bytesPerOp, errors);
+        }
+
+        String toCsv() {
+            return String.format(Locale.ROOT, "%s,%d,%d,%s,%.3f,%.3f,%.3f,%.3f,%.3f,%.3f,%.1f,%d",
+                    op, size, threads, scenario, opsPerSec, opsPerSecStddev,
+                    p50Micros, p90Micros, p99Micros, p999Micros, bytesPerOp, errors);
+        }
+    }
+
+    private static void printHeader(PrintStream out) {
+        out.printf("%-14s %9s %3s %-10s %20s %10s %10s %10s %10s %12s %6s%n",
+                "OPERATION", "ITEMS", "THR", "SCENARIO", "OPS/SEC (±stddev)",
+                "P50 µs", "P90 µs", "P99 µs", "P99.9 µs", "BYTES/OP", "ERRORS");
+    }
+
+    private static final String CSV_HEADER =
+            "op,items,threads,scenario,ops_per_sec,ops_per_sec_stddev,p50_us,p90_us,p99_us,p999_us,bytes_per_op,errors";
+
+    private static void writeCsv(Path file, List<Result> results) throws IOException {
+        List<String> lines = new ArrayList<>();
+        lines.add(CSV_HEADER);
+        for (Result r : results) {
+            lines.add(r.toCsv());
+        }
+        Files.write(file, lines, StandardCharsets.UTF_8);
+    }
+
+    // Returns false if any benchmark is slower than the baseline by more than 'tolerancePercent'
+    private static boolean compareWithBaseline(Path baseline, List<Result> results, double tolerancePercent) throws IOException {
+        Map<String, Double> previous = new HashMap<>();
+        for (String line : Files.readAllLines(baseline, StandardCharsets.UTF_8)) {
+            if (line.startsWith("op,") || line.isBlank()) {
+                continue;
+            }
+            String[] f = line.split(",");
+            previous.put(f[0] + "/" + f[1] + "/" + f[2] + "/" + f[3], Double.parseDouble(f[4]));
+        }
+
+        boolean ok = true;
+        for (Result r : results) {
+            Double before = previous.get(r.key());
+            if (before == null || before == 0) {
+                continue;
+            }
+            double change = (r.opsPerSec - before) * 100 / before;
+            if (change < -tolerancePercent) {
+                System.out.printf(Locale.ROOT, "REGRESSION %s: %.1f -> %.1f ops/s (%.1f%%)%n",
+                        r.key(), before, r.opsPerSec, change);
+                ok = false;
+            }
+        }
+        System.out.println(ok ? "No regressions beyond " + tolerancePercent + "%." : "Throughput regressions found.");
+        return ok;
+    }
+
+    // ------------------------------------------------------------------
+    // Command line
+    // ------------------------------------------------------------------
+
+    private static Map<String, String> parseArgs(String[] args) {
+        Map<String, String> opts = new HashMap<>();
+        for (int i = 0; i < args.length; i++) {
+            if (!args[i].startsWith("--") || i + 1 >= args.length) {
+                throw new IllegalArgumentException("Expected --option value pairs, got '" + args[i] + "'");
+            }
+            opts.put(args[i].substring(2), args[++i]);
+        }
+        return opts;
+    }
+
+    private static int[] parseInts(String csv) {
+        return Arrays.stream(csv.split(",")).map(String::trim).mapToInt(Integer::parseInt).toArray();
+    }
+}
@@ -0,0 +1,368 @@
+package bench;
+
+import metrics.LatencyHistogram;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Load generator for server.InventoryServer.
+//
+// Seeds the server with --skus items through /batch, then runs --clients closed-loop clients
+// for --warmup + --seconds seconds. Each client is a virtual thread with its own keep-alive
+// connection speaking plain HTTP/1.1, so the generator spends little CPU per request and the
+// numbers reflect the server (java.net.http.HttpClient costs several times more per request
+// than the server, and saturates first when both share a machine).
+// Each client picks its next request from --mix, weighted, on a random SKU.
+// With --batch n, writes are sent n at a time to /batch instead of one request each.
+//
+// Reports requests per second and latency percentiles per operation. 404 and 409 answers
+// are expected outcomes (sold out, unknown item); 5xx answers and I/O errors count as errors.
+// Exits with status 1 on any error, or when --min-rps is given and not reached, so it can
+// gate CI builds.
+//
+// Usage (server already running):
+//   java -cp . bench.ServerLoadTest [--host localhost] [--port 8080] [--clients 64] [--seconds 10]
+//        [--warmup 2] [--skus 10000] [--mix get:60,price:10,search:5,sell:15,save:10]
+//        [--batch 0] [--min-rps 0]
+//   Operations for --mix: get, price, search, page, sell, save.
+public class ServerLoadTest {
+
+    private static final int SEED_QUANTITY = 1_000_000_000;
+    private static final int SEED_BATCH = 500;
+    private static final List<String> OPERATIONS = List.of("get", "price", "search", "page", "sell", "save");
+
+    private final InetSocketAddress server;
+    private final int skus;
+    private final int batch;
+    private final String[] mixOps;
+    private final int[] mixWeights;
+    private final int totalWeight;
+
+    private final Map<String, LatencyHistogram> latencies = new LinkedHashMap<>();
+    private final Map<String, AtomicLong> errors = new HashMap<>();
+    private volatile boolean measuring;
+    private volatile boolean running = true;
+
+    ServerLoadTest(InetSocketAddress server, int skus, int batch, Map<String, Integer> mix) {
+        this.server = server;
+        this.skus = skus;
+        this.batch = batch;
+        this.mixOps = mix.keySet().toArray(new String[0]);
+        this.mixWeights = new int[mixOps.length];
+        int sum = 0;
+        for (int i = 0; i < mixOps.length; i++) {
+            if (!OPERATIONS.contains(mixOps[i])) {
+                throw new IllegalArgumentException("Unknown operation '" + mixOps[i] + "'; known: " + OPERATIONS);
+            }
+            mixWeights[i] = mix.get(mixOps[i]);
+            sum += mixWeights[i];
+            latencies.put(mixOps[i], new LatencyHistogram());
+            errors.put(mixOps[i], new AtomicLong());
+        }
+        this.totalWeight = sum;
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> opts = parseArgs(args);
+        String host = opts.getOrDefault("host", "localhost");
+        int port = Integer.parseInt(opts.getOrDefault("port", "8080"));
+        int clients = Integer.parseInt(opts.getOrDefault("clients", "64"));
+        double seconds = Double.parseDouble(opts.getOrDefault("seconds", "10"));
+        double warmup = Double.parseDouble(opts.getOrDefault("warmup", "2"));
+        int skus = Integer.parseInt(opts.getOrDefault("skus", "10000"));
+        int batch = Integer.parseInt(opts.getOrDefault("batch", "0"));
+        double minRps = Double.parseDouble(opts.getOrDefault("min-rps", "0"));
+        Map<String, Integer> mix = parseMix(opts.getOrDefault("mix", "get:60,price:10,search:5,sell:15,save:10"));
+
+        ServerLoadTest test = new ServerLoadTest(new InetSocketAddress(host, port), skus, batch, mix);
+        test.seed();
+        double rps = test.run(clients, warmup, seconds);
+        if (rps < minRps) {
+            System.out.printf(Locale.ROOT, "FAILED: %.0f req/s is below --min-rps %.0f%n", rps, minRps);
+        }
+        if (test.totalErrors() > 0 || rps < minRps) {
+            System.exit(1);
+        }
+    }
+
+    // ------------------------------------------------------------------
+    // Seeding
+    // ------------------------------------------------------------------
+
+    private void seed() throws IOException {
+        System.out.printf("Seeding %,d items...%n", skus);
+        long start = System.nanoTime();
+        try (Connection conn = new Connection(server)) {
+            for (int from = 0; from < skus; from += SEED_BATCH) {
+                StringBuilder body = new StringBuilder("[");
+                for (int i = from; i < Math.min(skus, from + SEED_BATCH); i++) {
+                    if (i > from) {
+                        body.append(',');
+                    }
+                    body.append(writeOp("save", i, SEED_QUANTITY));
+                }
+                int status = conn.send("POST", "/batch", body.append(']').toString());
+                if (status != 200) {
+                    throw new IOException("Seeding failed with HTTP " + status);
+                }
+            }
+        }
+        System.out.printf("Seeded in %.1f s%n", (System.nanoTime() - start) / 1e9);
+    }
+
+    // ------------------------------------------------------------------
+    // Measurement
+    // ------------------------------------------------------------------
+
+    // Returns the measured requests per second over all operations
+    private double run(int clients, double warmupSeconds, double seconds) throws InterruptedException {
+        List<Thread> threads = new ArrayList<>(clients);
+        for (int c = 0; c < clients; c++) {
+            threads.add(Thread.ofVirtual().name("load-" + c).start(this::clientLoop));
+        }
+
+        Thread.sleep((long) (warmupSeconds * 1000));
+        measuring = true;
+        long start = System.nanoTime();
+        Thread.sleep((long) (seconds * 1000));
+        measuring = false;
+        double elapsed = (System.nanoTime() - start) / 1e9;
+        running = false;
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        return report(clients, elapsed);
+    }
+
+    private void clientLoop() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        Connection conn = null;
+        while (running) {
+            String op = pickOp(random);
+            long start = System.nanoTime();
+            boolean ok;
+            try {
+                if (conn == null) {
+                    conn = new Connection(server);
+                }
+                ok = send(conn, op, random) < 500;
+            } catch (IOException e) {
+                ok = false;
+                conn = closeQuietly(conn);
+            }
+            if (measuring) {
+                latencies.get(op).record(System.nanoTime() - start);
+                if (!ok) {
+                    errors.get(op).incrementAndGet();
+                }
+            }
+        }
+        closeQuietly(conn);
+    }
+
+    private String pickOp(ThreadLocalRandom random) {
+        int r = random.nextInt(totalWeight);
+        for (int i = 0; i < mixOps.length; i++) {
+            r -= mixWeights[i];
+            if (r < 0) {
+                return mixOps[i];
+            }
+        }
+        return mixOps[mixOps.length - 1];
+    }
+
+    // Sends one request of the given kind and returns the HTTP status
+    private int send(Connection conn, String op, ThreadLocalRandom random) throws IOException {
+        int sku = random.nextInt(skus);
+        boolean write = op.equals("save") || op.equals("sell");
+        if (write && batch > 0) {
+            StringBuilder body = new StringBuilder("[");
+            for (int i = 0; i < batch; i++) {
+                if (i > 0) {
+                    body.append(',');
+                }
+                body.append(writeOp(op, random.nextInt(skus), 1));
+            }
+            return conn.send("POST", "/batch", body.append(']').toString());
+        }
+
+        String name = InventoryBenchmark.skuName(sku);
+        String item = "/items/" + encode(name);
+        switch (op) {
+            case "get":
+                return conn.send("GET", item, null);
+            case "price":
+                return conn.send("GET", item + "/price", null);
+            case "search":
+                // Substring from the middle of the SKU number, as in InventoryBenchmark
+                return conn.send("GET", "/search?limit=20&q=" + encode(name.substring(6, 10)), null);
+            case "page":
+                return conn.send("GET", "/items?limit=50&after=" + encode(name), null);
+            case "save":
+                return conn.send("PUT", item, quantityAndPrice(1, sku));
+            default:
+                return conn.send("POST", item + "/sell", quantityAndPrice(1, sku));
+        }
+    }
+
+    private double report(int clients, double elapsed) {
+        long totalCount = 0;
+        System.out.printf("%n%d clients, %.1f s measured, %s%n", clients, elapsed,
+                batch > 0 ? "writes in batches of " + batch : "one write per request");
+        System.out.printf("%-8s %10s %10s %9s %9s %9s %9s %9s %8s%n",
+                "OP", "REQUESTS", "REQ/S", "MEAN ms", "P50 ms", "P99 ms", "P99.9 ms", "MAX ms", "ERRORS");
+        for (Map.Entry<String, LatencyHistogram> e : latencies.entrySet()) {
+            LatencyHistogram h = e.getValue();
+            totalCount += h.getCount();
+            System.out.printf(Locale.ROOT, "%-8s %10d %10.0f %9.2f %9.2f %9.2f %9.2f %9.2f %8d%n",
+                    e.getKey(), h.getCount(), h.getCount() / elapsed, h.getMeanNanos() / 1e6,
+                    h.getValueAtPercentile(50) / 1e6, h.getValueAtPercentile(99) / 1e6,
+                    h.getValueAtPercentile(99.9) / 1e6, h.getMaxNanos() / 1e6, errors.get(e.getKey()).get());
+        }
+        double rps = totalCount / elapsed;
+        System.out.printf(Locale.ROOT, "%-8s %10d %10.0f%n", "TOTAL", totalCount, rps);
+        return rps;
+    }
+
+    private long totalErrors() {
+        return errors.values().stream().mapToLong(AtomicLong::get).sum();
+    }
+
+    // ------------------------------------------------------------------
+    // HTTP
+    // ------------------------------------------------------------------
+
+    // One keep-alive HTTP/1.1 connection. Understands just what InventoryServer sends back:
+    // a status line, headers with a Content-Length, and that many bytes of body.
+    private static final class Connection implements AutoCloseable {
+        private final Socket socket;
+        private final String hostHeader;
+        private final InputStream in;
+        private final OutputStream out;
+        private final StringBuilder line = new StringBuilder();
+
+        Connection(InetSocketAddress server) throws IOException {
+            socket = new Socket();
+            socket.setTcpNoDelay(true);
+            socket.connect(server, 5_000);
+            hostHeader = server.getHostString() + ":" + server.getPort();
+            in = new BufferedInputStream(socket.getInputStream());
+            out = new BufferedOutputStream(socket.getOutputStream());
+        }
+
+        int send(String method, String path, String body) throws IOException {
+            byte[] payload = body == null ? new byte[0] : body.getBytes(StandardCharsets.UTF_8);
+            String head = method + " " + path + " HTTP/1.1\r\nHost: " + hostHeader
+                    + "\r\nContent-Type: application/json\r\nContent-Length: " + payload.length + "\r\n\r\n";
+            out.write(head.getBytes(StandardCharsets.ISO_8859_1));
+            out.write(payload);
+            out.flush();
+
+            // "HTTP/1.1 200 OK"
+            String status = readLine();
+            int space = status.indexOf(' ');
+            if (space < 0 || status.length() < space + 4) {
+                throw new IOException("Bad status line '" + status + "'");
+            }
+            int code = Integer.parseInt(status.substring(space + 1, space + 4));
+
+            long length = -1;
+            for (String header = readLine(); !header.isEmpty(); header = readLine()) {
+                if (header.regionMatches(true, 0, "Content-Length:", 0, 15)) {
+                    length = Long.parseLong(header.substring(15).trim());
+                }
+            }
+            if (length < 0) {
+                throw new IOException("Response without Content-Length");
+            }
+            in.skipNBytes(length);
+            return code;
+        }
+
+        private String readLine() throws IOException {
+            line.setLength(0);
+            int c;
+            while ((c = in.read()) != '\n') {
+                if (c < 0) {
+                    throw new EOFException("Connection closed by server");
+                }
+                if (c != '\r') {
+                    line.append((char) c);
+                }
+            }
+            return line.toString();
+        }
+
+        @Override
+        public void close() throws IOException {
+            socket.close();
+        }
+    }
+
+    private static Connection closeQuietly(Connection conn) {
+        if (conn != null) {
+            try {
+                conn.close();
+            } catch (IOException ignored) {
+                // Already broken
+            }
+        }
+        return null;
+    }
+
+    private static String writeOp(String op, int sku, int quantity) {
+        return "{\"op\":\"" + op + "\",\"name\":\"" + InventoryBenchmark.skuName(sku) + "\","
+                + quantityAndPrice(quantity, sku).substring(1);
+    }
+
+    private static String quantityAndPrice(int quantity, int sku) {
+        return "{\"quantity\":" + quantity + ",\"price\":" + (10 + sku % 1000) + "}";
+    }
+
+    private static String encode(String s) {
+        return URLEncoder.encode(s, StandardCharsets.UTF_8).replace("+", "%20");
+    }
+
+    private static Map<String, String> parseArgs(String[] args) {
+        Map<String, String> opts = new HashMap<>();
+        for (int i = 0; i < args.length; i++) {
+            if (!args[i].startsWith("--") || i + 1 >= args.length) {
+                throw new IllegalArgumentException("Expected --option value pairs, got '" + args[i] + "'");
+            }
+            opts.put(args[i].substring(2), args[++i]);
+        }
+        return opts;
+    }
+
+    // "get:60,sell:40" -> {get=60, sell=40}
+    private static Map<String, Integer> parseMix(String csv) {
+        Map<String, Integer> mix = new LinkedHashMap<>();
+        for (String part : csv.split(",")) {
+            String[] kv = part.trim().split(":");
+            int weight = kv.length > 1 ? Integer.parseInt(kv[1]) : 1;
+            if (weight > 0) {
+                mix.put(kv[0], weight);
+            }
+        }
+        if (mix.isEmpty()) {
+            throw new IllegalArgumentException("--mix needs at least one operation with weight > 0");
+        }
+        return mix;
+    }
+}
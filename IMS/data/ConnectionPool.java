@@ -0,0 +1,445 @@
+package data;
+
+import metrics.InventoryMetrics;
+import metrics.OperationMetrics;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+// A small bounded pool of long-lived JDBC connections.
+// Callers use the normal try-with-resources pattern: closing the Connection handed out
+// by getConnection() returns it to the pool instead of closing the SQLite file.
+// Each pooled connection also keeps its own cache of prepared statements, so repeated
+// calls to conn.prepareStatement(sql) reuse the already compiled statement.
+public class ConnectionPool {
+
+    // Time spent waiting for a connection, across all pools (JMX: ims:type=Operation,name="connection.acquire")
+    private static final OperationMetrics ACQUIRE = InventoryMetrics.operation("connection.acquire");
+
+    private final String url;
+    private final int maxSize;
+    private final int statementCacheSize;
+    private final long acquireTimeoutMillis;
+    private final StorageProfile profile;
+
+    private final ConcurrentLinkedQueue<PooledConnection> idle = new ConcurrentLinkedQueue<>();
+    private final Semaphore permits;
+    private volatile boolean closed;
+
+    // --- Metrics ---
+    private final AtomicInteger created = new AtomicInteger();
+    private final AtomicInteger inUse = new AtomicInteger();
+    private final LongAdder acquisitions = new LongAdder();
+    private final LongAdder totalWaitNanos = new LongAdder();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+    private final LongAdder statementCacheHits = new LongAdder();
+    private final LongAdder statementCacheMisses = new LongAdder();
+
+    public ConnectionPool(String url, int maxSize, int statementCacheSize, long acquireTimeoutMillis) {
+        this(url, maxSize, statementCacheSize, acquireTimeoutMillis, null);
+    }
+
+    // 'profile' (may be null) is applied to every physical connection when it is opened
+    public ConnectionPool(String url, int maxSize, int statementCacheSize, long acquireTimeoutMillis,
+                          StorageProfile profile) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("Pool size must be > 0");
+        }
+        this.url = url;
+        this.maxSize = maxSize;
+        this.statementCacheSize = Math.max(0, statementCacheSize);
+        this.acquireTimeoutMillis = acquireTimeoutMillis;
+        this.profile = profile;
+        this.permits = new Semaphore(maxSize, true);
+    }
+
+    public String getUrl() {
+        return url;
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public int getStatementCacheSize() {
+        return statementCacheSize;
+    }
+
+    public StorageProfile getProfile() {
+        return profile;
+    }
+
+    // Borrows a connection, waiting up to acquireTimeoutMillis if all of them are in use.
+    public Connection getConnection() throws SQLException {
+        if (closed) {
+            throw new SQLException("Connection pool is closed");
+        }
+
+        long start = System.nanoTime();
+        long metricStart = ACQUIRE.start();
+        try {
+            if (!permits.tryAcquire(acquireTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                ACQUIRE.failure(metricStart);
+                throw new SQLException("Timed out after " + acquireTimeoutMillis
+                        + " ms waiting for a database connection (pool size " + maxSize + ")");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            ACQUIRE.failure(metricStart);
+            throw new SQLException("Interrupted while waiting for a database connection", e);
+        }
+
+        PooledConnection pooled;
+        try {
+            pooled = takeIdleOrCreate();
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            ACQUIRE.failure(metricStart);
+            throw e;
+        }
+        ACQUIRE.success(metricStart, 0, 0);
+
+        long waited = System.nanoTime() - start;
+        acquisitions.increment();
+        totalWaitNanos.add(waited);
+        maxWaitNanos.accumulateAndGet(waited, Math::max);
+        inUse.incrementAndGet();
+
+        return pooled.checkout();
+    }
+
+    private PooledConnection takeIdleOrCreate() throws SQLException {
+        PooledConnection pooled;
+        while ((pooled = idle.poll()) != null) {
+            if (!pooled.physical.isClosed()) {
+                return pooled;
+            }
+            created.decrementAndGet();
+        }
+        pooled = new PooledConnection(openPhysical());
+        created.incrementAndGet();
+        return pooled;
+    }
+
+    // Opens a brand-new physical connection and applies the storage profile to it
+    protected Connection openPhysical() throws SQLException {
+        Connection conn = DriverManager.getConnection(url);
+        if (profile != null) {
+            try {
+                profile.apply(conn);
+            } catch (SQLException e) {
+                conn.close();
+                throw e;
+            }
+        }
+        return conn;
+    }
+
+    private void release(PooledConnection pooled) {
+        inUse.decrementAndGet();
+        try {
+            pooled.checkInAll();
+            // Never hand a half-finished transaction to the next borrower
+            if (!pooled.physical.getAutoCommit()) {
+                pooled.physical.rollback();
+                pooled.physical.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            pooled.discard();
+            created.decrementAndGet();
+            permits.release();
+            return;
+        }
+
+        if (closed) {
+            pooled.discard();
+            created.decrementAndGet();
+        } else {
+            idle.offer(pooled);
+        }
+        permits.release();
+    }
+
+    // Closes every idle connection; connections still in use are closed when they are returned.
+    public void close() {
+        closed = true;
+        PooledConnection pooled;
+        while ((pooled = idle.poll()) != null) {
+            pooled.discard();
+            created.decrementAndGet();
+        }
+    }
+
+    public Stats getStats() {
+        return new Stats(maxSize, created.get(), inUse.get(), idle.size(),
+                acquisitions.sum(), totalWaitNanos.sum(), maxWaitNanos.get(),
+                statementCacheHits.sum(), statementCacheMisses.sum());
+    }
+
+    // Immutable snapshot of the pool counters, used to size the pool under load.
+    public static final class Stats {
+        public final int maxSize;
+        public final int created;
+        public final int inUse;
+        public final int idle;
+        public final long acquisitions;
+        public final long totalWaitNanos;
+        public final long maxWaitNanos;
+        public final long statementCacheHits;
+        public final long statementCacheMisses;
+
+        Stats(int maxSize, int created, int inUse, int idle, long acquisitions,
+              long totalWaitNanos, long maxWaitNanos, long statementCacheHits, long statementCacheMisses) {
+            this.maxSize = maxSize;
+            this.created = created;
+            this.inUse = inUse;
+            this.idle = idle;
+            this.acquisitions = acquisitions;
+            this.totalWaitNanos = totalWaitNanos;
+            this.maxWaitNanos = maxWaitNanos;
+            this.statementCacheHits = statementCacheHits;
+            this.statementCacheMisses = statementCacheMisses;
+        }
+
+        public double getAverageWaitMillis() {
+            return acquisitions == 0 ? 0.0 : totalWaitNanos / 1_000_000.0 / acquisitions;
+        }
+
+        public double getMaxWaitMillis() {
+            return maxWaitNanos / 1_000_000.0;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("Pool[size=%d, created=%d, inUse=%d, idle=%d, acquisitions=%d, "
+                            + "avgWait=%.3f ms, maxWait=%.3f ms, stmtCache hits=%d misses=%d]",
+                    maxSize, created, inUse, idle, acquisitions,
+                    getAverageWaitMillis(), getMaxWaitMillis(), statementCacheHits, statementCacheMisses);
+        }
+    }
+
+    // ------------------------------------------------------------------
+    // One physical connection plus its prepared-statement cache
+    // ------------------------------------------------------------------
+
+    private final class PooledConnection {
+        final Connection physical;
+        // Access-ordered map = simple LRU; evicted statements are really closed (see trim)
+        final Map<String, PreparedStatement> statements = new LinkedHashMap<>(16, 0.75f, true);
+        // Cached statements handed out in the current borrow and not closed yet -> their handle.
+        // They are never evicted, and a second prepare of the same SQL gets its own statement.
+        final Map<PreparedStatement, CachedStatement> checkedOut = new IdentityHashMap<>();
+
+        PooledConnection(Connection physical) {
+            this.physical = physical;
+        }
+
+        Connection checkout() {
+            return (Connection) Proxy.newProxyInstance(
+                    Connection.class.getClassLoader(),
+                    new Class<?>[] { Connection.class },
+                    new LogicalConnection(this));
+        }
+
+        PreparedStatement prepare(String sql) throws SQLException {
+            if (statementCacheSize == 0) {
+                statementCacheMisses.increment();
+                return physical.prepareStatement(sql);
+            }
+            PreparedStatement stmt = statements.get(sql);
+            if (stmt != null && checkedOut.containsKey(stmt)) {
+                // Still open in this borrow: a plain statement that close() really closes
+                statementCacheMisses.increment();
+                return physical.prepareStatement(sql);
+            }
+            if (stmt == null || stmt.isClosed()) {
+                statementCacheMisses.increment();
+                stmt = physical.prepareStatement(sql);
+                statements.put(sql, stmt);
+            } else {
+                statementCacheHits.increment();
+            }
+            CachedStatement handle = new CachedStatement(this, stmt);
+            checkedOut.put(stmt, handle);
+            trim();
+            return (PreparedStatement) Proxy.newProxyInstance(
+                    PreparedStatement.class.getClassLoader(),
+                    new Class<?>[] { PreparedStatement.class },
+                    handle);
+        }
+
+        void checkIn(CachedStatement handle) {
+            if (checkedOut.remove(handle.target, handle)) {
+                trim();
+            }
+        }
+
+        // Closes least recently used statements that are not checked out until the cache fits.
+        // While more than statementCacheSize are checked out the cache stays over its size.
+        void trim() {
+            for (Iterator<PreparedStatement> it = statements.values().iterator();
+                 statements.size() > statementCacheSize && it.hasNext(); ) {
+                PreparedStatement stmt = it.next();
+                if (!checkedOut.containsKey(stmt)) {
+                    closeQuietly(stmt);
+                    it.remove();
+                }
+            }
+        }
+
+        // End of a borrow: statements the caller left open are reset and become evictable
+        void checkInAll() throws SQLException {
+            SQLException failure = null;
+            for (CachedStatement handle : new ArrayList<>(checkedOut.values())) {
+                try {
+                    handle.close();
+                } catch (SQLException e) {
+                    failure = e;
+                }
+            }
+            checkedOut.clear();
+            trim();
+            if (failure != null) {
+                throw failure;
+            }
+        }
+
+        void discard() {
+            checkedOut.clear();
+            for (Iterator<PreparedStatement> it = statements.values().iterator(); it.hasNext(); ) {
+                closeQuietly(it.next());
+                it.remove();
+            }
+            try {
+                physical.close();
+            } catch (SQLException ignored) {
+                // Nothing useful to do with a failed close
+            }
+        }
+    }
+
+    // The Connection object callers see. close() returns the physical connection to the pool.
+    private final class LogicalConnection implements InvocationHandler {
+        private final PooledConnection pooled;
+        private boolean closed;
+
+        LogicalConnection(PooledConnection pooled) {
+            this.pooled = pooled;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            switch (name) {
+                case "close":
+                    if (!closed) {
+                        closed = true;
+                        release(pooled);
+                    }
+                    return null;
+                case "isClosed":
+                    return closed || pooled.physical.isClosed();
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "PooledConnection[" + url + (closed ? ", closed]" : "]");
+                default:
+                    break;
+            }
+
+            if (closed) {
+                throw new SQLException("Connection has already been returned to the pool");
+            }
+            if (name.equals("prepareStatement") && args != null && args.length == 1) {
+                return pooled.prepare((String) args[0]);
+            }
+            return invokeTarget(pooled.physical, method, args);
+        }
+    }
+
+    // A cached PreparedStatement: close() only resets it so the next borrower can reuse it.
+    private static final class CachedStatement implements InvocationHandler {
+        private final PooledConnection owner;
+        private final PreparedStatement target;
+        private boolean closed;
+
+        CachedStatement(PooledConnection owner, PreparedStatement target) {
+            this.owner = owner;
+            this.target = target;
+        }
+
+        void close() throws SQLException {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            try {
+                // Finish any open cursor so SQLite releases its read lock
+                ResultSet rs = target.getResultSet();
+                if (rs != null) {
+                    rs.close();
+                }
+                target.clearParameters();
+                target.clearBatch();
+            } finally {
+                owner.checkIn(this);
+            }
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    close();
+                    return null;
+                case "isClosed":
+                    return closed || target.isClosed();
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                default:
+                    break;
+            }
+            if (closed) {
+                throw new SQLException("Statement is closed");
+            }
+            return invokeTarget(target, method, args);
+        }
+    }
+
+    private static Object invokeTarget(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    private static void closeQuietly(PreparedStatement stmt) {
+        try {
+            stmt.close();
+        } catch (SQLException ignored) {
+            // Statement is being evicted anyway
+        }
+    }
+}
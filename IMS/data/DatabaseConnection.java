@@ -1,34 +1,199 @@
 package data;
 
 import java.sql.Connection;
-import java.sql.DriverManager;
+import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
 
 public class DatabaseConnection {
     // Database file will be created in the project root (IMS) directory
-    private static final String URL = "jdbc:sqlite:inventory.db";
+    // (override with -Dims.db.url=jdbc:sqlite:/path/to/file.db)
+    private static volatile String url = System.getProperty("ims.db.url", "jdbc:sqlite:inventory.db");
 
+    // Pool settings, tunable with -Dims.pool.size=..., -Dims.pool.statementCache=..., -Dims.pool.timeoutMillis=...
+    private static final int DEFAULT_POOL_SIZE = Integer.getInteger("ims.pool.size", 4);
+    private static final int DEFAULT_STATEMENT_CACHE = Integer.getInteger("ims.pool.statementCache", 32);
+    private static final long DEFAULT_ACQUIRE_TIMEOUT_MS = Long.getLong("ims.pool.timeoutMillis", 30_000L);
+
+    // SQLite PRAGMAs for every connection: -Dims.db.profile=default, safe or high-throughput.
+    // Only an explicitly chosen profile switches the file to WAL (see StorageProfile).
+    private static volatile StorageProfile profile =
+            StorageProfile.named(System.getProperty("ims.db.profile", "default"));
+
+    private static volatile ConnectionPool pool;
+
+    // Version of a newly inserted row: microseconds since the epoch. Later writes add 1, so an
+    // item that is deleted and added again never repeats a version of the row it replaces
+    // (that would take more than one write per microsecond over the old row's lifetime).
+    public static final String NEW_ROW_VERSION =
+            "CAST((julianday('now') - 2440587.5) * 86400000000.0 AS INTEGER)";
+
+    // Returns a warm connection from the pool. Closing it hands it back to the pool.
     public static Connection getConnection() throws SQLException {
-        // Load the SQLite driver and establish the connection
-        return DriverManager.getConnection(URL);
+        return getPool().getConnection();
+    }
+
+    public static ConnectionPool getPool() {
+        ConnectionPool current = pool;
+        if (current == null) {
+            synchronized (DatabaseConnection.class) {
+                current = pool;
+                if (current == null) {
+                    current = new ConnectionPool(url, DEFAULT_POOL_SIZE, DEFAULT_STATEMENT_CACHE,
+                            DEFAULT_ACQUIRE_TIMEOUT_MS, profile);
+                    pool = current;
+                }
+            }
+        }
+        return current;
+    }
+
+    // Replaces the pool with one of the given size. Idle connections of the old pool are closed.
+    public static synchronized void configurePool(int maxSize, int statementCacheSize) {
+        ConnectionPool old = pool;
+        pool = new ConnectionPool(url, maxSize, statementCacheSize, DEFAULT_ACQUIRE_TIMEOUT_MS, profile);
+        if (old != null) {
+            old.close();
+        }
+    }
+
+    // Points the application at another database file (e.g. a benchmark or test database)
+    public static synchronized void useDatabase(String newUrl) {
+        url = newUrl;
+        ConnectionPool old = pool;
+        if (old != null) {
+            configurePool(old.getMaxSize(), old.getStatementCacheSize());
+        }
+    }
+
+    public static String getUrl() {
+        return url;
+    }
+
+    // Switches the storage profile; new connections are opened with it from now on
+    public static synchronized void configureStorage(StorageProfile newProfile) {
+        profile = newProfile;
+        ConnectionPool old = pool;
+        if (old != null) {
+            configurePool(old.getMaxSize(), old.getStatementCacheSize());
+        }
+    }
+
+    public static StorageProfile getStorageProfile() {
+        return profile;
+    }
+
+    public static ConnectionPool.Stats getPoolStats() {
+        return getPool().getStats();
+    }
+
+    public static synchronized void shutdown() {
+        if (pool != null) {
+            pool.close();
+            pool = null;
+        }
+    }
+
+    // A separate pool for another database file (e.g. one shard), with the default settings
+    public static ConnectionPool newPool(String databaseUrl) {
+        return new ConnectionPool(databaseUrl, DEFAULT_POOL_SIZE, DEFAULT_STATEMENT_CACHE,
+                DEFAULT_ACQUIRE_TIMEOUT_MS, profile);
     }
 
     public static void initializeDatabase() {
-        try (Connection conn = getConnection();
+        initializeDatabase(getPool());
+    }
+
+    // Creates the schema in the database behind 'target' if it is not there yet
+    public static void initializeDatabase(ConnectionPool target) {
+        try (Connection conn = target.getConnection();
              Statement stmt = conn.createStatement()) {
 
             // SQL to create the table if it doesn't exist
             String sql = "CREATE TABLE IF NOT EXISTS items (" +
                          "name TEXT PRIMARY KEY," +
                          "quantity INTEGER NOT NULL," +
-                         "price REAL NOT NULL)";
-            
+                         "price REAL NOT NULL," +
+                         "barcode TEXT," +
+                         "version INTEGER NOT NULL DEFAULT 1)";
+
             stmt.execute(sql);
-            System.out.println("Database initialized successfully.");
+            addBarcodeColumn(stmt);
+            addVersionColumn(stmt);
+            // Low-stock reports (InventoryAnalytics.lowStock) seek on quantity instead of scanning
+            stmt.execute("CREATE INDEX IF NOT EXISTS idx_items_quantity ON items(quantity)");
+            createTotals(stmt);
+            System.out.println("Database initialized successfully (" + target.getUrl() + ", " + target.getProfile() + ").");
 
         } catch (SQLException e) {
             System.err.println("Database initialization failed: " + e.getMessage());
         }
     }
-}
\ No newline at end of file
+
+    // Databases created before barcodes existed get the column (a schema-only change in SQLite,
+    // no table rewrite). The unique index makes exact scans a single seek and rejects duplicates;
+    // items without a code (NULL) do not collide.
+    private static void addBarcodeColumn(Statement stmt) throws SQLException {
+        boolean present;
+        try (ResultSet rs = stmt.executeQuery("SELECT 1 FROM pragma_table_info('items') WHERE name = 'barcode'")) {
+            present = rs.next();
+        }
+        if (!present) {
+            stmt.execute("ALTER TABLE items ADD COLUMN barcode TEXT");
+        }
+        stmt.execute("CREATE UNIQUE INDEX IF NOT EXISTS idx_items_barcode ON items(barcode)");
+    }
+
+    // Row version for optimistic concurrency (InventoryManager.compareAndSet). The statements
+    // of this application set it themselves; the triggers cover any other writer, such as an
+    // older build on another terminal, so every committed change of a row moves its version.
+    // Version 0 never occurs in the table: InventoryItem uses it for "not loaded".
+    private static void addVersionColumn(Statement stmt) throws SQLException {
+        boolean present;
+        try (ResultSet rs = stmt.executeQuery("SELECT 1 FROM pragma_table_info('items') WHERE name = 'version'")) {
+            present = rs.next();
+        }
+        if (!present) {
+            stmt.execute("ALTER TABLE items ADD COLUMN version INTEGER NOT NULL DEFAULT 1");
+        }
+        stmt.execute("CREATE TRIGGER IF NOT EXISTS items_version_insert AFTER INSERT ON items " +
+                     "WHEN NEW.version = 1 BEGIN " +
+                     "UPDATE items SET version = " + NEW_ROW_VERSION + " WHERE name = NEW.name; END");
+        stmt.execute("CREATE TRIGGER IF NOT EXISTS items_version_update AFTER UPDATE ON items " +
+                     "WHEN NEW.version = OLD.version BEGIN " +
+                     "UPDATE items SET version = OLD.version + 1 WHERE name = NEW.name; END");
+    }
+
+    // One-row table of running totals, kept in step with 'items' by triggers. The triggers run
+    // inside the writing transaction, so every writer (single calls, write queue, bulk import)
+    // updates the totals atomically with the row. Value is in paise, as in InventoryAnalytics.
+    private static void createTotals(Statement stmt) throws SQLException {
+        stmt.execute("CREATE TABLE IF NOT EXISTS inventory_totals (" +
+                     "id INTEGER PRIMARY KEY CHECK (id = 1)," +
+                     "item_count INTEGER NOT NULL," +
+                     "total_quantity INTEGER NOT NULL," +
+                     "total_value_minor INTEGER NOT NULL)");
+
+        // Seed from existing rows the first time (no-op once the row exists)
+        stmt.execute("INSERT OR IGNORE INTO inventory_totals " +
+                     "SELECT 1, COUNT(*), COALESCE(SUM(quantity), 0), " +
+                     "COALESCE(SUM(quantity * CAST(ROUND(price * 100) AS INTEGER)), 0) FROM items");
+
+        stmt.execute("CREATE TRIGGER IF NOT EXISTS items_totals_insert AFTER INSERT ON items BEGIN " +
+                     "UPDATE inventory_totals SET item_count = item_count + 1, " +
+                     "total_quantity = total_quantity + NEW.quantity, " +
+                     "total_value_minor = total_value_minor + NEW.quantity * CAST(ROUND(NEW.price * 100) AS INTEGER) " +
+                     "WHERE id = 1; END");
+        stmt.execute("CREATE TRIGGER IF NOT EXISTS items_totals_update AFTER UPDATE OF quantity, price ON items BEGIN " +
+                     "UPDATE inventory_totals SET " +
+                     "total_quantity = total_quantity + NEW.quantity - OLD.quantity, " +
+                     "total_value_minor = total_value_minor + NEW.quantity * CAST(ROUND(NEW.price * 100) AS INTEGER) " +
+                     "- OLD.quantity * CAST(ROUND(OLD.price * 100) AS INTEGER) " +
+                     "WHERE id = 1; END");
+        stmt.execute("CREATE TRIGGER IF NOT EXISTS items_totals_delete AFTER DELETE ON items BEGIN " +
+                     "UPDATE inventory_totals SET item_count = item_count - 1, " +
+                     "total_quantity = total_quantity - OLD.quantity, " +
+                     "total_value_minor = total_value_minor - OLD.quantity * CAST(ROUND(OLD.price * 100) AS INTEGER) " +
+                     "WHERE id = 1; END");
+    }
+}
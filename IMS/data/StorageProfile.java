@@ -0,0 +1,147 @@
+package data;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Locale;
+
+// SQLite settings applied to every new physical connection (see ConnectionPool).
+// Picks the durability/throughput trade-off explicitly instead of relying on SQLite defaults:
+//  - DEFAULT:         keeps the journal mode the database file already has, synchronous=FULL
+//  - SAFE:            WAL journal, synchronous=FULL -> a committed sale survives power loss
+//  - HIGH_THROUGHPUT: WAL journal, synchronous=NORMAL, large page cache and mmap -> far fewer
+//                     fsyncs; the last few commits may be lost on power loss (never corrupted)
+// Switching to WAL is persistent: it converts the database file. WAL relies on shared memory
+// between the processes using the file, so it must not be used on a database opened over a
+// network share (e.g. several terminals sharing one inventory.db); only DEFAULT is safe there.
+// Individual values can be changed with the with...() methods, e.g.
+// StorageProfile.SAFE.withCacheSizeKb(32_768).
+public final class StorageProfile {
+
+    public enum JournalMode { DELETE, TRUNCATE, PERSIST, MEMORY, WAL, OFF }
+
+    public enum Synchronous { OFF, NORMAL, FULL, EXTRA }
+
+    public enum TempStore { DEFAULT, FILE, MEMORY }
+
+    // Journal mode null = leave it as it is
+    public static final StorageProfile DEFAULT =
+            new StorageProfile("default", null, Synchronous.FULL, 0L, 8_192, TempStore.DEFAULT, 5_000);
+
+    public static final StorageProfile SAFE =
+            new StorageProfile("safe", JournalMode.WAL, Synchronous.FULL, 0L, 8_192, TempStore.DEFAULT, 5_000);
+
+    public static final StorageProfile HIGH_THROUGHPUT =
+            new StorageProfile("high-throughput", JournalMode.WAL, Synchronous.NORMAL, 256L * 1024 * 1024,
+                    65_536, TempStore.MEMORY, 10_000);
+
+    private final String name;
+    private final JournalMode journalMode;
+    private final Synchronous synchronous;
+    private final long mmapSizeBytes;
+    private final int cacheSizeKb;
+    private final TempStore tempStore;
+    private final int busyTimeoutMillis;
+
+    public StorageProfile(String name, JournalMode journalMode, Synchronous synchronous, long mmapSizeBytes,
+                          int cacheSizeKb, TempStore tempStore, int busyTimeoutMillis) {
+        this.name = name;
+        this.journalMode = journalMode;
+        this.synchronous = synchronous;
+        this.mmapSizeBytes = mmapSizeBytes;
+        this.cacheSizeKb = cacheSizeKb;
+        this.tempStore = tempStore;
+        this.busyTimeoutMillis = busyTimeoutMillis;
+    }
+
+    // Looks up a preset by name ("default", "safe" or "high-throughput")
+    public static StorageProfile named(String name) {
+        switch (name.trim().toLowerCase(Locale.ROOT)) {
+            case "default":
+                return DEFAULT;
+            case "safe":
+                return SAFE;
+            case "high-throughput":
+            case "fast":
+                return HIGH_THROUGHPUT;
+            default:
+                throw new IllegalArgumentException("Unknown storage profile '" + name + "' (use default, safe or high-throughput)");
+        }
+    }
+
+    // Runs the PRAGMAs on a freshly opened connection
+    public void apply(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            // busy_timeout first, so the journal_mode switch itself waits for other connections
+            stmt.execute("PRAGMA busy_timeout = " + busyTimeoutMillis);
+            if (journalMode != null) {
+                stmt.execute("PRAGMA journal_mode = " + journalMode);
+            }
+            stmt.execute("PRAGMA synchronous = " + synchronous);
+            stmt.execute("PRAGMA mmap_size = " + mmapSizeBytes);
+            // Negative cache_size means "this many KiB" rather than pages
+            stmt.execute("PRAGMA cache_size = " + (-cacheSizeKb));
+            stmt.execute("PRAGMA temp_store = " + tempStore);
+        }
+    }
+
+    public StorageProfile withJournalMode(JournalMode journalMode) {
+        return new StorageProfile(name + "*", journalMode, synchronous, mmapSizeBytes, cacheSizeKb, tempStore, busyTimeoutMillis);
+    }
+
+    public StorageProfile withSynchronous(Synchronous synchronous) {
+        return new StorageProfile(name + "*", journalMode, synchronous, mmapSizeBytes, cacheSizeKb, tempStore, busyTimeoutMillis);
+    }
+
+    public StorageProfile withMmapSize(long mmapSizeBytes) {
+        return new StorageProfile(name + "*", journalMode, synchronous, mmapSizeBytes, cacheSizeKb, tempStore, busyTimeoutMillis);
+    }
+
+    public StorageProfile withCacheSizeKb(int cacheSizeKb) {
+        return new StorageProfile(name + "*", journalMode, synchronous, mmapSizeBytes, cacheSizeKb, tempStore, busyTimeoutMillis);
+    }
+
+    public StorageProfile withTempStore(TempStore tempStore) {
+        return new StorageProfile(name + "*", journalMode, synchronous, mmapSizeBytes, cacheSizeKb, tempStore, busyTimeoutMillis);
+    }
+
+    public StorageProfile withBusyTimeout(int busyTimeoutMillis) {
+        return new StorageProfile(name + "*", journalMode, synchronous, mmapSizeBytes, cacheSizeKb, tempStore, busyTimeoutMillis);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    // null when the database's own journal mode is kept
+    public JournalMode getJournalMode() {
+        return journalMode;
+    }
+
+    public Synchronous getSynchronous() {
+        return synchronous;
+    }
+
+    public long getMmapSizeBytes() {
+        return mmapSizeBytes;
+    }
+
+    public int getCacheSizeKb() {
+        return cacheSizeKb;
+    }
+
+    public TempStore getTempStore() {
+        return tempStore;
+    }
+
+    public int getBusyTimeoutMillis() {
+        return busyTimeoutMillis;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("StorageProfile[%s: journal_mode=%s, synchronous=%s, mmap_size=%d, cache_size=%d KiB, "
+                        + "temp_store=%s, busy_timeout=%d ms]",
+                name, journalMode == null ? "unchanged" : journalMode, synchronous, mmapSizeBytes, cacheSizeKb, tempStore, busyTimeoutMillis);
+    }
+}
@@ -0,0 +1,163 @@
+package metrics;
+
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+// Process-wide registry of operation metrics.
+// Operations register themselves once (usually in a static field) and are exposed through
+// JMX as ims:type=Operation,name=<operation>, as a text or JSON dump, and through any
+// MetricsExporter added with addExporter(). Disable with -Dims.metrics.enabled=false.
+public final class InventoryMetrics {
+
+    private static final ConcurrentMap<String, OperationMetrics> OPERATIONS = new ConcurrentHashMap<>();
+    private static final List<MetricsExporter> EXPORTERS = new CopyOnWriteArrayList<>();
+    private static volatile boolean enabled =
+            Boolean.parseBoolean(System.getProperty("ims.metrics.enabled", "true"));
+    private static ScheduledExecutorService exportTimer;
+
+    private InventoryMetrics() {
+    }
+
+    // Returns the metrics for the named operation, creating and registering them on first use
+    public static OperationMetrics operation(String name) {
+        return OPERATIONS.computeIfAbsent(name, n -> {
+            OperationMetrics metrics = new OperationMetrics(n);
+            registerMBean(metrics);
+            return metrics;
+        });
+    }
+
+    public static Collection<OperationMetrics> getOperations() {
+        List<OperationMetrics> sorted = new ArrayList<>(OPERATIONS.values());
+        sorted.sort(Comparator.comparing(OperationMetrics::getName));
+        return sorted;
+    }
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    public static void setEnabled(boolean on) {
+        enabled = on;
+    }
+
+    public static void resetAll() {
+        for (OperationMetrics metrics : OPERATIONS.values()) {
+            metrics.reset();
+        }
+    }
+
+    // --- JMX ---
+
+    private static void registerMBean(OperationMetrics metrics) {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName objectName = new ObjectName("ims:type=Operation,name=" + ObjectName.quote(metrics.getName()));
+            if (!server.isRegistered(objectName)) {
+                server.registerMBean(metrics, objectName);
+            }
+        } catch (JMException e) {
+            // Metrics still work without JMX
+            System.err.println("Could not register JMX bean for " + metrics.getName() + ": " + e.getMessage());
+        }
+    }
+
+    // --- Exporters ---
+
+    public static void addExporter(MetricsExporter exporter) {
+        EXPORTERS.add(exporter);
+    }
+
+    public static void removeExporter(MetricsExporter exporter) {
+        EXPORTERS.remove(exporter);
+    }
+
+    // Calls every registered exporter once per period on a background daemon thread
+    public static synchronized void startExporting(long period, TimeUnit unit) {
+        stopExporting();
+        exportTimer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "inventory-metrics-export");
+            t.setDaemon(true);
+            return t;
+        });
+        exportTimer.scheduleAtFixedRate(InventoryMetrics::exportNow, period, period, unit);
+    }
+
+    public static synchronized void stopExporting() {
+        if (exportTimer != null) {
+            exportTimer.shutdown();
+            exportTimer = null;
+        }
+    }
+
+    public static void exportNow() {
+        Collection<OperationMetrics> snapshot = getOperations();
+        for (MetricsExporter exporter : EXPORTERS) {
+            try {
+                exporter.export(snapshot);
+            } catch (RuntimeException e) {
+                System.err.println("Metrics exporter failed: " + e.getMessage());
+            }
+        }
+    }
+
+    // An exporter that prints the text table, e.g. addExporter(InventoryMetrics.printingTo(System.out))
+    public static MetricsExporter printingTo(PrintStream out) {
+        return operations -> out.print(toText(operations));
+    }
+
+    // --- Local dumps ---
+
+    public static String toText() {
+        return toText(getOperations());
+    }
+
+    public static String toText(Collection<OperationMetrics> operations) {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("%-22s %10s %7s %10s %10s %10s %10s %10s %12s %12s%n",
+                "OPERATION", "COUNT", "ERRORS", "MEAN µs", "P50 µs", "P99 µs", "P99.9 µs", "MAX µs", "ROWS READ", "ROWS WRITTEN"));
+        for (OperationMetrics m : operations) {
+            sb.append(String.format(Locale.ROOT, "%-22s %10d %7d %10.1f %10.1f %10.1f %10.1f %10.1f %12d %12d%n",
+                    m.getName(), m.getCount(), m.getErrorCount(), m.getMeanMicros(), m.getP50Micros(),
+                    m.getP99Micros(), m.getP999Micros(), m.getMaxMicros(), m.getRowsRead(), m.getRowsWritten()));
+        }
+        return sb.toString();
+    }
+
+    public static String toJson() {
+        return toJson(getOperations());
+    }
+
+    public static String toJson(Collection<OperationMetrics> operations) {
+        StringBuilder sb = new StringBuilder("{\"operations\":[");
+        boolean first = true;
+        for (OperationMetrics m : operations) {
+            if (!first) {
+                sb.append(',');
+            }
+            first = false;
+            sb.append(String.format(Locale.ROOT,
+                    "{\"name\":\"%s\",\"count\":%d,\"errors\":%d,\"rowsRead\":%d,\"rowsWritten\":%d,"
+                            + "\"meanMicros\":%.3f,\"p50Micros\":%.3f,\"p90Micros\":%.3f,\"p99Micros\":%.3f,"
+                            + "\"p999Micros\":%.3f,\"maxMicros\":%.3f}",
+                    m.getName().replace("\\", "\\\\").replace("\"", "\\\""), m.getCount(), m.getErrorCount(),
+                    m.getRowsRead(), m.getRowsWritten(), m.getMeanMicros(), m.getP50Micros(), m.getP90Micros(),
+                    m.getP99Micros(), m.getP999Micros(), m.getMaxMicros()));
+        }
+        return sb.append("]}").toString();
+    }
+}
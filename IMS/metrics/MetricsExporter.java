@@ -0,0 +1,9 @@
+package metrics;
+
+import java.util.Collection;
+
+// Receives the current metrics on every export tick (see InventoryMetrics.startExporting).
+// Implementations push to whatever monitoring system is in use; they run on the exporter thread.
+public interface MetricsExporter {
+    void export(Collection<OperationMetrics> operations);
+}
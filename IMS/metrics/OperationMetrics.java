@@ -0,0 +1,118 @@
+package metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+// Counters and latency histogram for one named operation (e.g. "sellStock").
+// Typical use on a hot path:
+//   long start = SELL.start();
+//   ... do the work ...
+//   SELL.success(start, rowsRead, rowsWritten);   // or SELL.failure(start) in a catch
+public class OperationMetrics implements OperationMetricsMBean {
+
+    private final String name;
+    private final LongAdder count = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+    private final LongAdder rowsRead = new LongAdder();
+    private final LongAdder rowsWritten = new LongAdder();
+    private final LatencyHistogram latency = new LatencyHistogram();
+
+    OperationMetrics(String name) {
+        this.name = name;
+    }
+
+    public long start() {
+        return InventoryMetrics.isEnabled() ? System.nanoTime() : 0L;
+    }
+
+    public void success(long startNanos, long read, long written) {
+        if (startNanos == 0L) {
+            return;
+        }
+        latency.record(System.nanoTime() - startNanos);
+        count.increment();
+        if (read != 0) {
+            rowsRead.add(read);
+        }
+        if (written != 0) {
+            rowsWritten.add(written);
+        }
+    }
+
+    public void failure(long startNanos) {
+        if (startNanos == 0L) {
+            return;
+        }
+        latency.record(System.nanoTime() - startNanos);
+        count.increment();
+        errors.increment();
+    }
+
+    public void reset() {
+        count.reset();
+        errors.reset();
+        rowsRead.reset();
+        rowsWritten.reset();
+        latency.reset();
+    }
+
+    public LatencyHistogram getLatency() {
+        return latency;
+    }
+
+    // --- OperationMetricsMBean ---
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public long getCount() {
+        return count.sum();
+    }
+
+    @Override
+    public long getErrorCount() {
+        return errors.sum();
+    }
+
+    @Override
+    public long getRowsRead() {
+        return rowsRead.sum();
+    }
+
+    @Override
+    public long getRowsWritten() {
+        return rowsWritten.sum();
+    }
+
+    @Override
+    public double getMeanMicros() {
+        return latency.getMeanNanos() / 1000.0;
+    }
+
+    @Override
+    public double getP50Micros() {
+        return latency.getValueAtPercentile(50) / 1000.0;
+    }
+
+    @Override
+    public double getP90Micros() {
+        return latency.getValueAtPercentile(90) / 1000.0;
+    }
+
+    @Override
+    public double getP99Micros() {
+        return latency.getValueAtPercentile(99) / 1000.0;
+    }
+
+    @Override
+    public double getP999Micros() {
+        return latency.getValueAtPercentile(99.9) / 1000.0;
+    }
+
+    @Override
+    public double getMaxMicros() {
+        return latency.getMaxNanos() / 1000.0;
+    }
+}
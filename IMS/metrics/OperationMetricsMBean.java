@@ -0,0 +1,26 @@
+package metrics;
+
+// JMX view of one OperationMetrics, registered as ims:type=Operation,name=<operation>
+public interface OperationMetricsMBean {
+    String getName();
+
+    long getCount();
+
+    long getErrorCount();
+
+    long getRowsRead();
+
+    long getRowsWritten();
+
+    double getMeanMicros();
+
+    double getP50Micros();
+
+    double getP90Micros();
+
+    double getP99Micros();
+
+    double getP999Micros();
+
+    double getMaxMicros();
+}
@@ -0,0 +1,404 @@
+package model;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+// Column-oriented in-memory copy of the catalog.
+// Instead of one InventoryItem object (plus a String and its array) per SKU, items live in
+// parallel primitive arrays: names as UTF-8 bytes in one shared pool, quantities as int[] and
+// prices as long[] in minor units (paise), so totals are exact integer arithmetic.
+// A million SKUs cost roughly 30-40 bytes each instead of ~120.
+//
+// Items are addressed by slot (0 .. size()-1). forEach() and cursor() hand out a single
+// reusable flyweight, so listing and valuation loops allocate nothing per item.
+// Not thread-safe: fill it once, or guard it externally.
+public class CompactItemStore {
+
+    public static final int MINOR_UNITS = 100;
+
+    private static final int EMPTY = -1;
+
+    private int size;
+    private int[] quantities;
+    private long[] prices;
+    private int[] nameOffsets;
+    private int[] nameLengths;
+    private int[] nameHashes;
+
+    private byte[] namePool;
+    private int namePoolUsed;
+    private int deadNameBytes; // left behind by removed or renamed slots
+
+    // Open-addressing hash table: name hash -> slot, for lookups by name
+    private int[] table;
+
+    public CompactItemStore() {
+        this(1024);
+    }
+
+    public CompactItemStore(int expectedItems) {
+        int capacity = Math.max(16, expectedItems);
+        quantities = new int[capacity];
+        prices = new long[capacity];
+        nameOffsets = new int[capacity];
+        nameLengths = new int[capacity];
+        nameHashes = new int[capacity];
+        namePool = new byte[capacity * 16];
+        table = newTable(capacity);
+    }
+
+    // --- Fixed-point prices ---
+
+    public static long toMinorUnits(double price) {
+        return Math.round(price * MINOR_UNITS);
+    }
+
+    public static double fromMinorUnits(long minorUnits) {
+        return (double) minorUnits / MINOR_UNITS;
+    }
+
+    // --- Writes ---
+
+    // Adds the item, or overwrites quantity and price if the name is already present; returns its slot
+    public int put(String name, int quantity, long priceMinorUnits) {
+        byte[] encoded = name.getBytes(StandardCharsets.UTF_8);
+        int hash = hash(encoded, 0, encoded.length);
+        int slot = find(encoded, hash);
+        if (slot == EMPTY) {
+            slot = append(encoded, hash);
+        }
+        quantities[slot] = quantity;
+        prices[slot] = priceMinorUnits;
+        return slot;
+    }
+
+    public int put(InventoryItem item) {
+        return put(item.getName(), item.getQuantity(), toMinorUnits(item.getPrice()));
+    }
+
+    public void setQuantityAt(int slot, int quantity) {
+        checkSlot(slot);
+        quantities[slot] = quantity;
+    }
+
+    public void setPriceAt(int slot, long priceMinorUnits) {
+        checkSlot(slot);
+        prices[slot] = priceMinorUnits;
+    }
+
+    // Removes the item by moving the last slot into its place. Slot numbers of
+    // the moved item change, so do not hold on to slots across removals.
+    public boolean remove(String name) {
+        byte[] encoded = name.getBytes(StandardCharsets.UTF_8);
+        int position = tablePosition(encoded, hash(encoded, 0, encoded.length));
+        if (position == EMPTY) {
+            return false;
+        }
+        int slot = table[position];
+        deleteFromTable(position);
+        deadNameBytes += nameLengths[slot];
+        int last = size - 1;
+        if (slot != last) {
+            table[tablePositionOfSlot(last)] = slot;
+            quantities[slot] = quantities[last];
+            prices[slot] = prices[last];
+            nameOffsets[slot] = nameOffsets[last];
+            nameLengths[slot] = nameLengths[last];
+            nameHashes[slot] = nameHashes[last];
+        }
+        size--;
+        if (deadNameBytes > namePoolUsed / 2) {
+            compactNames();
+        }
+        return true;
+    }
+
+    public void clear() {
+        size = 0;
+        namePoolUsed = 0;
+        deadNameBytes = 0;
+        Arrays.fill(table, EMPTY);
+    }
+
+    // --- Reads ---
+
+    public int size() {
+        return size;
+    }
+
+    // Slot of the item, or -1 if it is not in the store
+    public int indexOf(String name) {
+        byte[] encoded = name.getBytes(StandardCharsets.UTF_8);
+        return find(encoded, hash(encoded, 0, encoded.length));
+    }
+
+    public String nameAt(int slot) {
+        checkSlot(slot);
+        return new String(namePool, nameOffsets[slot], nameLengths[slot], StandardCharsets.UTF_8);
+    }
+
+    public int quantityAt(int slot) {
+        checkSlot(slot);
+        return quantities[slot];
+    }
+
+    public long priceMinorUnitsAt(int slot) {
+        checkSlot(slot);
+        return prices[slot];
+    }
+
+    // quantity x price of one slot, in minor units
+    public long valueMinorUnitsAt(int slot) {
+        checkSlot(slot);
+        return Math.multiplyExact((long) quantities[slot], prices[slot]);
+    }
+
+    // Exact stock valuation in minor units: a tight loop over two primitive arrays
+    public long totalValueMinorUnits() {
+        long total = 0;
+        for (int i = 0; i < size; i++) {
+            total = Math.addExact(total, (long) quantities[i] * prices[i]);
+        }
+        return total;
+    }
+
+    public long totalQuantity() {
+        long total = 0;
+        for (int i = 0; i < size; i++) {
+            total += quantities[i];
+        }
+        return total;
+    }
+
+    // Calls 'action' for every item with the same flyweight, repositioned each time.
+    // The item is only valid inside the callback; copy it with toItem() to keep it.
+    public void forEach(Consumer<? super InventoryItem> action) {
+        Cursor cursor = new Cursor();
+        for (int i = 0; i < size; i++) {
+            cursor.slot = i;
+            action.accept(cursor);
+        }
+    }
+
+    // A movable flyweight; position it with moveTo(slot)
+    public Cursor cursor() {
+        return new Cursor();
+    }
+
+    // Approximate heap footprint of the arrays, for comparing with an object-per-item catalog
+    public long estimatedBytes() {
+        long perSlot = Integer.BYTES * 4L + Long.BYTES;
+        return quantities.length * perSlot + namePool.length + table.length * (long) Integer.BYTES;
+    }
+
+    // --- Flyweight view ---
+
+    // InventoryItem backed by one slot of the store. Reading it allocates nothing except
+    // getName(), which decodes a String; appendName() avoids that for display code.
+    // setQuantity() writes through to the store.
+    public final class Cursor extends InventoryItem {
+        private int slot = EMPTY;
+
+        private Cursor() {
+            super(null, 0, 0.0);
+        }
+
+        public Cursor moveTo(int newSlot) {
+            checkSlot(newSlot);
+            slot = newSlot;
+            return this;
+        }
+
+        public int getSlot() {
+            return slot;
+        }
+
+        @Override
+        public String getName() {
+            return nameAt(slot);
+        }
+
+        // Decodes the name into 'out' without creating a String
+        public StringBuilder appendName(StringBuilder out) {
+            int offset = nameOffsets[slot];
+            int end = offset + nameLengths[slot];
+            for (int i = offset; i < end; i++) {
+                byte b = namePool[i];
+                if (b < 0) {
+                    // Non-ASCII name: fall back to the JDK decoder
+                    return out.append(nameAt(slot));
+                }
+                out.append((char) b);
+            }
+            return out;
+        }
+
+        @Override
+        public int getQuantity() {
+            return quantities[slot];
+        }
+
+        @Override
+        public void setQuantity(int quantity) {
+            quantities[slot] = quantity;
+        }
+
+        @Override
+        public double getPrice() {
+            return fromMinorUnits(prices[slot]);
+        }
+
+        public long getPriceMinorUnits() {
+            return prices[slot];
+        }
+
+        public long getValueMinorUnits() {
+            return (long) quantities[slot] * prices[slot];
+        }
+
+        // Detached copy that stays valid after the cursor moves
+        public InventoryItem toItem() {
+            return new InventoryItem(getName(), getQuantity(), getPrice());
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%-20s | Qty: %-5d | Price: ₹%.2f", getName(), getQuantity(), getPrice());
+        }
+    }
+
+    // --- Internals ---
+
+    private void checkSlot(int slot) {
+        if (slot < 0 || slot >= size) {
+            throw new IndexOutOfBoundsException("Slot " + slot + " outside 0.." + (size - 1));
+        }
+    }
+
+    private int append(byte[] encoded, int hash) {
+        if (size == quantities.length) {
+            growSlots();
+        }
+        if (namePoolUsed + encoded.length > namePool.length) {
+            if (deadNameBytes > namePoolUsed / 4) {
+                compactNames();
+            }
+            if (namePoolUsed + encoded.length > namePool.length) {
+                namePool = Arrays.copyOf(namePool, Math.max(namePool.length * 2, namePoolUsed + encoded.length));
+            }
+        }
+        int slot = size++;
+        System.arraycopy(encoded, 0, namePool, namePoolUsed, encoded.length);
+        nameOffsets[slot] = namePoolUsed;
+        nameLengths[slot] = encoded.length;
+        nameHashes[slot] = hash;
+        namePoolUsed += encoded.length;
+
+        if (size * 2 > table.length) {
+            rebuildTable(table.length * 2);
+        } else {
+            insertIntoTable(slot);
+        }
+        return slot;
+    }
+
+    private void growSlots() {
+        int capacity = quantities.length + (quantities.length >> 1);
+        quantities = Arrays.copyOf(quantities, capacity);
+        prices = Arrays.copyOf(prices, capacity);
+        nameOffsets = Arrays.copyOf(nameOffsets, capacity);
+        nameLengths = Arrays.copyOf(nameLengths, capacity);
+        nameHashes = Arrays.copyOf(nameHashes, capacity);
+    }
+
+    // Rewrites the name pool without the bytes of removed items
+    private void compactNames() {
+        byte[] compacted = new byte[Math.max(16, namePoolUsed - deadNameBytes) * 2];
+        int used = 0;
+        for (int i = 0; i < size; i++) {
+            System.arraycopy(namePool, nameOffsets[i], compacted, used, nameLengths[i]);
+            nameOffsets[i] = used;
+            used += nameLengths[i];
+        }
+        namePool = compacted;
+        namePoolUsed = used;
+        deadNameBytes = 0;
+    }
+
+    private int find(byte[] encoded, int hash) {
+        int position = tablePosition(encoded, hash);
+        return position == EMPTY ? EMPTY : table[position];
+    }
+
+    // Index in 'table' holding the slot with this name, or -1
+    private int tablePosition(byte[] encoded, int hash) {
+        int mask = table.length - 1;
+        for (int i = hash & mask; ; i = (i + 1) & mask) {
+            int slot = table[i];
+            if (slot == EMPTY) {
+                return EMPTY;
+            }
+            if (nameHashes[slot] == hash && nameLengths[slot] == encoded.length
+                    && Arrays.equals(namePool, nameOffsets[slot], nameOffsets[slot] + encoded.length,
+                                     encoded, 0, encoded.length)) {
+                return i;
+            }
+        }
+    }
+
+    private int tablePositionOfSlot(int slot) {
+        int mask = table.length - 1;
+        int i = nameHashes[slot] & mask;
+        while (table[i] != slot) {
+            i = (i + 1) & mask;
+        }
+        return i;
+    }
+
+    // Linear-probing delete: shift later entries of the same cluster back into the hole
+    private void deleteFromTable(int position) {
+        int mask = table.length - 1;
+        int hole = position;
+        for (int i = (position + 1) & mask; table[i] != EMPTY; i = (i + 1) & mask) {
+            int home = nameHashes[table[i]] & mask;
+            if (((i - home) & mask) >= ((i - hole) & mask)) {
+                table[hole] = table[i];
+                hole = i;
+            }
+        }
+        table[hole] = EMPTY;
+    }
+
+    private void insertIntoTable(int slot) {
+        int mask = table.length - 1;
+        int i = nameHashes[slot] & mask;
+        while (table[i] != EMPTY) {
+            i = (i + 1) & mask;
+        }
+        table[i] = slot;
+    }
+
+    private void rebuildTable(int length) {
+        table = newTable(length);
+        for (int slot = 0; slot < size; slot++) {
+            insertIntoTable(slot);
+        }
+    }
+
+    private static int[] newTable(int expectedItems) {
+        int length = Integer.highestOneBit(Math.max(16, expectedItems - 1)) << 1;
+        int[] t = new int[length];
+        Arrays.fill(t, EMPTY);
+        return t;
+    }
+
+    // FNV-1a over the UTF-8 bytes, spread so the low bits used by the table are well mixed
+    private static int hash(byte[] bytes, int from, int to) {
+        int h = 0x811C9DC5;
+        for (int i = from; i < to; i++) {
+            h = (h ^ bytes[i]) * 0x01000193;
+        }
+        return h ^ (h >>> 16);
+    }
+}
@@ -5,11 +5,26 @@ public class InventoryItem {
     private String name;
     private int quantity;
     private double price;
+    // Barcode/SKU code, unique across the inventory; null if the item has none or it was
+    // not loaded (only barcode lookups read it)
+    private String barcode;
+    // Row version (see InventoryManager.compareAndSet); 0 if it was not loaded
+    private long version;
 
     public InventoryItem(String name, int quantity, double price) {
+        this(name, quantity, price, null);
+    }
+
+    public InventoryItem(String name, int quantity, double price, String barcode) {
+        this(name, quantity, price, barcode, 0L);
+    }
+
+    public InventoryItem(String name, int quantity, double price, String barcode, long version) {
         this.name = name;
         this.quantity = quantity;
         this.price = price;
+        this.barcode = barcode;
+        this.version = version;
     }
 
     // --- Getters and Setters (Essential for OOP encapsulation) ---
@@ -29,6 +44,14 @@ public class InventoryItem {
         return price;
     }
 
+    public String getBarcode() {
+        return barcode;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
     // Override toString() for easy display in the JTextArea
     @Override
     public String toString() {
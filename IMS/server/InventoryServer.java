@@ -0,0 +1,723 @@
+package server;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import data.DatabaseConnection;
+import metrics.InventoryMetrics;
+import metrics.OperationMetrics;
+import model.InventoryItem;
+import service.CachedInventoryManager;
+import service.ChangeFeed;
+import service.Checkout;
+import service.InventoryManager;
+import service.ReorderAlerts;
+import service.ShardedInventoryManager;
+import service.StockResult;
+import service.WriteQueue;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Function;
+
+// Headless HTTP/JSON front end, so handheld scanners and other tills can share the inventory.
+// Runs on the JDK's built-in HTTP server with one virtual thread per request: a request waiting
+// on SQLite parks its virtual thread instead of holding a platform thread. Connections stay open
+// between requests (HTTP/1.1 keep-alive; every response has a Content-Length). Stock additions
+// and sales go through group-commit write queues, so concurrent writers share transactions.
+//
+// Endpoints (names in paths are URL-encoded, so "BLR01/Laptop" is "BLR01%2FLaptop"):
+//   GET    /items?after=<name>&limit=<n>       page of items in name order, plus the "next" cursor
+//   GET    /items/<name>                       one item (404 if unknown)
+//   GET    /items/<name>/price                 its price
+//   PUT    /items/<name>       {"quantity":q,"price":p}   adds stock, creating the item if new
+//   POST   /items/<name>/sell  {"quantity":q,"price":p}   sells; 409 if there is not enough stock
+//   POST   /items/<name>/compare-and-set  {"version":v,"quantity":q,"price":p}  sets quantity and
+//          price only if the item is still at version v (from a GET); 409 with the current item if not
+//   DELETE /items/<name>
+//   PUT    /items/<name>/barcode {"barcode":"8901234567890"}  assigns a code (null removes it);
+//          409 if another item already has it
+//   PUT    /items/<name>/reorder-point {"reorderPoint":n}  the item's own reorder point (null = default)
+//   GET    /barcodes/<code>                    the item with that code (exact, 404 if none)
+//   GET    /search?q=<text>&limit=<n>
+//   POST   /checkout  {"lines":[{"name":...,"quantity":q}, ...]}   sells the whole basket in one
+//          transaction at current prices, or nothing (409, with the reason on each failed line)
+//   POST   /batch  [{"op":"save|sell|delete|get|price","name":...,"quantity":...,"price":...}, ...]
+//          ({"op":"scan","barcode":...} looks up a code)
+//          runs every operation and answers with one result per operation, in order; the writes
+//          of a batch are queued together and usually commit in a single transaction
+//   GET    /changes?after=<seq>&limit=<n>&wait=<ms>   changes after a sequence number, oldest first,
+//          and the "next" cursor; without 'after', just the current cursor. With 'wait' an empty
+//          answer is held until a change arrives (long polling). "missed":true = reload, then
+//          continue from "next". Inserts carry "created":true. Not available with --shards > 1.
+//   GET    /reorder?limit=<n>                  items at or below their reorder point, most short first
+//   GET    /metrics                            InventoryMetrics as JSON
+//
+// Usage (from the IMS directory, with the SQLite JDBC driver on the classpath):
+//   java -cp .:sqlite-jdbc.jar server.InventoryServer [--port 8080] [--shards 1] [--write-queue true]
+// bench.ServerLoadTest drives a running server and reports throughput and latency.
+public class InventoryServer implements AutoCloseable {
+
+    private static final int DEFAULT_PAGE_SIZE = 100;
+    private static final int MAX_PAGE_SIZE = 1000;
+    private static final int MAX_BATCH_SIZE = 1000;
+    private static final long MAX_WAIT_MILLIS = 30_000;
+
+    private static final OperationMetrics HTTP = InventoryMetrics.operation("http.request");
+
+    static {
+        // The JDK server writes headers and body separately; with Nagle's algorithm on, the body
+        // then waits for the client's delayed ACK (~40 ms) on every keep-alive request.
+        // Read once when the JDK's server implementation loads, so set it before any server exists.
+        if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+        }
+    }
+
+    private final InventoryManager manager;
+    private final Function<String, WriteQueue> writeQueues;
+    private final HttpServer server;
+    private volatile ChangeFeed changeFeed;
+    private volatile ReorderAlerts reorderAlerts;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    // Outcome of one API call: HTTP status and JSON body
+    private static final class Reply {
+        final int status;
+        final String json;
+
+        Reply(int status, String json) {
+            this.status = status;
+            this.json = json;
+        }
+
+        static Reply error(int status, String message) {
+            return new Reply(status, Json.quote(new StringBuilder("{\"error\":"), message).append('}').toString());
+        }
+    }
+
+    // 'writeQueues' may be null, in which case writes go straight to the manager
+    public InventoryServer(InventoryManager manager, Function<String, WriteQueue> writeQueues,
+                           InetSocketAddress address) throws IOException {
+        this.manager = manager;
+        this.writeQueues = writeQueues;
+        this.server = HttpServer.create(address, 1024);
+        this.server.setExecutor(executor);
+        this.server.createContext("/", this::handle);
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    // Serves GET /changes from this feed (null = no feed)
+    public void useChangeFeed(ChangeFeed feed) {
+        this.changeFeed = feed;
+    }
+
+    // Serves GET /reorder and reorder points from these alerts (null = none)
+    public void useReorderAlerts(ReorderAlerts alerts) {
+        this.reorderAlerts = alerts;
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    // Stops accepting requests and waits up to a second for running ones
+    @Override
+    public void close() {
+        server.stop(1);
+        executor.close();
+    }
+
+    // ------------------------------------------------------------------
+    // Dispatch
+    // ------------------------------------------------------------------
+
+    private void handle(HttpExchange exchange) throws IOException {
+        long start = HTTP.start();
+        Reply reply;
+        try (InputStream in = exchange.getRequestBody()) {
+            // Read the whole body, or the connection cannot be reused for the next request
+            String body = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+            reply = route(exchange.getRequestMethod(), segments(exchange.getRequestURI().getRawPath()),
+                    query(exchange.getRequestURI().getRawQuery()), body);
+        } catch (IllegalArgumentException | ClassCastException e) {
+            reply = Reply.error(400, e.getMessage() != null ? e.getMessage() : "Bad request");
+        } catch (SQLException e) {
+            reply = Reply.error(500, "SQL Error: " + e.getMessage());
+        }
+
+        byte[] bytes = reply.json.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(reply.status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+        if (reply.status >= 500) {
+            HTTP.failure(start);
+        } else {
+            HTTP.success(start, 0, 0);
+        }
+    }
+
+    private Reply route(String method, List<String> path, Map<String, String> query, String body)
+            throws SQLException {
+        String resource = path.isEmpty() ? "" : path.get(0);
+
+        if (resource.equals("items") && path.size() == 1) {
+            return method.equals("GET") ? listItems(query) : notAllowed();
+        }
+        if (resource.equals("items") && path.size() == 2) {
+            String name = path.get(1);
+            switch (method) {
+                case "GET":
+                    return getItem(name);
+                case "PUT":
+                    return join(save(name, jsonObject(body)));
+                case "DELETE":
+                    return delete(name);
+                default:
+                    return notAllowed();
+            }
+        }
+        if (resource.equals("items") && path.size() == 3) {
+            String name = path.get(1);
+            if (path.get(2).equals("price")) {
+                return method.equals("GET") ? price(name) : notAllowed();
+            }
+            if (path.get(2).equals("sell")) {
+                return method.equals("POST") ? join(sell(name, jsonObject(body))) : notAllowed();
+            }
+            if (path.get(2).equals("compare-and-set")) {
+                return method.equals("POST") ? compareAndSet(name, jsonObject(body)) : notAllowed();
+            }
+            if (path.get(2).equals("barcode")) {
+                return method.equals("PUT") ? assignBarcode(name, jsonObject(body)) : notAllowed();
+            }
+            if (path.get(2).equals("reorder-point")) {
+                return method.equals("PUT") ? setReorderPoint(name, jsonObject(body)) : notAllowed();
+            }
+        }
+        if (resource.equals("barcodes") && path.size() == 2) {
+            return method.equals("GET") ? scan(path.get(1)) : notAllowed();
+        }
+        if (resource.equals("search") && path.size() == 1) {
+            return method.equals("GET") ? search(query) : notAllowed();
+        }
+        if (resource.equals("checkout") && path.size() == 1) {
+            return method.equals("POST") ? checkout(jsonObject(body)) : notAllowed();
+        }
+        if (resource.equals("batch") && path.size() == 1) {
+            return method.equals("POST") ? batch(body) : notAllowed();
+        }
+        if (resource.equals("changes") && path.size() == 1) {
+            return method.equals("GET") ? changes(query) : notAllowed();
+        }
+        if (resource.equals("reorder") && path.size() == 1) {
+            return method.equals("GET") ? reorder(query) : notAllowed();
+        }
+        if (resource.equals("metrics") && path.size() == 1) {
+            return method.equals("GET") ? new Reply(200, InventoryMetrics.toJson()) : notAllowed();
+        }
+        return Reply.error(404, "No such endpoint");
+    }
+
+    private static Reply notAllowed() {
+        return Reply.error(405, "Method not allowed");
+    }
+
+    // ------------------------------------------------------------------
+    // Operations
+    // ------------------------------------------------------------------
+
+    private Reply listItems(Map<String, String> query) throws SQLException {
+        int limit = pageSize(query);
+        List<InventoryItem> items = manager.getItemsPage(query.get("after"), limit);
+        StringBuilder sb = new StringBuilder("{\"items\":");
+        Json.items(sb, items).append(",\"next\":");
+        Json.quote(sb, items.size() == limit ? items.get(items.size() - 1).getName() : null);
+        return new Reply(200, sb.append('}').toString());
+    }
+
+    private Reply getItem(String name) throws SQLException {
+        InventoryItem item = manager.getItem(name);
+        return item == null
+                ? Reply.error(404, "Item '" + name + "' not found")
+                : new Reply(200, Json.item(new StringBuilder(), item).toString());
+    }
+
+    private Reply price(String name) throws SQLException {
+        // getItemPrice answers 0.0 for unknown items, so ask for the item itself
+        InventoryItem item = manager.getItem(name);
+        if (item == null) {
+            return Reply.error(404, "Item '" + name + "' not found");
+        }
+        StringBuilder sb = new StringBuilder("{\"name\":");
+        Json.quote(sb, name).append(",\"price\":").append(Json.price(item.getPrice())).append('}');
+        return new Reply(200, sb.toString());
+    }
+
+    private Reply delete(String name) throws SQLException {
+        return manager.removeItem(name)
+                ? new Reply(200, Json.quote(new StringBuilder("{\"deleted\":"), name).append('}').toString())
+                : Reply.error(404, "Item '" + name + "' not found");
+    }
+
+    // Optimistic update for clients that edit what they read: never overwrites a change made since
+    private Reply compareAndSet(String name, Map<String, Object> args) throws SQLException {
+        long version = positiveLong(args, "version");
+        Object quantity = args.get("quantity");
+        if (!(quantity instanceof Double d) || d < 0 || d != Math.rint(d) || d > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("'quantity' must be a whole number >= 0");
+        }
+        double price = positivePrice(args);
+
+        // The stored row is the expected one when the version matches (and gives the event its delta)
+        InventoryItem current = manager.getItem(name);
+        if (current != null && current.getVersion() == version) {
+            InventoryItem stored = manager.compareAndSet(current, ((Double) quantity).intValue(), price);
+            if (stored != null) {
+                return new Reply(200, Json.item(new StringBuilder(), stored).toString());
+            }
+            current = manager.getItem(name);
+        }
+        if (current == null) {
+            return Reply.error(404, "Item '" + name + "' not found");
+        }
+        StringBuilder sb = new StringBuilder("{\"error\":");
+        Json.quote(sb, "Item '" + name + "' was changed (now version " + current.getVersion() + ")");
+        return new Reply(409, Json.item(sb.append(",\"current\":"), current).append('}').toString());
+    }
+
+    private Reply scan(String barcode) throws SQLException {
+        InventoryItem item = manager.findByBarcode(barcode);
+        return item == null
+                ? Reply.error(404, "No item with barcode '" + barcode + "'")
+                : new Reply(200, Json.item(new StringBuilder(), item).toString());
+    }
+
+    private Reply assignBarcode(String name, Map<String, Object> args) throws SQLException {
+        Object value = args.get("barcode");
+        if (!args.containsKey("barcode") || (value != null && (!(value instanceof String s) || s.isEmpty()))) {
+            throw new IllegalArgumentException("'barcode' must be a non-empty string or null");
+        }
+        String barcode = (String) value;
+        if (barcode != null) {
+            InventoryItem owner = manager.findByBarcode(barcode);
+            if (owner != null && !owner.getName().equals(name)) {
+                return Reply.error(409, "Barcode '" + barcode + "' already belongs to '" + owner.getName() + "'");
+            }
+        }
+        if (!manager.assignBarcode(name, barcode)) {
+            return Reply.error(404, "Item '" + name + "' not found");
+        }
+        StringBuilder sb = new StringBuilder("{\"name\":");
+        Json.quote(sb, name).append(",\"barcode\":");
+        return new Reply(200, Json.quote(sb, barcode).append('}').toString());
+    }
+
+    private Reply setReorderPoint(String name, Map<String, Object> args) throws SQLException {
+        ReorderAlerts alerts = reorderAlerts;
+        if (alerts == null) {
+            return Reply.error(404, "This server has no reorder alerts");
+        }
+        Object value = args.get("reorderPoint");
+        if (!args.containsKey("reorderPoint") || (value != null && (!(value instanceof Double d)
+                || d < 0 || d != Math.rint(d) || d > Integer.MAX_VALUE))) {
+            throw new IllegalArgumentException("'reorderPoint' must be a whole number >= 0 or null");
+        }
+        int point = value == null ? -1 : ((Double) value).intValue();
+        if (!alerts.setReorderPoint(name, point)) {
+            return Reply.error(404, "Item '" + name + "' not found");
+        }
+        StringBuilder sb = new StringBuilder("{\"name\":");
+        Json.quote(sb, name).append(",\"reorderPoint\":")
+                .append(point < 0 ? alerts.getDefaultReorderPoint() : point)
+                .append(",\"default\":").append(point < 0)
+                .append(",\"needsReorder\":").append(alerts.needsReorder(name));
+        return new Reply(200, sb.append('}').toString());
+    }
+
+    private Reply reorder(Map<String, String> query) {
+        ReorderAlerts alerts = reorderAlerts;
+        if (alerts == null) {
+            return Reply.error(404, "This server has no reorder alerts");
+        }
+        List<ReorderAlerts.Alert> open = alerts.openAlerts(pageSize(query));
+        StringBuilder sb = new StringBuilder("{\"count\":").append(alerts.openCount())
+                .append(",\"defaultReorderPoint\":").append(alerts.getDefaultReorderPoint())
+                .append(",\"items\":[");
+        for (int i = 0; i < open.size(); i++) {
+            ReorderAlerts.Alert alert = open.get(i);
+            if (i > 0) {
+                sb.append(',');
+            }
+            Json.quote(sb.append("{\"name\":"), alert.getName())
+                    .append(",\"quantity\":").append(alert.getQuantity())
+                    .append(",\"reorderPoint\":").append(alert.getReorderPoint())
+                    .append(",\"shortfall\":").append(alert.getShortfall())
+                    .append(",\"since\":").append(alert.getTimestamp()).append('}');
+        }
+        return new Reply(200, sb.append("]}").toString());
+    }
+
+    private Reply search(Map<String, String> query) throws SQLException {
+        String text = query.getOrDefault("q", "");
+        List<InventoryItem> items = manager.searchItems(text, pageSize(query));
+        return new Reply(200, Json.items(new StringBuilder("{\"items\":"), items).append('}').toString());
+    }
+
+    private Reply changes(Map<String, String> query) throws SQLException {
+        ChangeFeed feed = changeFeed;
+        if (feed == null) {
+            return Reply.error(404, "This server has no change feed");
+        }
+        String after = query.get("after");
+        if (after == null) {
+            return new Reply(200, "{\"changes\":[],\"next\":" + feed.getLatestSequence() + "}");
+        }
+        long afterSequence = Long.parseLong(after);
+        int limit = pageSize(query);
+        long wait = Math.min(MAX_WAIT_MILLIS, Math.max(0L, Long.parseLong(query.getOrDefault("wait", "0"))));
+
+        List<ChangeFeed.Change> changes = feed.read(afterSequence, limit);
+        if (changes.isEmpty() && wait > 0) {
+            try {
+                feed.awaitChangesAfter(afterSequence, wait);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new SQLException("Interrupted while waiting for changes", e);
+            }
+            changes = feed.read(afterSequence, limit);
+        }
+        if (!changes.isEmpty() && changes.get(0).getSequence() > afterSequence + 1) {
+            return new Reply(200, "{\"missed\":true,\"changes\":[],\"next\":" + feed.getLatestSequence() + "}");
+        }
+
+        StringBuilder sb = new StringBuilder("{\"changes\":[");
+        for (int i = 0; i < changes.size(); i++) {
+            ChangeFeed.Change change = changes.get(i);
+            if (i > 0) {
+                sb.append(',');
+            }
+            sb.append("{\"seq\":").append(change.getSequence())
+                    .append(",\"kind\":\"").append(change.getKind()).append('"');
+            if (change.isCreated()) {
+                sb.append(",\"created\":true");
+            }
+            Json.quote(sb.append(",\"name\":"), change.getName())
+                    .append(",\"quantity\":").append(change.getQuantity())
+                    .append(",\"price\":").append(Json.price(change.getPrice()))
+                    .append(",\"delta\":").append(change.getQuantityDelta())
+                    .append(",\"version\":").append(change.getVersion())
+                    .append(",\"time\":").append(change.getTimestamp()).append('}');
+        }
+        long next = changes.isEmpty() ? afterSequence : changes.get(changes.size() - 1).getSequence();
+        return new Reply(200, sb.append("],\"next\":").append(next).append('}').toString());
+    }
+
+    // Writes return futures so that a batch can queue all of its writes before waiting on any
+
+    private CompletableFuture<Reply> save(String name, Map<String, Object> args) throws SQLException {
+        int quantity = positiveInt(args, "quantity");
+        double price = positivePrice(args);
+        CompletableFuture<Integer> newQuantity = writeQueues != null
+                ? writeQueues.apply(name).add(name, quantity, price)
+                : CompletableFuture.completedFuture(manager.addStock(name, quantity, price));
+        return newQuantity.thenApply(q -> new Reply(200,
+                Json.item(new StringBuilder(), new InventoryItem(name, q, price)).toString()));
+    }
+
+    private CompletableFuture<Reply> sell(String name, Map<String, Object> args) throws SQLException {
+        int quantity = positiveInt(args, "quantity");
+        double price = positivePrice(args);
+        CompletableFuture<StockResult> result = writeQueues != null
+                ? writeQueues.apply(name).sell(name, quantity, price)
+                : CompletableFuture.completedFuture(manager.sellStock(name, quantity, price));
+        return result.thenApply(InventoryServer::saleReply);
+    }
+
+    private static Reply saleReply(StockResult result) {
+        int status;
+        switch (result.getStatus()) {
+            case NOT_FOUND:
+                status = 404;
+                break;
+            case INSUFFICIENT_STOCK:
+                status = 409;
+                break;
+            default:
+                status = 200;
+        }
+        return new Reply(status, saleFields(new StringBuilder("{"), result).append('}').toString());
+    }
+
+    private static StringBuilder saleFields(StringBuilder sb, StockResult result) {
+        sb.append("\"result\":\"").append(result.getStatus()).append("\",\"name\":");
+        return Json.quote(sb, result.getName())
+                .append(",\"quantity\":").append(result.getQuantity())
+                .append(",\"price\":").append(Json.price(result.getPrice()));
+    }
+
+    private Reply checkout(Map<String, Object> args) throws SQLException {
+        if (!(args.get("lines") instanceof List<?> entries) || entries.isEmpty()) {
+            throw new IllegalArgumentException("'lines' must be a non-empty array");
+        }
+        if (entries.size() > MAX_BATCH_SIZE) {
+            throw new IllegalArgumentException("At most " + MAX_BATCH_SIZE + " lines per checkout");
+        }
+        List<Checkout.Line> basket = new ArrayList<>(entries.size());
+        for (Object entry : entries) {
+            if (!(entry instanceof Map<?, ?>)) {
+                throw new IllegalArgumentException("Each line must be a JSON object");
+            }
+            @SuppressWarnings("unchecked")
+            Map<String, Object> line = (Map<String, Object>) entry;
+            basket.add(new Checkout.Line(requiredString(line, "name"), positiveInt(line, "quantity")));
+        }
+
+        Checkout.Result result = manager.checkout(basket);
+        StringBuilder sb = new StringBuilder("{\"committed\":").append(result.isCommitted())
+                .append(",\"total\":").append(Json.price(result.getTotal())).append(",\"lines\":[");
+        for (int i = 0; i < result.getResults().size(); i++) {
+            if (i > 0) {
+                sb.append(',');
+            }
+            saleFields(sb.append('{'), result.getResults().get(i))
+                    .append(",\"sold\":").append(result.getLines().get(i).getQuantity()).append('}');
+        }
+        return new Reply(result.isCommitted() ? 200 : 409, sb.append("]}").toString());
+    }
+
+    private Reply batch(String body) {
+        if (!(Json.parse(body) instanceof List<?> ops)) {
+            throw new IllegalArgumentException("Expected a JSON array of operations");
+        }
+        if (ops.size() > MAX_BATCH_SIZE) {
+            throw new IllegalArgumentException("At most " + MAX_BATCH_SIZE + " operations per batch");
+        }
+
+        // Queue everything first: reads run right away, writes wait together for their commit
+        List<CompletableFuture<Reply>> replies = new ArrayList<>(ops.size());
+        for (Object op : ops) {
+            replies.add(batchOperation(op));
+        }
+
+        StringBuilder sb = new StringBuilder("[");
+        for (int i = 0; i < replies.size(); i++) {
+            Reply reply = join(replies.get(i));
+            if (i > 0) {
+                sb.append(',');
+            }
+            sb.append("{\"status\":").append(reply.status).append(",\"body\":").append(reply.json).append('}');
+        }
+        return new Reply(200, sb.append(']').toString());
+    }
+
+    // One entry of a batch; a bad entry fails on its own instead of failing the whole batch
+    private CompletableFuture<Reply> batchOperation(Object op) {
+        try {
+            if (!(op instanceof Map<?, ?>)) {
+                throw new IllegalArgumentException("Each operation must be a JSON object");
+            }
+            @SuppressWarnings("unchecked")
+            Map<String, Object> args = (Map<String, Object>) op;
+            String opName = requiredString(args, "op");
+            if (opName.equals("scan")) {
+                return CompletableFuture.completedFuture(scan(requiredString(args, "barcode")));
+            }
+            String name = requiredString(args, "name");
+            switch (opName) {
+                case "save":
+                    return save(name, args);
+                case "sell":
+                    return sell(name, args);
+                case "delete":
+                    return CompletableFuture.completedFuture(delete(name));
+                case "get":
+                    return CompletableFuture.completedFuture(getItem(name));
+                case "price":
+                    return CompletableFuture.completedFuture(price(name));
+                default:
+                    throw new IllegalArgumentException("Unknown op '" + args.get("op") + "'");
+            }
+        } catch (IllegalArgumentException | ClassCastException e) {
+            return CompletableFuture.completedFuture(Reply.error(400, String.valueOf(e.getMessage())));
+        } catch (SQLException e) {
+            return CompletableFuture.completedFuture(Reply.error(500, "SQL Error: " + e.getMessage()));
+        }
+    }
+
+    // Waits for a queued write; errors become 500 replies
+    private static Reply join(CompletableFuture<Reply> reply) {
+        try {
+            return reply.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause() != null ? e.getCause() : e;
+            return Reply.error(500, "SQL Error: " + cause.getMessage());
+        }
+    }
+
+    // ------------------------------------------------------------------
+    // Request parsing
+    // ------------------------------------------------------------------
+
+    // "/items/BLR01%2FLaptop/sell" -> [items, BLR01/Laptop, sell]
+    private static List<String> segments(String rawPath) {
+        List<String> segments = new ArrayList<>();
+        for (String segment : rawPath.split("/")) {
+            if (!segment.isEmpty()) {
+                // URLDecoder is a form decoder; keep a literal '+' in a path
+                segments.add(URLDecoder.decode(segment.replace("+", "%2B"), StandardCharsets.UTF_8));
+            }
+        }
+        return segments;
+    }
+
+    private static Map<String, String> query(String rawQuery) {
+        Map<String, String> params = new HashMap<>();
+        if (rawQuery == null || rawQuery.isEmpty()) {
+            return params;
+        }
+        for (String pair : rawQuery.split("&")) {
+            int eq = pair.indexOf('=');
+            String key = eq < 0 ? pair : pair.substring(0, eq);
+            String value = eq < 0 ? "" : pair.substring(eq + 1);
+            params.put(URLDecoder.decode(key, StandardCharsets.UTF_8), URLDecoder.decode(value, StandardCharsets.UTF_8));
+        }
+        return params;
+    }
+
+    private static int pageSize(Map<String, String> query) {
+        String limit = query.get("limit");
+        if (limit == null) {
+            return DEFAULT_PAGE_SIZE;
+        }
+        int n = Integer.parseInt(limit);
+        if (n <= 0 || n > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("limit must be between 1 and " + MAX_PAGE_SIZE);
+        }
+        return n;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> jsonObject(String body) {
+        Object value = Json.parse(body);
+        if (!(value instanceof Map<?, ?>)) {
+            throw new IllegalArgumentException("Expected a JSON object");
+        }
+        return (Map<String, Object>) value;
+    }
+
+    private static String requiredString(Map<String, Object> args, String field) {
+        Object value = args.get(field);
+        if (!(value instanceof String s) || s.isEmpty()) {
+            throw new IllegalArgumentException("'" + field + "' must be a non-empty string");
+        }
+        return s;
+    }
+
+    private static int positiveInt(Map<String, Object> args, String field) {
+        Object value = args.get(field);
+        if (!(value instanceof Double d) || d <= 0 || d != Math.rint(d) || d > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("'" + field + "' must be a whole number > 0");
+        }
+        return d.intValue();
+    }
+
+    // Versions are below 2^53, so a JSON number holds them exactly
+    private static long positiveLong(Map<String, Object> args, String field) {
+        Object value = args.get(field);
+        if (!(value instanceof Double d) || d <= 0 || d != Math.rint(d) || d >= 0x1p53) {
+            throw new IllegalArgumentException("'" + field + "' must be a whole number > 0");
+        }
+        return d.longValue();
+    }
+
+    private static double positivePrice(Map<String, Object> args) {
+        Object value = args.get("price");
+        if (!(value instanceof Double d) || !(d > 0) || d.isInfinite()) {
+            throw new IllegalArgumentException("'price' must be a number > 0");
+        }
+        return d;
+    }
+
+    // ------------------------------------------------------------------
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> opts = new HashMap<>();
+        for (int i = 0; i < args.length; i++) {
+            if (!args[i].startsWith("--") || i + 1 >= args.length) {
+                throw new IllegalArgumentException("Expected --option value pairs, got '" + args[i] + "'");
+            }
+            opts.put(args[i].substring(2), args[++i]);
+        }
+        int port = Integer.parseInt(opts.getOrDefault("port", "8080"));
+        int shards = Integer.parseInt(opts.getOrDefault("shards", "1"));
+        boolean useWriteQueue = Boolean.parseBoolean(opts.getOrDefault("write-queue", "true"));
+
+        InventoryManager manager;
+        Function<String, WriteQueue> writeQueues = null;
+        List<AutoCloseable> resources = new ArrayList<>();
+        if (shards > 1) {
+            ShardedInventoryManager sharded = new ShardedInventoryManager("jdbc:sqlite:inventory-shard-%d.db", shards);
+            resources.add(sharded);
+            manager = sharded;
+            if (useWriteQueue) {
+                writeQueues = sharded.writeQueues();
+            }
+        } else {
+            manager = new CachedInventoryManager();
+            if (useWriteQueue) {
+                WriteQueue queue = new WriteQueue(manager);
+                resources.add(queue);
+                writeQueues = name -> queue;
+            }
+        }
+        manager.enableSearchIndex();
+        manager.enableBarcodeIndex();
+
+        InventoryServer server = new InventoryServer(manager, writeQueues, new InetSocketAddress(port));
+        if (shards == 1) {
+            ChangeFeed feed = ChangeFeed.open(manager);
+            resources.add(feed);
+            server.useChangeFeed(feed);
+        }
+        ReorderAlerts alerts = ReorderAlerts.open(manager);
+        resources.add(alerts);
+        server.useReorderAlerts(alerts);
+        resources.add(0, server);
+        CountDownLatch stopped = new CountDownLatch(1);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            for (AutoCloseable resource : resources) {
+                try {
+                    resource.close();
+                } catch (Exception e) {
+                    System.err.println("Error during shutdown: " + e.getMessage());
+                }
+            }
+            DatabaseConnection.shutdown();
+            stopped.countDown();
+        }));
+
+        server.start();
+        System.out.println("Inventory server listening on port " + server.getPort()
+                + (shards > 1 ? " (" + shards + " shards)" : "")
+                + (useWriteQueue ? ", group commit on" : ""));
+        stopped.await();
+    }
+}
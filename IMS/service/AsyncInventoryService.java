@@ -0,0 +1,178 @@
+package service;
+
+import model.InventoryItem;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+import java.util.function.UnaryOperator;
+
+// Non-blocking facade over InventoryManager.
+// Every call runs on a dedicated executor (one virtual thread per task by default) and returns
+// a CompletableFuture, so UI threads never wait on JDBC. A failed call completes the future
+// exceptionally with the original SQLException as its cause.
+public class AsyncInventoryService implements AutoCloseable {
+
+    // Like Callable, but for the checked SQLException thrown by InventoryManager
+    @FunctionalInterface
+    public interface SqlCall<T> {
+        T call() throws SQLException;
+    }
+
+    private final InventoryManager manager;
+    private final ExecutorService executor;
+    private final AtomicReference<CompletableFuture<?>> latestSearch = new AtomicReference<>();
+    private volatile Function<String, WriteQueue> writeQueues;
+
+    public AsyncInventoryService(InventoryManager manager) {
+        this(manager, Executors.newVirtualThreadPerTaskExecutor());
+    }
+
+    public AsyncInventoryService(InventoryManager manager, ExecutorService executor) {
+        this.manager = manager;
+        this.executor = executor;
+    }
+
+    public InventoryManager getManager() {
+        return manager;
+    }
+
+    // Routes stock additions and sales through a group-commit queue (null = direct writes)
+    public void useWriteQueue(WriteQueue writeQueue) {
+        this.writeQueues = writeQueue == null ? null : name -> writeQueue;
+    }
+
+    // Same, with one queue per item name, e.g. ShardedInventoryManager.writeQueues()
+    public void useWriteQueue(Function<String, WriteQueue> writeQueueForName) {
+        this.writeQueues = writeQueueForName;
+    }
+
+    // Runs any InventoryManager call off the caller's thread.
+    // Cancelling the returned future also interrupts the task if it is still running.
+    public <T> CompletableFuture<T> submit(SqlCall<T> call) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        Future<?> task = executor.submit(() -> {
+            if (result.isDone()) {
+                return; // cancelled before it started
+            }
+            try {
+                result.complete(call.call());
+            } catch (Throwable t) {
+                result.completeExceptionally(t);
+            }
+        });
+        result.whenComplete((value, error) -> {
+            if (result.isCancelled()) {
+                task.cancel(true);
+            }
+        });
+        return result;
+    }
+
+    // --- Writes ---
+
+    public CompletableFuture<Void> saveItem(String name, int quantity, double price) {
+        return addStock(name, quantity, price).thenApply(newQty -> null);
+    }
+
+    public CompletableFuture<Integer> addStock(String name, int quantity, double price) {
+        Function<String, WriteQueue> queues = writeQueues;
+        if (queues != null) {
+            return queues.apply(name).add(name, quantity, price);
+        }
+        return submit(() -> manager.addStock(name, quantity, price));
+    }
+
+    public CompletableFuture<StockResult> sellStock(String name, int quantityToSell, double newPrice) {
+        Function<String, WriteQueue> queues = writeQueues;
+        if (queues != null) {
+            return queues.apply(name).sell(name, quantityToSell, newPrice);
+        }
+        return submit(() -> manager.sellStock(name, quantityToSell, newPrice));
+    }
+
+    public CompletableFuture<String> sellItem(String name, int quantityToSell, double newPrice) {
+        return sellStock(name, quantityToSell, newPrice)
+                .thenApply(result -> InventoryManager.describeSale(result, quantityToSell, newPrice));
+    }
+
+    // Baskets run as their own transaction, never through the write queue
+    public CompletableFuture<Checkout.Result> checkout(List<Checkout.Line> basket) {
+        List<Checkout.Line> lines = List.copyOf(basket);
+        return submit(() -> manager.checkout(lines));
+    }
+
+    public CompletableFuture<String> deleteItem(String name) {
+        return submit(() -> manager.deleteItem(name));
+    }
+
+    public CompletableFuture<InventoryItem> compareAndSet(InventoryItem expected, int newQuantity, double newPrice) {
+        return submit(() -> manager.compareAndSet(expected, newQuantity, newPrice));
+    }
+
+    public CompletableFuture<InventoryItem> updateItem(String name, UnaryOperator<InventoryItem> change) {
+        return submit(() -> manager.updateItem(name, change));
+    }
+
+    public CompletableFuture<Boolean> assignBarcode(String name, String barcode) {
+        return submit(() -> manager.assignBarcode(name, barcode));
+    }
+
+    // --- Reads ---
+
+    public CompletableFuture<InventoryItem> getItem(String name) {
+        return submit(() -> manager.getItem(name));
+    }
+
+    public CompletableFuture<InventoryItem> findByBarcode(String barcode) {
+        return submit(() -> manager.findByBarcode(barcode));
+    }
+
+    public CompletableFuture<Long> getVersion(String name) {
+        return submit(() -> manager.getVersion(name));
+    }
+
+    public CompletableFuture<Double> getItemPrice(String name) {
+        return submit(() -> manager.getItemPrice(name));
+    }
+
+    public CompletableFuture<List<InventoryItem>> searchItems(String query) {
+        return submit(() -> manager.searchItems(query));
+    }
+
+    public CompletableFuture<List<InventoryItem>> getItemsPage(String afterName, int pageSize) {
+        return submit(() -> manager.getItemsPage(afterName, pageSize));
+    }
+
+    public CompletableFuture<List<InventoryItem>> getItemsAt(int offset, int pageSize) {
+        return submit(() -> manager.getItemsAt(offset, pageSize));
+    }
+
+    public CompletableFuture<Integer> countItems() {
+        return submit(manager::countItems);
+    }
+
+    // Like searchItems, but starting a new search cancels the previous one still in flight,
+    // so a slow, outdated result can never overwrite a newer one.
+    public CompletableFuture<List<InventoryItem>> searchLatest(String query) {
+        return latest(() -> manager.searchItems(query));
+    }
+
+    public <T> CompletableFuture<T> latest(SqlCall<T> call) {
+        CompletableFuture<T> next = submit(call);
+        CompletableFuture<?> previous = latestSearch.getAndSet(next);
+        if (previous != null) {
+            previous.cancel(true);
+        }
+        return next;
+    }
+
+    @Override
+    public void close() {
+        executor.shutdown();
+    }
+}
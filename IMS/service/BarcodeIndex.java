@@ -0,0 +1,121 @@
+package service;
+
+import model.InventoryItem;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// In-memory barcode -> item name map, so a scan resolves with one hash lookup.
+// Mirrors the unique idx_items_barcode index: assignments are applied after they commit,
+// and DELETED events drop the code of the removed item.
+// Every code is kept with the version of the row it was read from or written to. Another
+// process can move or remove a code without an event reaching us, so a hit is only trusted
+// while the row still has that version (see isCurrent). Changes made here that leave the code
+// alone move the version on: the version right after the recorded one can only be that change.
+public class BarcodeIndex implements ItemChangeListener {
+
+    private static final class Code {
+        final String barcode;
+        final long version;
+
+        Code(String barcode, long version) {
+            this.barcode = barcode;
+            this.version = version;
+        }
+    }
+
+    private final Map<String, String> nameByBarcode = new ConcurrentHashMap<>();
+    private final Map<String, Code> codeByName = new ConcurrentHashMap<>();
+
+    // Bulk load of rows with their barcode and version; codes already set through put() are
+    // newer and are kept
+    public void load(Collection<InventoryItem> rows) {
+        for (InventoryItem row : rows) {
+            if (!codeByName.containsKey(row.getName())) {
+                put(row.getName(), row.getBarcode(), row.getVersion());
+            }
+        }
+    }
+
+    public String nameFor(String barcode) {
+        return nameByBarcode.get(barcode);
+    }
+
+    public String barcodeOf(String name) {
+        Code code = codeByName.get(name);
+        return code != null ? code.barcode : null;
+    }
+
+    public int size() {
+        return nameByBarcode.size();
+    }
+
+    // True if 'name' had 'barcode' at exactly this row version
+    public boolean isCurrent(String name, String barcode, long version) {
+        Code code = codeByName.get(name);
+        return code != null && version > 0 && code.version == version && code.barcode.equals(barcode);
+    }
+
+    // Gives 'name' the code 'barcode' (null = no code) as of row 'version', replacing its
+    // previous one. A code recorded from a newer version of the row is kept.
+    public synchronized void put(String name, String barcode, long version) {
+        Code current = codeByName.get(name);
+        if (current != null && current.version > version) {
+            return;
+        }
+        if (current != null) {
+            codeByName.remove(name);
+            nameByBarcode.remove(current.barcode, name);
+        }
+        if (barcode != null) {
+            codeByName.put(name, new Code(barcode, version));
+            String owner = nameByBarcode.put(barcode, name);
+            if (owner != null && !owner.equals(name)) {
+                // The code moved to another item (e.g. reassigned by another process)
+                Code previous = codeByName.get(owner);
+                if (previous != null && previous.barcode.equals(barcode)) {
+                    codeByName.remove(owner);
+                }
+            }
+        }
+    }
+
+    public synchronized void remove(String name) {
+        Code current = codeByName.remove(name);
+        if (current != null) {
+            nameByBarcode.remove(current.barcode, name);
+        }
+    }
+
+    // Drops a code that the database no longer has
+    public synchronized void removeBarcode(String barcode) {
+        String name = nameByBarcode.remove(barcode);
+        if (name != null) {
+            Code current = codeByName.get(name);
+            if (current != null && current.barcode.equals(barcode)) {
+                codeByName.remove(name);
+            }
+        }
+    }
+
+    @Override
+    public void itemChanged(ItemChangeEvent event) {
+        String name = event.getName();
+        if (event.getKind() == ItemChangeEvent.Kind.DELETED) {
+            remove(name);
+            return;
+        }
+        InventoryItem item = event.getItem();
+        if (item == null || item.getVersion() <= 0) {
+            return;
+        }
+        synchronized (this) {
+            Code current = codeByName.get(name);
+            if (item.getBarcode() != null) {
+                put(name, item.getBarcode(), item.getVersion());
+            } else if (current != null && item.getVersion() == current.version + 1) {
+                codeByName.put(name, new Code(current.barcode, item.getVersion()));
+            }
+        }
+    }
+}
@@ -0,0 +1,351 @@
+package service;
+
+import model.InventoryItem;
+import data.DatabaseConnection;
+import metrics.InventoryMetrics;
+import metrics.OperationMetrics;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.stream.Stream;
+
+// Loads many items in one go using JDBC batches inside large transactions.
+// Rows are added with the same semantics as InventoryManager.saveItem: the quantity is added
+// to any existing stock and the price is replaced.
+public class BulkImporter {
+
+    public static final int DEFAULT_BATCH_SIZE = 5_000;
+    private static final int MAX_REPORTED_ERRORS = 100;
+
+    private static final String UPSERT_SQL =
+            "INSERT INTO items (name, quantity, price, version) VALUES (?, ?, ?, " + DatabaseConnection.NEW_ROW_VERSION + ") " +
+            "ON CONFLICT(name) DO UPDATE SET quantity = quantity + excluded.quantity, price = excluded.price, " +
+            "version = version + 1";
+    private static final String UPDATE_SQL =
+            "UPDATE items SET quantity = quantity + ?, price = ?, version = version + 1 WHERE name = ?";
+    // One sample per committed batch; rows written = rows in the batch
+    private static final OperationMetrics IMPORT = InventoryMetrics.operation("importItems.batch");
+
+    // Called after every committed batch
+    public interface ProgressListener {
+        void progress(long rowsImported, double rowsPerSecond);
+    }
+
+    private final InventoryManager manager;
+    private final int batchSize;
+    private ProgressListener progressListener;
+
+    public BulkImporter(InventoryManager manager) {
+        this(manager, DEFAULT_BATCH_SIZE);
+    }
+
+    public BulkImporter(InventoryManager manager, int batchSize) {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("Batch size must be > 0");
+        }
+        this.manager = manager;
+        this.batchSize = batchSize;
+    }
+
+    public BulkImporter setProgressListener(ProgressListener progressListener) {
+        this.progressListener = progressListener;
+        return this;
+    }
+
+    public Result importItems(List<InventoryItem> items) throws SQLException {
+        return importItems(items.iterator(), new ArrayList<>(), 0);
+    }
+
+    public Result importItems(Stream<InventoryItem> items) throws SQLException {
+        return importItems(items.iterator(), new ArrayList<>(), 0);
+    }
+
+    // CSV columns: name,quantity,price. A header line is skipped; malformed lines are
+    // reported in the result and do not stop the import.
+    public Result importCsv(Path file) throws SQLException, IOException {
+        List<String> errors = new ArrayList<>();
+        long[] rejected = new long[1];
+
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            Iterator<InventoryItem> rows = csvRows(reader, errors, rejected);
+            try {
+                Result result = importItems(rows, errors, 0);
+                return new Result(result.rowsImported, rejected[0], result.elapsedNanos, errors);
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+        }
+    }
+
+    // Parses CSV lines lazily; bad lines go to 'errors' and are counted in rejected[0]
+    static Iterator<InventoryItem> csvRows(BufferedReader reader, List<String> errors, long[] rejected) {
+        return new CsvItemIterator(reader, errors, rejected);
+    }
+
+    private Result importItems(Iterator<InventoryItem> rows, List<String> errors, long rejected) throws SQLException {
+        long start = System.nanoTime();
+        long imported = 0;
+        // Listeners (cache, search index, table) need the resulting rows and whether each one is
+        // new. Rows are then batched as an UPDATE first: a row it did not find is new and goes
+        // into a second batch of inserts. The batch's rows are read back before the commit.
+        boolean notify = manager.hasChangeListeners();
+        List<InventoryItem> batch = notify ? new ArrayList<>(batchSize) : null;
+        long batchStart = IMPORT.start();
+
+        try (Connection conn = manager.openConnection()) {
+            conn.setAutoCommit(false);
+            try (PreparedStatement upsert = conn.prepareStatement(UPSERT_SQL);
+                 PreparedStatement update = notify ? conn.prepareStatement(UPDATE_SQL) : null) {
+
+                int pending = 0;
+                while (rows.hasNext()) {
+                    InventoryItem item = rows.next();
+                    if (notify) {
+                        update.setInt(1, item.getQuantity());
+                        update.setDouble(2, item.getPrice());
+                        update.setString(3, item.getName());
+                        update.addBatch();
+                        batch.add(item);
+                    } else {
+                        addUpsert(upsert, item);
+                    }
+
+                    if (++pending == batchSize) {
+                        imported += commit(conn, upsert, update, pending, batch, batchStart);
+                        pending = 0;
+                        batchStart = IMPORT.start();
+                        reportProgress(imported, start);
+                    }
+                }
+                if (pending > 0) {
+                    imported += commit(conn, upsert, update, pending, batch, batchStart);
+                    reportProgress(imported, start);
+                }
+            } catch (SQLException | RuntimeException e) {
+                // Only the batch in progress is lost; earlier batches are already committed
+                IMPORT.failure(batchStart);
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        }
+        return new Result(imported, rejected, System.nanoTime() - start, errors);
+    }
+
+    private static void addUpsert(PreparedStatement upsert, InventoryItem item) throws SQLException {
+        upsert.setString(1, item.getName());
+        upsert.setInt(2, item.getQuantity());
+        upsert.setDouble(3, item.getPrice());
+        upsert.addBatch();
+    }
+
+    // Commits 'count' rows queued in the upsert batch, or, with listeners ('batch' set), in the
+    // update batch, then publishes one SAVED event per item of the batch
+    private int commit(Connection conn, PreparedStatement upsert, PreparedStatement update, int count,
+                       List<InventoryItem> batch, long batchStart) throws SQLException {
+        List<ItemChangeEvent> events = null;
+        if (batch == null) {
+            upsert.executeBatch();
+        } else {
+            int[] updated = update.executeBatch();
+            // Rows the UPDATE missed did not exist. A name repeated in the batch is inserted once
+            // and added to by the upsert.
+            Set<String> created = new HashSet<>();
+            for (int i = 0; i < updated.length; i++) {
+                if (updated[i] == 0) {
+                    created.add(batch.get(i).getName());
+                    addUpsert(upsert, batch.get(i));
+                }
+            }
+            if (!created.isEmpty()) {
+                upsert.executeBatch();
+            }
+            events = eventsFor(conn, batch, created);
+            batch.clear();
+        }
+        conn.commit();
+        IMPORT.success(batchStart, 0, count);
+
+        if (events != null) {
+            for (ItemChangeEvent event : events) {
+                manager.fireItemChanged(event);
+            }
+        }
+        return count;
+    }
+
+    // One event per distinct name, in batch order, with the row as committed and the units
+    // the batch added to it
+    private static List<ItemChangeEvent> eventsFor(Connection conn, List<InventoryItem> batch, Set<String> created)
+            throws SQLException {
+        Map<String, Integer> added = new LinkedHashMap<>();
+        for (InventoryItem item : batch) {
+            added.merge(item.getName(), item.getQuantity(), Integer::sum);
+        }
+        Map<String, InventoryItem> stored = Checkout.readRows(conn, new ArrayList<>(added.keySet()));
+        List<ItemChangeEvent> events = new ArrayList<>(added.size());
+        for (Map.Entry<String, Integer> entry : added.entrySet()) {
+            InventoryItem row = stored.get(entry.getKey());
+            if (row != null) {
+                events.add(new ItemChangeEvent(ItemChangeEvent.Kind.SAVED, entry.getKey(), entry.getValue(), row,
+                        created.contains(entry.getKey())));
+            }
+        }
+        return events;
+    }
+
+    private void reportProgress(long imported, long start) {
+        if (progressListener != null) {
+            progressListener.progress(imported, rowsPerSecond(imported, System.nanoTime() - start));
+        }
+    }
+
+    private static double rowsPerSecond(long rows, long nanos) {
+        return nanos == 0 ? 0.0 : rows * 1_000_000_000.0 / nanos;
+    }
+
+    // Summary of a finished import
+    public static final class Result {
+        public final long rowsImported;
+        public final long rowsRejected;
+        public final long elapsedNanos;
+        public final List<String> errors;
+
+        Result(long rowsImported, long rowsRejected, long elapsedNanos, List<String> errors) {
+            this.rowsImported = rowsImported;
+            this.rowsRejected = rowsRejected;
+            this.elapsedNanos = elapsedNanos;
+            this.errors = errors;
+        }
+
+        public double getRowsPerSecond() {
+            return rowsPerSecond(rowsImported, elapsedNanos);
+        }
+
+        @Override
+        public String toString() {
+            return String.format("Imported %d rows (%d rejected) in %.2f s, %.0f rows/s",
+                    rowsImported, rowsRejected, elapsedNanos / 1_000_000_000.0, getRowsPerSecond());
+        }
+    }
+
+    // ------------------------------------------------------------------
+    // Streaming CSV reader: one line in memory at a time
+    // ------------------------------------------------------------------
+
+    private static final class CsvItemIterator implements Iterator<InventoryItem> {
+        private final BufferedReader reader;
+        private final List<String> errors;
+        private final long[] rejected;
+        private long lineNumber;
+        private InventoryItem next;
+
+        CsvItemIterator(BufferedReader reader, List<String> errors, long[] rejected) {
+            this.reader = reader;
+            this.errors = errors;
+            this.rejected = rejected;
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (next == null) {
+                String line;
+                try {
+                    line = reader.readLine();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                if (line == null) {
+                    return false;
+                }
+                lineNumber++;
+                if (line.isBlank()) {
+                    continue;
+                }
+                next = parse(line);
+            }
+            return true;
+        }
+
+        @Override
+        public InventoryItem next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            InventoryItem item = next;
+            next = null;
+            return item;
+        }
+
+        private InventoryItem parse(String line) {
+            List<String> fields = splitCsvLine(line);
+            try {
+                if (fields.size() != 3) {
+                    throw new IllegalArgumentException("expected 3 columns (name,quantity,price) but found " + fields.size());
+                }
+                String name = fields.get(0).trim();
+                int quantity = Integer.parseInt(fields.get(1).trim());
+                double price = Double.parseDouble(fields.get(2).trim());
+                if (name.isEmpty() || quantity <= 0 || price <= 0) {
+                    throw new IllegalArgumentException("name must be set and quantity/price must be > 0");
+                }
+                return new InventoryItem(name, quantity, price);
+            } catch (IllegalArgumentException e) {
+                // The first line may be a header such as "name,quantity,price"
+                if (lineNumber > 1 || !(e instanceof NumberFormatException)) {
+                    rejected[0]++;
+                    if (errors.size() < MAX_REPORTED_ERRORS) {
+                        errors.add("Line " + lineNumber + ": " + e.getMessage());
+                    }
+                }
+                return null;
+            }
+        }
+
+        // Splits one line, honouring double-quoted fields ("a, b" and "" escapes)
+        private static List<String> splitCsvLine(String line) {
+            List<String> fields = new ArrayList<>(3);
+            StringBuilder current = new StringBuilder();
+            boolean quoted = false;
+            for (int i = 0; i < line.length(); i++) {
+                char c = line.charAt(i);
+                if (quoted) {
+                    if (c == '"') {
+                        if (i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                            current.append('"');
+                            i++;
+                        } else {
+                            quoted = false;
+                        }
+                    } else {
+                        current.append(c);
+                    }
+                } else if (c == '"') {
+                    quoted = true;
+                } else if (c == ',') {
+                    fields.add(current.toString());
+                    current.setLength(0);
+                } else {
+                    current.append(c);
+                }
+            }
+            fields.add(current.toString());
+            return fields;
+        }
+    }
+}
@@ -0,0 +1,262 @@
+package service;
+
+import model.InventoryItem;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+
+// InventoryManager with an in-memory, write-through item cache in front of it.
+// Exact-name lookups (getItem, getItemPrice) are answered from memory; every write goes to
+// the database first and the resulting ItemChangeEvent updates the cache with the new row.
+// Writes by other processes (another terminal on the same database) produce no events here, so
+// an entry older than the revalidation interval is checked against the row's version before it
+// is served: one integer is read, and the row only when it has actually changed.
+public class CachedInventoryManager extends InventoryManager {
+
+    // Settings, tunable with -Dims.cache.maxEntries=..., -Dims.cache.warmUp=... and
+    // -Dims.cache.revalidateMillis=... (0 = trust this process's events only)
+    public static final int DEFAULT_MAX_ENTRIES = Integer.getInteger("ims.cache.maxEntries", 100_000);
+    public static final int DEFAULT_WARM_UP = Integer.getInteger("ims.cache.warmUp", 10_000);
+    private static final long DEFAULT_REVALIDATE_MILLIS = Long.getLong("ims.cache.revalidateMillis", 1_000L);
+
+    // Writes to the same name are serialised so cache updates land in database order
+    private static final int LOCK_STRIPES = 64;
+    private final Object[] locks = new Object[LOCK_STRIPES];
+    // Cache updates per stripe (guarded by the stripe's lock), so a row read without the lock is
+    // only cached if no write to the stripe landed while it was being read
+    private final long[] stripeChanges = new long[LOCK_STRIPES];
+
+    private final ItemCache cache;
+    private volatile long revalidateNanos = TimeUnit.MILLISECONDS.toNanos(DEFAULT_REVALIDATE_MILLIS);
+
+    public CachedInventoryManager() {
+        this(DEFAULT_MAX_ENTRIES, DEFAULT_WARM_UP);
+    }
+
+    public CachedInventoryManager(int maxEntries, int warmUpCount) {
+        super();
+        this.cache = new ItemCache(maxEntries);
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            locks[i] = new Object();
+        }
+        // Also covers writes that bypass the overrides below, such as BulkImporter
+        addChangeListener(this::applyChange);
+        if (warmUpCount > 0) {
+            try {
+                warmUp(Math.min(warmUpCount, maxEntries));
+            } catch (SQLException e) {
+                // The cache still works without warm-up, it just starts cold
+                System.err.println("Item cache warm-up failed: " + e.getMessage());
+            }
+        }
+    }
+
+    // Pre-loads up to 'count' items so the first scans of the day are already hits.
+    // Safe while the manager is in use: rows of a stripe written to during the read are skipped.
+    public void warmUp(int count) throws SQLException {
+        String sql = "SELECT name, quantity, price, version FROM items ORDER BY name LIMIT ?";
+        long[] changesBefore = new long[LOCK_STRIPES];
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            synchronized (locks[i]) {
+                changesBefore[i] = stripeChanges[i];
+            }
+        }
+
+        try (Connection conn = openConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+            pstmt.setInt(1, count);
+
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    InventoryItem item = new InventoryItem(rs.getString("name"), rs.getInt("quantity"),
+                            rs.getDouble("price"), null, rs.getLong("version"));
+                    int stripe = stripeFor(item.getName());
+                    synchronized (locks[stripe]) {
+                        if (stripeChanges[stripe] == changesBefore[stripe]) {
+                            cache.put(item);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    public ItemCache.Stats getCacheStats() {
+        return cache.getStats();
+    }
+
+    public void invalidateCache() {
+        cache.clear();
+    }
+
+    // How long an entry is served before its version is checked again (0 = never)
+    public void setRevalidateInterval(long millis) {
+        if (millis < 0) {
+            throw new IllegalArgumentException("Revalidation interval must be >= 0");
+        }
+        revalidateNanos = TimeUnit.MILLISECONDS.toNanos(millis);
+    }
+
+    private void applyChange(ItemChangeEvent event) {
+        int stripe = stripeFor(event.getName());
+        synchronized (locks[stripe]) {
+            stripeChanges[stripe]++;
+            if (event.getKind() == ItemChangeEvent.Kind.DELETED) {
+                cache.remove(event.getName());
+            } else {
+                cache.put(event.getItem());
+            }
+        }
+    }
+
+    // Direct cache updates from the write paths, under the name's stripe lock. Like events, they
+    // count as a change of the stripe, so a cache miss loading an older row meanwhile is dropped.
+    private void store(StockResult row) {
+        stripeChanges[stripeFor(row.getName())]++;
+        cache.put(new InventoryItem(row.getName(), row.getQuantity(), row.getPrice(), null, row.getVersion()));
+    }
+
+    private void forget(String name) {
+        stripeChanges[stripeFor(name)]++;
+        cache.remove(name);
+    }
+
+    private Object lockFor(String name) {
+        return locks[stripeFor(name)];
+    }
+
+    private static int stripeFor(String name) {
+        return (name.hashCode() & 0x7fffffff) % LOCK_STRIPES;
+    }
+
+    // --- Reads served from memory ---
+
+    @Override
+    public InventoryItem getItem(String name) throws SQLException {
+        InventoryItem item = cache.get(name);
+        if (item != null && isCurrent(item)) {
+            return item;
+        }
+        // Read without holding the lock; a write that commits meanwhile wins over this row
+        int stripe = stripeFor(name);
+        long changesBefore;
+        synchronized (locks[stripe]) {
+            changesBefore = stripeChanges[stripe];
+        }
+        item = super.getItem(name);
+        synchronized (locks[stripe]) {
+            if (stripeChanges[stripe] == changesBefore) {
+                if (item != null) {
+                    cache.put(item);
+                } else {
+                    cache.remove(name);
+                }
+            }
+        }
+        return item;
+    }
+
+    // Recently loaded or confirmed entries are trusted; older ones must still have the version
+    // of the row. Entries without a version (0) are always reloaded.
+    private boolean isCurrent(InventoryItem item) throws SQLException {
+        long maxAge = revalidateNanos;
+        if (maxAge == 0 || !cache.isOlderThan(item.getName(), maxAge)) {
+            return true;
+        }
+        if (item.getVersion() > 0 && item.getVersion() == getVersion(item.getName())) {
+            cache.markValidated(item.getName());
+            return true;
+        }
+        return false;
+    }
+
+    @Override
+    public double getItemPrice(String name) throws SQLException {
+        InventoryItem item = getItem(name);
+        return item == null ? 0.0 : item.getPrice();
+    }
+
+    // --- Write-through ---
+
+    @Override
+    public int addStock(String name, int quantity, double price) throws SQLException {
+        synchronized (lockFor(name)) {
+            return super.addStock(name, quantity, price);
+        }
+    }
+
+    @Override
+    public StockResult sellStock(String name, int quantityToSell, double newPrice) throws SQLException {
+        synchronized (lockFor(name)) {
+            StockResult result = super.sellStock(name, quantityToSell, newPrice);
+            // Successful sales arrive as events; failed ones still tell us the current state
+            if (result.getStatus() == StockResult.Status.NOT_FOUND) {
+                forget(name);
+            } else if (result.getStatus() == StockResult.Status.INSUFFICIENT_STOCK) {
+                store(result);
+            }
+            return result;
+        }
+    }
+
+    // Holds the stripes of every line, taken in ascending order so two baskets cannot deadlock
+    @Override
+    public Checkout.Result checkout(List<Checkout.Line> basket) throws SQLException {
+        SortedSet<Integer> stripes = new TreeSet<>();
+        for (Checkout.Line line : basket) {
+            stripes.add(stripeFor(line.getName()));
+        }
+        return checkoutLocked(basket, stripes.iterator());
+    }
+
+    private Checkout.Result checkoutLocked(List<Checkout.Line> basket, Iterator<Integer> stripes) throws SQLException {
+        if (stripes.hasNext()) {
+            synchronized (locks[stripes.next()]) {
+                return checkoutLocked(basket, stripes);
+            }
+        }
+        Checkout.Result result = super.checkout(basket);
+        if (!result.isCommitted()) {
+            // Nothing was sold, but every line tells the current state of its item
+            for (StockResult line : result.getResults()) {
+                if (line.getStatus() == StockResult.Status.NOT_FOUND) {
+                    forget(line.getName());
+                } else {
+                    store(line);
+                }
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public InventoryItem compareAndSet(InventoryItem expected, int newQuantity, double newPrice) throws SQLException {
+        synchronized (lockFor(expected.getName())) {
+            InventoryItem stored = super.compareAndSet(expected, newQuantity, newPrice);
+            if (stored == null) {
+                // Someone else changed the row (maybe another process): reload it on next use
+                forget(expected.getName());
+            }
+            return stored;
+        }
+    }
+
+    @Override
+    public boolean removeItem(String name) throws SQLException {
+        synchronized (lockFor(name)) {
+            try {
+                return super.removeItem(name);
+            } finally {
+                // Also drop the entry when the row was already gone
+                forget(name);
+            }
+        }
+    }
+}
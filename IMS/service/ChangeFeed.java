@@ -0,0 +1,429 @@
+package service;
+
+import model.InventoryItem;
+import metrics.InventoryMetrics;
+import metrics.OperationMetrics;
+import data.DatabaseConnection;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+// Sequenced feed of every committed change to 'items', so replicas (another till's listing, a
+// remote client) stay current by applying deltas instead of reloading the catalog.
+//  - Triggers append each insert, update and delete of a row to 'item_changes' inside the
+//    writing transaction, whatever process or code path made it. The sequence number is the
+//    table's AUTOINCREMENT key: it only grows and, as SQLite has one writer at a time, follows
+//    commit order, so reading "seq > cursor" never skips a change.
+//  - Subscribers start after a sequence number and receive every later change, in order, in
+//    batches on the feed thread. The thread reads the latest sequence (one row) every pollMillis,
+//    and right away after a change made through this process's manager.
+//  - The table keeps the last 'retention' changes. A subscriber that falls further behind is
+//    told it missed changes and must reload before continuing.
+// One feed per database; for a sharded inventory, open one per partition.
+public final class ChangeFeed implements AutoCloseable {
+
+    // Settings, tunable with -Dims.feed.pollMillis=... and -Dims.feed.retention=...
+    public static final long DEFAULT_POLL_MILLIS = Long.getLong("ims.feed.pollMillis", 250L);
+    public static final long DEFAULT_RETENTION = Long.getLong("ims.feed.retention", 100_000L);
+
+    private static final OperationMetrics READ = InventoryMetrics.operation("changeFeed.read");
+    private static final int BATCH_SIZE = 1_000;
+    private static final long PRUNE_INTERVAL_NANOS = TimeUnit.MINUTES.toNanos(1);
+    private static final String NOW_MILLIS = "CAST((julianday('now') - 2440587.5) * 86400000 AS INTEGER)";
+    // 'kind' of an insert in item_changes
+    private static final String CREATED = "CREATED";
+    // Version the row ends up with. Writers that leave 'version' alone get it set by the triggers
+    // of DatabaseConnection.addVersionColumn in a separate UPDATE, which this trigger's NEW does
+    // not see (and which may run after it), so the same value is computed here. 'now' is the
+    // same for every trigger of one statement.
+    private static final String INSERTED_VERSION =
+            "CASE WHEN NEW.version = 1 THEN " + DatabaseConnection.NEW_ROW_VERSION + " ELSE NEW.version END";
+    private static final String UPDATED_VERSION =
+            "CASE WHEN NEW.version = OLD.version THEN OLD.version + 1 ELSE NEW.version END";
+    private static final String PROBE_NAME = "\u0000change-feed-probe";
+    private static final String RECORD = "INSERT INTO item_changes " +
+            "(changed_at, kind, name, quantity, price, version, delta) VALUES (" + NOW_MILLIS + ", ";
+
+    // One committed change: the item's state after it
+    public static final class Change {
+        private final long sequence;
+        private final long timestamp;
+        private final ItemChangeEvent.Kind kind;
+        private final String name;
+        private final int quantity;
+        private final double price;
+        private final long version;
+        private final int quantityDelta;
+        private final boolean created;
+
+        Change(long sequence, long timestamp, ItemChangeEvent.Kind kind, String name,
+               int quantity, double price, long version, int quantityDelta, boolean created) {
+            this.sequence = sequence;
+            this.timestamp = timestamp;
+            this.kind = kind;
+            this.name = name;
+            this.quantity = quantity;
+            this.price = price;
+            this.version = version;
+            this.quantityDelta = quantityDelta;
+            this.created = created;
+        }
+
+        public long getSequence() {
+            return sequence;
+        }
+
+        public long getTimestamp() {
+            return timestamp;
+        }
+
+        // Inserts and increases are SAVED, decreases SOLD, removals DELETED
+        public ItemChangeEvent.Kind getKind() {
+            return kind;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        // Quantity after the change (0 for a delete)
+        public int getQuantity() {
+            return quantity;
+        }
+
+        public double getPrice() {
+            return price;
+        }
+
+        public long getVersion() {
+            return version;
+        }
+
+        public int getQuantityDelta() {
+            return quantityDelta;
+        }
+
+        // True if this change inserted the row
+        public boolean isCreated() {
+            return created;
+        }
+
+        // The same change as a local listener would have seen it
+        public ItemChangeEvent toEvent() {
+            InventoryItem item = kind == ItemChangeEvent.Kind.DELETED
+                    ? null
+                    : new InventoryItem(name, quantity, price, null, version);
+            return new ItemChangeEvent(kind, name, quantityDelta, item, timestamp, created, version);
+        }
+
+        @Override
+        public String toString() {
+            return "Change[" + sequence + ", " + kind + ", " + name + ", qty=" + quantity + "]";
+        }
+    }
+
+    // Called on the feed thread, one subscriber at a time
+    public interface Subscriber {
+        // The next changes after the subscriber's position, in sequence order
+        void onChanges(List<Change> changes);
+
+        // Changes were pruned before they could be delivered: reload everything. Delivery
+        // continues with the changes after 'sequence', which was current when this was called.
+        void onMissedChanges(long sequence);
+    }
+
+    public final class Subscription implements AutoCloseable {
+        private final Subscriber subscriber;
+        private volatile long position;
+
+        private Subscription(Subscriber subscriber, long afterSequence) {
+            this.subscriber = subscriber;
+            this.position = afterSequence;
+        }
+
+        // Sequence of the last change delivered
+        public long getPosition() {
+            return position;
+        }
+
+        @Override
+        public void close() {
+            subscriptions.remove(this);
+        }
+    }
+
+    private final InventoryManager manager;
+    private final long pollNanos;
+    private final long retention;
+    private final List<Subscription> subscriptions = new CopyOnWriteArrayList<>();
+    private final Semaphore wake = new Semaphore(0);
+    private final ItemChangeListener localChanges = event -> wake.release();
+    private final Object sequenceMonitor = new Object();
+    private final Thread poller;
+    private volatile boolean running = true;
+    private long latestSequence;
+    private long lastPruneNanos = System.nanoTime();
+
+    private ChangeFeed(InventoryManager manager, long pollMillis, long retention) throws SQLException {
+        if (manager.partitions().size() != 1) {
+            throw new IllegalArgumentException("A change feed covers one database; open one per partition");
+        }
+        if (pollMillis <= 0 || retention <= 0) {
+            throw new IllegalArgumentException("Poll interval and retention of the change feed must be > 0");
+        }
+        this.manager = manager;
+        this.pollNanos = TimeUnit.MILLISECONDS.toNanos(pollMillis);
+        this.retention = retention;
+        install();
+        this.latestSequence = readLatestSequence();
+        manager.addChangeListener(localChanges);
+        this.poller = new Thread(this::pollLoop, "inventory-change-feed");
+        this.poller.setDaemon(true);
+        this.poller.start();
+    }
+
+    public static ChangeFeed open(InventoryManager manager) throws SQLException {
+        return new ChangeFeed(manager, DEFAULT_POLL_MILLIS, DEFAULT_RETENTION);
+    }
+
+    public static ChangeFeed open(InventoryManager manager, long pollMillis, long retention) throws SQLException {
+        return new ChangeFeed(manager, pollMillis, retention);
+    }
+
+    // Creates the change table and its triggers once per database. From then on every writer
+    // records its changes, also processes that never open a feed.
+    private void install() throws SQLException {
+        try (Connection conn = manager.openConnection()) {
+            try (Statement stmt = conn.createStatement()) {
+                stmt.execute("CREATE TABLE IF NOT EXISTS item_changes (" +
+                             "seq INTEGER PRIMARY KEY AUTOINCREMENT," +
+                             "changed_at INTEGER NOT NULL," +
+                             "kind TEXT NOT NULL," +
+                             "name TEXT NOT NULL," +
+                             "quantity INTEGER NOT NULL," +
+                             "price REAL NOT NULL," +
+                             "version INTEGER NOT NULL," +
+                             "delta INTEGER NOT NULL)");
+                // Inserts are recorded as CREATED (read back as SAVED + isCreated). Both triggers are
+                // recreated in case the database has older ones (inserts as SAVED, NEW.version).
+                stmt.execute("DROP TRIGGER IF EXISTS items_changes_insert");
+                stmt.execute("CREATE TRIGGER items_changes_insert AFTER INSERT ON items BEGIN " +
+                             RECORD + "'" + CREATED + "', NEW.name, NEW.quantity, NEW.price, " + INSERTED_VERSION +
+                             ", NEW.quantity); END");
+                // Not fired by the version trigger, which only sets 'version'
+                stmt.execute("DROP TRIGGER IF EXISTS items_changes_update");
+                stmt.execute("CREATE TRIGGER items_changes_update AFTER UPDATE OF quantity, price, barcode ON items BEGIN " +
+                             RECORD + "CASE WHEN NEW.quantity < OLD.quantity THEN 'SOLD' ELSE 'SAVED' END, " +
+                             "NEW.name, NEW.quantity, NEW.price, " + UPDATED_VERSION + ", NEW.quantity - OLD.quantity); END");
+                stmt.execute("CREATE TRIGGER IF NOT EXISTS items_changes_delete AFTER DELETE ON items BEGIN " +
+                             RECORD + "'DELETED', OLD.name, 0, OLD.price, OLD.version, -OLD.quantity); END");
+            }
+            checkVersions(conn);
+        }
+    }
+
+    // A plain "UPDATE items SET quantity = ..." must show up with the version the row ends up
+    // with, or ReorderAlerts and other replicas would take it for a change they already have.
+    // Checked on a probe row, in a transaction that is rolled back.
+    private static void checkVersions(Connection conn) throws SQLException {
+        conn.setAutoCommit(false);
+        try {
+            long rowVersion;
+            List<Long> recorded = new ArrayList<>();
+            try (PreparedStatement insert = conn.prepareStatement(
+                         "INSERT INTO items (name, quantity, price) VALUES (?, 1, 0)");
+                 PreparedStatement update = conn.prepareStatement(
+                         "UPDATE items SET quantity = 2 WHERE name = ?");
+                 PreparedStatement row = conn.prepareStatement(
+                         "SELECT version FROM items WHERE name = ?");
+                 PreparedStatement changes = conn.prepareStatement(
+                         "SELECT version FROM item_changes WHERE name = ? ORDER BY seq")) {
+                insert.setString(1, PROBE_NAME);
+                insert.executeUpdate();
+                update.setString(1, PROBE_NAME);
+                update.executeUpdate();
+                row.setString(1, PROBE_NAME);
+                try (ResultSet rs = row.executeQuery()) {
+                    rowVersion = rs.next() ? rs.getLong(1) : 0;
+                }
+                changes.setString(1, PROBE_NAME);
+                try (ResultSet rs = changes.executeQuery()) {
+                    while (rs.next()) {
+                        recorded.add(rs.getLong(1));
+                    }
+                }
+            }
+            if (recorded.size() != 2 || recorded.get(1) != rowVersion || recorded.get(0) != rowVersion - 1) {
+                throw new SQLException("Change feed records versions " + recorded + " for a row at version "
+                        + rowVersion + "; check the items_version_* triggers");
+            }
+        } finally {
+            conn.rollback();
+            conn.setAutoCommit(true);
+        }
+    }
+
+    // --- Reading ---
+
+    // Sequence of the newest change known to the feed (0 if there has been none)
+    public long getLatestSequence() {
+        synchronized (sequenceMonitor) {
+            return latestSequence;
+        }
+    }
+
+    // Up to 'limit' changes after 'afterSequence', oldest first. If the first one is not
+    // afterSequence + 1, the changes in between were pruned (see Subscriber.onMissedChanges).
+    public List<Change> read(long afterSequence, int limit) throws SQLException {
+        String sql = "SELECT seq, changed_at, kind, name, quantity, price, version, delta " +
+                     "FROM item_changes WHERE seq > ? ORDER BY seq LIMIT ?";
+        List<Change> changes = new ArrayList<>();
+        long start = READ.start();
+
+        try (Connection conn = manager.openConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+            pstmt.setLong(1, afterSequence);
+            pstmt.setInt(2, limit);
+
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    String kind = rs.getString(3);
+                    boolean created = kind.equals(CREATED);
+                    changes.add(new Change(rs.getLong(1), rs.getLong(2),
+                            created ? ItemChangeEvent.Kind.SAVED : ItemChangeEvent.Kind.valueOf(kind),
+                            rs.getString(4), rs.getInt(5), rs.getDouble(6), rs.getLong(7), rs.getInt(8), created));
+                }
+            }
+        } catch (SQLException e) {
+            READ.failure(start);
+            throw e;
+        }
+        READ.success(start, changes.size(), 0);
+        return changes;
+    }
+
+    // Blocks until a change after 'afterSequence' is known or the timeout passes (long polling).
+    // Returns the latest sequence.
+    public long awaitChangesAfter(long afterSequence, long timeoutMillis) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        synchronized (sequenceMonitor) {
+            long remaining;
+            while (latestSequence <= afterSequence && (remaining = deadline - System.nanoTime()) > 0) {
+                TimeUnit.NANOSECONDS.timedWait(sequenceMonitor, remaining);
+            }
+            return latestSequence;
+        }
+    }
+
+    // --- Subscriptions ---
+
+    // Delivers every change after 'afterSequence' to 'subscriber', starting with the backlog.
+    // Take the sequence with getLatestSequence() BEFORE loading the state the changes apply to.
+    public Subscription subscribe(long afterSequence, Subscriber subscriber) {
+        Subscription subscription = new Subscription(subscriber, afterSequence);
+        subscriptions.add(subscription);
+        wake.release();
+        return subscription;
+    }
+
+    private void pollLoop() {
+        while (running) {
+            try {
+                wake.tryAcquire(pollNanos, TimeUnit.NANOSECONDS);
+                wake.drainPermits();
+            } catch (InterruptedException e) {
+                return;
+            }
+            try {
+                long latest = readLatestSequence();
+                synchronized (sequenceMonitor) {
+                    if (latest != latestSequence) {
+                        latestSequence = latest;
+                        sequenceMonitor.notifyAll();
+                    }
+                }
+                for (Subscription subscription : subscriptions) {
+                    if (subscription.position < latest) {
+                        deliver(subscription, latest);
+                    }
+                }
+                if (System.nanoTime() - lastPruneNanos > PRUNE_INTERVAL_NANOS) {
+                    lastPruneNanos = System.nanoTime();
+                    prune(latest - retention);
+                }
+            } catch (SQLException e) {
+                // Try again on the next tick, e.g. after the database was busy
+                System.err.println("Change feed poll failed: " + e.getMessage());
+            }
+        }
+    }
+
+    private void deliver(Subscription subscription, long latest) throws SQLException {
+        while (running && subscriptions.contains(subscription)) {
+            long position = subscription.position;
+            List<Change> changes = read(position, BATCH_SIZE);
+            if (changes.isEmpty()) {
+                return;
+            }
+            try {
+                if (changes.get(0).getSequence() > position + 1) {
+                    subscription.position = latest;
+                    subscription.subscriber.onMissedChanges(latest);
+                    return;
+                }
+                subscription.position = changes.get(changes.size() - 1).getSequence();
+                subscription.subscriber.onChanges(changes);
+            } catch (RuntimeException e) {
+                // A failing subscriber must not stop the feed for the others
+                System.err.println("Change feed subscriber failed: " + e.getMessage());
+            }
+            if (changes.size() < BATCH_SIZE) {
+                return;
+            }
+        }
+    }
+
+    private long readLatestSequence() throws SQLException {
+        try (Connection conn = manager.openConnection();
+             PreparedStatement pstmt = conn.prepareStatement(
+                     "SELECT seq FROM sqlite_sequence WHERE name = 'item_changes'");
+             ResultSet rs = pstmt.executeQuery()) {
+            return rs.next() ? rs.getLong(1) : 0L;
+        }
+    }
+
+    // Drops changes up to and including 'throughSequence'
+    public void prune(long throughSequence) throws SQLException {
+        if (throughSequence <= 0) {
+            return;
+        }
+        try (Connection conn = manager.openConnection();
+             PreparedStatement pstmt = conn.prepareStatement("DELETE FROM item_changes WHERE seq <= ?")) {
+            pstmt.setLong(1, throughSequence);
+            pstmt.executeUpdate();
+        }
+    }
+
+    // Stops the feed thread; the triggers stay and keep recording
+    @Override
+    public void close() {
+        running = false;
+        manager.removeChangeListener(localChanges);
+        // Woken rather than interrupted, so a query in progress finishes normally
+        wake.release();
+        try {
+            poller.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        subscriptions.clear();
+    }
+}
@@ -0,0 +1,230 @@
+package service;
+
+import model.InventoryItem;
+import metrics.InventoryMetrics;
+import metrics.OperationMetrics;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Sells a whole basket in one transaction: either every line is deducted or none is.
+// All guarded decrements go to the database as one JDBC batch and the new stock of the basket
+// is read back with one query, so a checkout costs the same few statements and a single commit
+// whether it has 1 line or 100. Lines are sold at the item's current price.
+public final class Checkout {
+
+    static final OperationMetrics CHECKOUT = InventoryMetrics.operation("checkout");
+
+    // Same guard as a single sale, so concurrent tills can never oversell an item
+    private static final String DEDUCT_SQL =
+            "UPDATE items SET quantity = quantity - ?, version = version + 1 WHERE name = ? AND quantity >= ?";
+    // Names per read-back query, well below SQLite's limit on bound parameters
+    private static final int MAX_NAMES_PER_QUERY = 512;
+
+    // One line of a basket: 'quantity' units of the item 'name'
+    public static final class Line {
+        private final String name;
+        private final int quantity;
+
+        public Line(String name, int quantity) {
+            if (name == null || name.isEmpty()) {
+                throw new IllegalArgumentException("Basket line needs an item name");
+            }
+            if (quantity <= 0) {
+                throw new IllegalArgumentException("Quantity of '" + name + "' must be > 0");
+            }
+            this.name = name;
+            this.quantity = quantity;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public int getQuantity() {
+            return quantity;
+        }
+
+        @Override
+        public String toString() {
+            return quantity + " x " + name;
+        }
+    }
+
+    // Outcome of a checkout, with one StockResult per line.
+    // Committed: every line is OK and carries the stock left after the sale.
+    // Not committed: nothing was sold; failed lines say why (NOT_FOUND, INSUFFICIENT_STOCK with
+    // the units available) and the lines that could have been sold are OK with their unchanged stock.
+    public static final class Result {
+        private final List<Line> lines;
+        private final List<StockResult> results;
+        private final boolean committed;
+        private final double total;
+
+        Result(List<Line> lines, List<StockResult> deducted) {
+            boolean allSold = true;
+            for (StockResult result : deducted) {
+                allSold &= result.isSuccess();
+            }
+            List<StockResult> results = new ArrayList<>(deducted.size());
+            double total = 0.0;
+            for (int i = 0; i < lines.size(); i++) {
+                StockResult result = deducted.get(i);
+                if (result.isSuccess()) {
+                    int sold = lines.get(i).getQuantity();
+                    total += sold * result.getPrice();
+                    if (!allSold) {
+                        // Will be rolled back: report the stock as it stays
+                        result = StockResult.ok(result.getName(), result.getQuantity() + sold, result.getPrice());
+                    }
+                }
+                results.add(result);
+            }
+            this.lines = Collections.unmodifiableList(lines);
+            this.results = Collections.unmodifiableList(results);
+            this.committed = allSold;
+            this.total = allSold ? total : 0.0;
+        }
+
+        public boolean isCommitted() {
+            return committed;
+        }
+
+        // The basket as sold: one line per item, in the order items were first added
+        public List<Line> getLines() {
+            return lines;
+        }
+
+        // Parallel to getLines()
+        public List<StockResult> getResults() {
+            return results;
+        }
+
+        // Value of the goods sold (0 when not committed)
+        public double getTotal() {
+            return total;
+        }
+
+        public List<StockResult> getFailures() {
+            List<StockResult> failures = new ArrayList<>();
+            for (StockResult result : results) {
+                if (!result.isSuccess()) {
+                    failures.add(result);
+                }
+            }
+            return failures;
+        }
+    }
+
+    private Checkout() {
+    }
+
+    // Lines for the same item are combined into one (quantities added), keeping first-seen order
+    static List<Line> merge(List<Line> basket) {
+        if (basket.isEmpty()) {
+            throw new IllegalArgumentException("The basket is empty");
+        }
+        Map<String, Integer> quantities = new LinkedHashMap<>();
+        for (Line line : basket) {
+            quantities.merge(line.getName(), line.getQuantity(), Math::addExact);
+        }
+        List<Line> lines = new ArrayList<>(quantities.size());
+        quantities.forEach((name, quantity) -> lines.add(new Line(name, quantity)));
+        return lines;
+    }
+
+    // Runs a merged basket as one transaction on 'conn': commits if every line could be
+    // deducted, rolls back otherwise. Does not fire events.
+    static Result run(Connection conn, List<Line> lines) throws SQLException {
+        conn.setAutoCommit(false);
+        try {
+            Result result = new Result(lines, deduct(conn, lines));
+            if (result.isCommitted()) {
+                conn.commit();
+            } else {
+                conn.rollback();
+            }
+            return result;
+        } catch (SQLException | RuntimeException e) {
+            conn.rollback();
+            throw e;
+        } finally {
+            conn.setAutoCommit(true);
+        }
+    }
+
+    // The statements of a checkout, on a connection that is already inside a transaction.
+    // Returns one StockResult per line; deducted lines are OK with the quantity now in stock.
+    // If any line is not OK, the caller must roll the transaction back.
+    static List<StockResult> deduct(Connection conn, List<Line> lines) throws SQLException {
+        int[] counts;
+        try (PreparedStatement update = conn.prepareStatement(DEDUCT_SQL)) {
+            for (Line line : lines) {
+                update.setInt(1, line.getQuantity());
+                update.setString(2, line.getName());
+                update.setInt(3, line.getQuantity());
+                update.addBatch();
+            }
+            counts = update.executeBatch();
+        }
+
+        // One read tells the new stock of sold lines and why the others failed
+        Map<String, InventoryItem> current = readStock(conn, lines);
+        List<StockResult> results = new ArrayList<>(lines.size());
+        for (int i = 0; i < lines.size(); i++) {
+            String name = lines.get(i).getName();
+            InventoryItem row = current.get(name);
+            if (row == null) {
+                results.add(StockResult.notFound(name));
+            } else if (counts[i] > 0) {
+                results.add(StockResult.ok(name, row.getQuantity(), row.getPrice(), row.getVersion()));
+            } else {
+                results.add(StockResult.insufficient(name, row.getQuantity(), row.getPrice(), row.getVersion()));
+            }
+        }
+        return results;
+    }
+
+    private static Map<String, InventoryItem> readStock(Connection conn, List<Line> lines) throws SQLException {
+        List<String> names = new ArrayList<>(lines.size());
+        for (Line line : lines) {
+            names.add(line.getName());
+        }
+        return readRows(conn, names);
+    }
+
+    // name -> the row's quantity, price and version (also used by BulkImporter).
+    // The IN list is padded to a power of two (repeating the last name), so baskets of similar
+    // size share a statement in the connection pool's statement cache.
+    static Map<String, InventoryItem> readRows(Connection conn, List<String> names) throws SQLException {
+        Map<String, InventoryItem> stock = new HashMap<>(names.size() * 2);
+        for (int from = 0; from < names.size(); from += MAX_NAMES_PER_QUERY) {
+            int to = Math.min(names.size(), from + MAX_NAMES_PER_QUERY);
+            int slots = to - from == 1 ? 1 : Integer.highestOneBit(to - from - 1) << 1;
+            StringBuilder sql = new StringBuilder("SELECT name, quantity, price, version FROM items WHERE name IN (?");
+            for (int i = 1; i < slots; i++) {
+                sql.append(", ?");
+            }
+            try (PreparedStatement select = conn.prepareStatement(sql.append(')').toString())) {
+                for (int i = 0; i < slots; i++) {
+                    select.setString(i + 1, names.get(Math.min(from + i, to - 1)));
+                }
+                try (ResultSet rs = select.executeQuery()) {
+                    while (rs.next()) {
+                        String name = rs.getString("name");
+                        stock.put(name, new InventoryItem(name, rs.getInt("quantity"), rs.getDouble("price"),
+                                null, rs.getLong("version")));
+                    }
+                }
+            }
+        }
+        return stock;
+    }
+}
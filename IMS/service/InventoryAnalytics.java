@@ -0,0 +1,382 @@
+package service;
+
+import model.CompactItemStore;
+import model.InventoryItem;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.IntStream;
+
+// Valuation and stock reports.
+// The instance methods push the aggregation into SQLite, so only the answer crosses JDBC.
+// On a sharded inventory each partition runs the query in parallel and the (small) partial
+// answers are combined here.
+// The static methods do the same over a CompactItemStore snapshot with parallel streams
+// (common fork-join pool), for repeated reports without touching the database.
+// Money is summed in minor units (paise), so totals do not drift like double sums do.
+// A "category" is the first word of the item name ("Laptop Pro" -> "Laptop").
+public class InventoryAnalytics {
+
+    // Price in paise, rounded the same way as CompactItemStore.toMinorUnits
+    private static final String VALUE_SQL = "quantity * CAST(ROUND(price * 100) AS INTEGER)";
+    private static final String CATEGORY_SQL =
+            "CASE WHEN instr(name, ' ') > 0 THEN substr(name, 1, instr(name, ' ') - 1) ELSE name END";
+
+    // Orders of the SQL reports, for merging partition results
+    private static final Comparator<InventoryItem> LOW_STOCK_ORDER =
+            Comparator.comparingInt(InventoryItem::getQuantity).thenComparing(InventoryItem::getName);
+    private static final Comparator<InventoryItem> TOP_VALUE_ORDER =
+            Comparator.comparingLong(InventoryAnalytics::valueMinorUnits).reversed()
+                    .thenComparing(InventoryItem::getName);
+
+    private final InventoryManager manager;
+    private final InventoryTotals totals;
+
+    public InventoryAnalytics(InventoryManager manager) {
+        this.manager = manager;
+        this.totals = new InventoryTotals(manager);
+    }
+
+    // Item count, units and value of a group of items
+    public static final class Valuation {
+        private final long itemCount;
+        private final long totalQuantity;
+        private final long totalValueMinorUnits;
+
+        public Valuation(long itemCount, long totalQuantity, long totalValueMinorUnits) {
+            this.itemCount = itemCount;
+            this.totalQuantity = totalQuantity;
+            this.totalValueMinorUnits = totalValueMinorUnits;
+        }
+
+        public long getItemCount() {
+            return itemCount;
+        }
+
+        public long getTotalQuantity() {
+            return totalQuantity;
+        }
+
+        public long getTotalValueMinorUnits() {
+            return totalValueMinorUnits;
+        }
+
+        public Valuation plus(Valuation other) {
+            return new Valuation(itemCount + other.itemCount, totalQuantity + other.totalQuantity,
+                    totalValueMinorUnits + other.totalValueMinorUnits);
+        }
+
+        public double getTotalValue() {
+            return CompactItemStore.fromMinorUnits(totalValueMinorUnits);
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d items, %d units, ₹%.2f", itemCount, totalQuantity, getTotalValue());
+        }
+    }
+
+    // ------------------------------------------------------------------
+    // SQL: aggregated inside SQLite
+    // ------------------------------------------------------------------
+
+    // 1. Value of the whole inventory, read from the running totals (no scan)
+    public Valuation totalValuation() throws SQLException {
+        return totals.current();
+    }
+
+    // 2. Value of all items whose name starts with 'prefix' (a range scan on the primary key)
+    public Valuation valuationForPrefix(String prefix) throws SQLException {
+        if (prefix.isEmpty()) {
+            return totalValuation();
+        }
+        Valuation total = new Valuation(0, 0, 0);
+        for (Valuation part : ShardedInventoryManager.scatter(manager.partitions(),
+                partition -> valuationForPrefix(partition, prefix))) {
+            total = total.plus(part);
+        }
+        return total;
+    }
+
+    // 3. Value per category, ordered by category
+    public Map<String, Valuation> valuationByCategory() throws SQLException {
+        Map<String, Valuation> merged = new TreeMap<>();
+        for (Map<String, Valuation> part : ShardedInventoryManager.scatter(manager.partitions(),
+                InventoryAnalytics::valuationByCategory)) {
+            part.forEach((category, valuation) -> merged.merge(category, valuation, Valuation::plus));
+        }
+        return new LinkedHashMap<>(merged);
+    }
+
+    // 4. Items with at most 'threshold' units, emptiest first (uses idx_items_quantity)
+    public List<InventoryItem> lowStock(int threshold, int limit) throws SQLException {
+        return mergeLimited(ShardedInventoryManager.scatter(manager.partitions(),
+                partition -> lowStock(partition, threshold, limit)), LOW_STOCK_ORDER, limit);
+    }
+
+    // 5. The 'n' items holding the most stock value; SQLite keeps only n rows while sorting
+    public List<InventoryItem> topByValue(int n) throws SQLException {
+        return mergeLimited(ShardedInventoryManager.scatter(manager.partitions(),
+                partition -> topByValue(partition, n)), TOP_VALUE_ORDER, n);
+    }
+
+    private static Valuation valuationForPrefix(InventoryManager partition, String prefix) throws SQLException {
+        String sql = "SELECT COUNT(*), SUM(quantity), SUM(" + VALUE_SQL + ") FROM items WHERE name >= ? AND name < ?";
+
+        try (Connection conn = partition.openConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+            pstmt.setString(1, prefix);
+            pstmt.setString(2, prefixUpperBound(prefix));
+
+            try (ResultSet rs = pstmt.executeQuery()) {
+                rs.next();
+                return new Valuation(rs.getLong(1), rs.getLong(2), rs.getLong(3));
+            }
+        }
+    }
+
+    private static Map<String, Valuation> valuationByCategory(InventoryManager partition) throws SQLException {
+        String sql = "SELECT " + CATEGORY_SQL + " AS category, COUNT(*), SUM(quantity), SUM(" + VALUE_SQL + ")"
+                + " FROM items GROUP BY category ORDER BY category";
+        Map<String, Valuation> result = new LinkedHashMap<>();
+
+        try (Connection conn = partition.openConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql);
+             ResultSet rs = pstmt.executeQuery()) {
+
+            while (rs.next()) {
+                result.put(rs.getString(1), new Valuation(rs.getLong(2), rs.getLong(3), rs.getLong(4)));
+            }
+        }
+        return result;
+    }
+
+    private static List<InventoryItem> lowStock(InventoryManager partition, int threshold, int limit)
+            throws SQLException {
+        String sql = "SELECT name, quantity, price FROM items WHERE quantity <= ? ORDER BY quantity, name LIMIT ?";
+        List<InventoryItem> items = new ArrayList<>();
+
+        try (Connection conn = partition.openConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+            pstmt.setInt(1, threshold);
+            pstmt.setInt(2, limit);
+
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    items.add(new InventoryItem(rs.getString(1), rs.getInt(2), rs.getDouble(3)));
+                }
+            }
+        }
+        return items;
+    }
+
+    private static List<InventoryItem> topByValue(InventoryManager partition, int n) throws SQLException {
+        String sql = "SELECT name, quantity, price FROM items ORDER BY " + VALUE_SQL + " DESC, name LIMIT ?";
+        List<InventoryItem> items = new ArrayList<>(n);
+
+        try (Connection conn = partition.openConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+            pstmt.setInt(1, n);
+
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    items.add(new InventoryItem(rs.getString(1), rs.getInt(2), rs.getDouble(3)));
+                }
+            }
+        }
+        return items;
+    }
+
+    // 6. Fresh in-memory copy of the catalog for the snapshot reports below
+    public CompactItemStore snapshot() throws SQLException {
+        return manager.loadCompactStore();
+    }
+
+    // ------------------------------------------------------------------
+    // Snapshot: parallel scans over a CompactItemStore
+    // ------------------------------------------------------------------
+
+    public static Valuation totalValuation(CompactItemStore store) {
+        long[] totals = IntStream.range(0, store.size()).parallel().collect(
+                () -> new long[3],
+                (acc, slot) -> {
+                    acc[0]++;
+                    acc[1] += store.quantityAt(slot);
+                    acc[2] += store.valueMinorUnitsAt(slot);
+                },
+                (a, b) -> {
+                    a[0] += b[0];
+                    a[1] += b[1];
+                    a[2] += b[2];
+                });
+        return new Valuation(totals[0], totals[1], totals[2]);
+    }
+
+    public static Map<String, Valuation> valuationByCategory(CompactItemStore store) {
+        Map<String, long[]> totals = IntStream.range(0, store.size()).parallel().collect(
+                HashMap::new,
+                (acc, slot) -> {
+                    long[] t = acc.computeIfAbsent(categoryOf(store.nameAt(slot)), c -> new long[3]);
+                    t[0]++;
+                    t[1] += store.quantityAt(slot);
+                    t[2] += store.valueMinorUnitsAt(slot);
+                },
+                (a, b) -> b.forEach((category, t) -> a.merge(category, t, (x, y) -> {
+                    x[0] += y[0];
+                    x[1] += y[1];
+                    x[2] += y[2];
+                    return x;
+                })));
+
+        Map<String, Valuation> result = new LinkedHashMap<>();
+        new TreeMap<>(totals).forEach((category, t) -> result.put(category, new Valuation(t[0], t[1], t[2])));
+        return result;
+    }
+
+    public static List<InventoryItem> lowStock(CompactItemStore store, int threshold, int limit) {
+        int[] slots = IntStream.range(0, store.size()).parallel()
+                .filter(slot -> store.quantityAt(slot) <= threshold)
+                .toArray();
+        return IntStream.of(slots).boxed()
+                .sorted(Comparator.<Integer>comparingInt(store::quantityAt).thenComparing(store::nameAt))
+                .limit(limit)
+                .map(slot -> store.cursor().moveTo(slot).toItem())
+                .toList();
+    }
+
+    public static List<InventoryItem> topByValue(CompactItemStore store, int n) {
+        if (n <= 0) {
+            return List.of();
+        }
+        TopSlots top = IntStream.range(0, store.size()).parallel().collect(
+                () -> new TopSlots(store, n),
+                TopSlots::offer,
+                TopSlots::addAll);
+
+        List<InventoryItem> items = new ArrayList<>(top.size);
+        for (int slot : top.sortedSlots()) {
+            items.add(store.cursor().moveTo(slot).toItem());
+        }
+        return items;
+    }
+
+    // ------------------------------------------------------------------
+
+    // Same rule as CATEGORY_SQL
+    static String categoryOf(String name) {
+        int space = name.indexOf(' ');
+        return space > 0 ? name.substring(0, space) : name;
+    }
+
+    private static long valueMinorUnits(InventoryItem item) {
+        return item.getQuantity() * CompactItemStore.toMinorUnits(item.getPrice());
+    }
+
+    // First 'limit' items of several lists already sorted by 'order'
+    private static List<InventoryItem> mergeLimited(List<List<InventoryItem>> parts,
+                                                    Comparator<InventoryItem> order, int limit) {
+        if (parts.size() == 1) {
+            return parts.get(0);
+        }
+        return parts.stream().flatMap(List::stream).sorted(order).limit(limit).toList();
+    }
+
+    // Smallest string greater than every string starting with 'prefix'
+    private static String prefixUpperBound(String prefix) {
+        char last = prefix.charAt(prefix.length() - 1);
+        if (last == Character.MAX_VALUE) {
+            return prefix + Character.MAX_VALUE;
+        }
+        return prefix.substring(0, prefix.length() - 1) + (char) (last + 1);
+    }
+
+    // Bounded min-heap of slots by stock value: keeps the n largest without boxing
+    private static final class TopSlots {
+        private final CompactItemStore store;
+        private final int[] heap;
+        private int size;
+
+        TopSlots(CompactItemStore store, int capacity) {
+            this.store = store;
+            this.heap = new int[capacity];
+        }
+
+        void offer(int slot) {
+            if (size < heap.length) {
+                heap[size] = slot;
+                siftUp(size++);
+            } else if (less(heap[0], slot)) {
+                heap[0] = slot;
+                siftDown(0);
+            }
+        }
+
+        void addAll(TopSlots other) {
+            for (int i = 0; i < other.size; i++) {
+                offer(other.heap[i]);
+            }
+        }
+
+        // Highest value first, ties by name
+        int[] sortedSlots() {
+            return IntStream.of(Arrays.copyOf(heap, size)).boxed()
+                    .sorted((a, b) -> less(a, b) ? 1 : less(b, a) ? -1 : 0)
+                    .mapToInt(Integer::intValue)
+                    .toArray();
+        }
+
+        // True if slot a ranks below slot b (lower value, or same value and later name)
+        private boolean less(int a, int b) {
+            int byValue = Long.compare(store.valueMinorUnitsAt(a), store.valueMinorUnitsAt(b));
+            return byValue != 0 ? byValue < 0 : store.nameAt(a).compareTo(store.nameAt(b)) > 0;
+        }
+
+        private void siftUp(int i) {
+            while (i > 0) {
+                int parent = (i - 1) >>> 1;
+                if (!less(heap[i], heap[parent])) {
+                    return;
+                }
+                swap(i, parent);
+                i = parent;
+            }
+        }
+
+        private void siftDown(int i) {
+            while (true) {
+                int left = 2 * i + 1;
+                int right = left + 1;
+                int smallest = i;
+                if (left < size && less(heap[left], heap[smallest])) {
+                    smallest = left;
+                }
+                if (right < size && less(heap[right], heap[smallest])) {
+                    smallest = right;
+                }
+                if (smallest == i) {
+                    return;
+                }
+                swap(i, smallest);
+                i = smallest;
+            }
+        }
+
+        private void swap(int i, int j) {
+            int t = heap[i];
+            heap[i] = heap[j];
+            heap[j] = t;
+        }
+    }
+}
@@ -1,56 +1,141 @@
 package service;
 
+import model.CompactItemStore;
 import model.InventoryItem;
+import data.ConnectionPool;
 import data.DatabaseConnection;
+import metrics.InventoryMetrics;
+import metrics.OperationMetrics;
 import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+import java.util.function.UnaryOperator;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+import java.io.IOException;
+import java.nio.file.Path;
 import java.sql.*;
 
 public class InventoryManager {
 
+    // Per-operation counts, errors, rows and latency histograms (JMX: ims:type=Operation,...)
+    private static final OperationMetrics GET_ALL = InventoryMetrics.operation("getAllItems");
+    private static final OperationMetrics DELETE = InventoryMetrics.operation("deleteItem");
+    private static final OperationMetrics SEARCH = InventoryMetrics.operation("searchItems");
+    private static final OperationMetrics PRICE = InventoryMetrics.operation("getItemPrice");
+    private static final OperationMetrics ADD = InventoryMetrics.operation("addStock");
+    private static final OperationMetrics SELL = InventoryMetrics.operation("sellStock");
+    private static final OperationMetrics GET = InventoryMetrics.operation("getItem");
+    private static final OperationMetrics PAGE = InventoryMetrics.operation("getItemsPage");
+    private static final OperationMetrics COUNT = InventoryMetrics.operation("countItems");
+    private static final OperationMetrics FOR_EACH = InventoryMetrics.operation("forEachItem");
+    private static final OperationMetrics LOAD_COMPACT = InventoryMetrics.operation("loadCompactStore");
+    private static final OperationMetrics BARCODE = InventoryMetrics.operation("findByBarcode");
+    private static final OperationMetrics ASSIGN_BARCODE = InventoryMetrics.operation("assignBarcode");
+    private static final OperationMetrics VERSION = InventoryMetrics.operation("getVersion");
+    private static final OperationMetrics CAS = InventoryMetrics.operation("compareAndSet");
+    // Conflicts that made updateItem read and try again
+    private static final OperationMetrics CAS_RETRY = InventoryMetrics.operation("updateItem.retry");
+
+    // Attempts of updateItem before it gives up, tunable with -Dims.cas.maxAttempts=...
+    private static final int CAS_MAX_ATTEMPTS = Integer.getInteger("ims.cas.maxAttempts", 8);
+    private static final long CAS_BACKOFF_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+    // Reads answered without a query of their own
+    private static final OperationMetrics SEARCH_CACHED = InventoryMetrics.operation("searchItems.cached");
+
+    private final List<ItemChangeListener> listeners = new CopyOnWriteArrayList<>();
+    // Bumped by every published change; reads started before a change are not shared after it
+    private final AtomicLong generation = new AtomicLong();
+    // Concurrent identical reads share one query (see SingleFlight)
+    private final SingleFlight<String, List<InventoryItem>> searchFlights = new SingleFlight<>(
+            generation::get, ArrayList::new, InventoryMetrics.operation("searchItems.shared"));
+    private final SingleFlight<String, Double> priceFlights = new SingleFlight<>(
+            generation::get, price -> price, InventoryMetrics.operation("getItemPrice.shared"));
+    private final SingleFlight<String, InventoryItem> getFlights = new SingleFlight<>(
+            generation::get, item -> item, InventoryMetrics.operation("getItem.shared"));
+    private volatile SearchResultCache searchCache;
+    private volatile NameSearchIndex searchIndex;
+    private volatile BarcodeIndex barcodeIndex;
+    // null = the application-wide pool of DatabaseConnection
+    private final ConnectionPool pool;
+
     public InventoryManager() {
-        DatabaseConnection.initializeDatabase();
+        this(null);
     }
 
-    // 1. Adds or Updates item
-    public void saveItem(String name, int quantity, double price) throws SQLException {
-        String checkSql = "SELECT quantity FROM items WHERE name = ?";
-        
-        try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement checkStmt = conn.prepareStatement(checkSql)) {
-            
-            checkStmt.setString(1, name);
-            ResultSet rs = checkStmt.executeQuery();
-            
-            if (rs.next()) {
-                int existingQty = rs.getInt("quantity");
-                int newQty = existingQty + quantity;
-                
-                String updateSql = "UPDATE items SET quantity = ?, price = ? WHERE name = ?";
-                try (PreparedStatement updateStmt = conn.prepareStatement(updateSql)) {
-                    updateStmt.setInt(1, newQty);
-                    updateStmt.setDouble(2, price); 
-                    updateStmt.setString(3, name);
-                    updateStmt.executeUpdate();
-                }
+    // Works on the database behind 'pool' instead of the default one (e.g. one shard)
+    public InventoryManager(ConnectionPool pool) {
+        this(pool, true);
+    }
+
+    protected InventoryManager(ConnectionPool pool, boolean initializeSchema) {
+        this.pool = pool;
+        if (initializeSchema) {
+            if (pool == null) {
+                DatabaseConnection.initializeDatabase();
             } else {
-                String insertSql = "INSERT INTO items (name, quantity, price) VALUES (?, ?, ?)";
-                try (PreparedStatement insertStmt = conn.prepareStatement(insertSql)) {
-                    insertStmt.setString(1, name);
-                    insertStmt.setInt(2, quantity);
-                    insertStmt.setDouble(3, price);
-                    insertStmt.executeUpdate();
-                }
+                DatabaseConnection.initializeDatabase(pool);
             }
         }
     }
+
+    // Connection to this manager's database; closing it returns it to the pool
+    protected Connection openConnection() throws SQLException {
+        return pool != null ? pool.getConnection() : DatabaseConnection.getConnection();
+    }
+
+    // The managers that each own a part of the catalog: just this one, unless sharded
+    public List<InventoryManager> partitions() {
+        return List.of(this);
+    }
+
+    // The partition that stores 'name'
+    InventoryManager partitionFor(String name) {
+        return this;
+    }
+
+    // --- Change notification ---
+
+    public void addChangeListener(ItemChangeListener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeChangeListener(ItemChangeListener listener) {
+        listeners.remove(listener);
+    }
+
+    boolean hasChangeListeners() {
+        return !listeners.isEmpty();
+    }
+
+    protected void fireItemChanged(ItemChangeEvent event) {
+        generation.incrementAndGet();
+        for (ItemChangeListener listener : listeners) {
+            listener.itemChanged(event);
+        }
+    }
+
+    // 1. Adds or Updates item
+    public void saveItem(String name, int quantity, double price) throws SQLException {
+        addStock(name, quantity, price);
+    }
     
     // 2. Fetches all items
     public List<InventoryItem> getAllItems() throws SQLException {
         List<InventoryItem> items = new ArrayList<>();
         String sql = "SELECT name, quantity, price FROM items ORDER BY name";
+        long start = GET_ALL.start();
         
-        try (Connection conn = DatabaseConnection.getConnection();
+        try (Connection conn = openConnection();
              Statement stmt = conn.createStatement();
              ResultSet rs = stmt.executeQuery(sql)) {
             
@@ -60,73 +145,134 @@ public class InventoryManager {
                 double price = rs.getDouble("price");
                 items.add(new InventoryItem(name, quantity, price));
             }
+        } catch (SQLException e) {
+            GET_ALL.failure(start);
+            throw e;
         }
+        GET_ALL.success(start, items.size(), 0);
         return items;
     }
     
     // 3. Deletes an item
     public String deleteItem(String name) throws SQLException {
-        String sql = "DELETE FROM items WHERE name = ?";
-        int rowsAffected;
+        if (removeItem(name)) {
+            return "Item '" + name + "' successfully deleted.";
+        } else {
+            return "Item '" + name + "' not found.";
+        }
+    }
 
-        try (Connection conn = DatabaseConnection.getConnection();
+    // Same, reporting whether the item existed instead of a message
+    public boolean removeItem(String name) throws SQLException {
+        String sql = "DELETE FROM items WHERE name = ? RETURNING version";
+        long version = 0;
+        boolean removed;
+        long start = DELETE.start();
+
+        try (Connection conn = openConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
             
             stmt.setString(1, name);
-            rowsAffected = stmt.executeUpdate();
+            try (ResultSet rs = stmt.executeQuery()) {
+                removed = rs.next();
+                if (removed) {
+                    version = rs.getLong(1);
+                }
+            }
+        } catch (SQLException e) {
+            DELETE.failure(start);
+            throw e;
         }
+        DELETE.success(start, 0, removed ? 1 : 0);
         
-        if (rowsAffected > 0) {
-            return "Item '" + name + "' successfully deleted.";
-        } else {
-            return "Item '" + name + "' not found.";
+        if (removed) {
+            // Carries the deleted row's version, so listeners can tell late copies of older changes
+            fireItemChanged(new ItemChangeEvent(ItemChangeEvent.Kind.DELETED, name, 0, null,
+                    System.currentTimeMillis(), false, version));
+            return true;
         }
+        return false;
     }
 
     // 4. Reduces stock for a sale (Updates quantity and price)
     public String sellItem(String name, int quantityToSell, double newPrice) throws SQLException {
-        String checkSql = "SELECT quantity FROM items WHERE name = ?";
-        
-        try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement checkStmt = conn.prepareStatement(checkSql)) {
-            
-            checkStmt.setString(1, name);
-            ResultSet rs = checkStmt.executeQuery();
-            
-            if (rs.next()) {
-                int currentQty = rs.getInt("quantity");
-                if (currentQty < quantityToSell) {
-                    return "Error: Insufficient stock. Only " + currentQty + " units available.";
-                }
-
-                int newQty = currentQty - quantityToSell;
-                
-                String updateSql = "UPDATE items SET quantity = ?, price = ? WHERE name = ?"; 
-                try (PreparedStatement updateStmt = conn.prepareStatement(updateSql)) {
-                    updateStmt.setInt(1, newQty);
-                    updateStmt.setDouble(2, newPrice); 
-                    updateStmt.setString(3, name);
-                    updateStmt.executeUpdate();
+        return describeSale(sellStock(name, quantityToSell, newPrice), quantityToSell, newPrice);
+    }
 
-                    // ⚠️ NEW: Calculate the total remaining value
-                    double remainingValue = newQty * newPrice;
+    // The user-facing message for the outcome of a sale
+    public static String describeSale(StockResult result, int quantityToSell, double newPrice) {
+        String name = result.getName();
 
-                    return "Successfully sold " + quantityToSell + " units of " + name + 
-                           ". Stock remaining: " + newQty + 
-                           ". Remaining Stock Total Value: ₹" + String.format("%.2f", remainingValue);
-                }
-            } else {
+        switch (result.getStatus()) {
+            case NOT_FOUND:
                 return "Error: Item '" + name + "' not found in inventory.";
-            }
+            case INSUFFICIENT_STOCK:
+                return "Error: Insufficient stock. Only " + result.getQuantity() + " units available.";
+            default:
+                int newQty = result.getQuantity();
+
+                // ⚠️ NEW: Calculate the total remaining value
+                double remainingValue = newQty * newPrice;
+
+                return "Successfully sold " + quantityToSell + " units of " + name + 
+                       ". Stock remaining: " + newQty + 
+                       ". Remaining Stock Total Value: ₹" + String.format("%.2f", remainingValue);
         }
     }
     
+    // The user-facing message for a basket checkout
+    public static String describeCheckout(Checkout.Result result) {
+        if (!result.isCommitted()) {
+            StringBuilder sb = new StringBuilder("Error: Nothing was sold.");
+            for (StockResult failure : result.getFailures()) {
+                sb.append(failure.getStatus() == StockResult.Status.NOT_FOUND
+                        ? "\n - Item '" + failure.getName() + "' not found in inventory."
+                        : "\n - Insufficient stock of '" + failure.getName() + "'. Only "
+                                + failure.getQuantity() + " units available.");
+            }
+            return sb.toString();
+        }
+        int units = 0;
+        for (Checkout.Line line : result.getLines()) {
+            units += line.getQuantity();
+        }
+        return "Successfully sold " + units + " units of " + result.getLines().size() + " items" +
+               ". Basket Total: ₹" + String.format("%.2f", result.getTotal());
+    }
+
     // 5. Search/Filter Items by Name
     public List<InventoryItem> searchItems(String nameQuery) throws SQLException {
+        NameSearchIndex index = searchIndex;
+        if (index != null) {
+            long start = SEARCH.start();
+            List<InventoryItem> found = index.findContaining(nameQuery);
+            SEARCH.success(start, 0, 0);
+            return found;
+        }
+
+        SearchResultCache cache = searchCache;
+        long readGeneration = generation.get();
+        if (cache != null) {
+            long start = SEARCH_CACHED.start();
+            List<InventoryItem> cached = cache.get(nameQuery, readGeneration);
+            if (cached != null) {
+                SEARCH_CACHED.success(start, 0, 0);
+                return cached;
+            }
+        }
+        List<InventoryItem> items = searchFlights.run(nameQuery, () -> querySearch(nameQuery));
+        if (cache != null) {
+            cache.put(nameQuery, items, readGeneration);
+        }
+        return items;
+    }
+
+    private List<InventoryItem> querySearch(String nameQuery) throws SQLException {
+        long start = SEARCH.start();
         List<InventoryItem> items = new ArrayList<>();
         String sql = "SELECT name, quantity, price FROM items WHERE name LIKE ? ORDER BY name"; 
         
-        try (Connection conn = DatabaseConnection.getConnection();
+        try (Connection conn = openConnection();
              PreparedStatement pstmt = conn.prepareStatement(sql)) {
             
             pstmt.setString(1, "%" + nameQuery + "%"); 
@@ -139,25 +285,700 @@ public class InventoryManager {
                     items.add(new InventoryItem(name, quantity, price));
                 }
             }
+        } catch (SQLException e) {
+            SEARCH.failure(start);
+            throw e;
         }
+        SEARCH.success(start, items.size(), 0);
         return items;
     }
 
     // 6. Get the current price of a single item
     public double getItemPrice(String name) throws SQLException {
+        return priceFlights.run(name, () -> queryPrice(name));
+    }
+
+    private double queryPrice(String name) throws SQLException {
         String sql = "SELECT price FROM items WHERE name = ?";
+        long start = PRICE.start();
         
-        try (Connection conn = DatabaseConnection.getConnection();
+        try (Connection conn = openConnection();
              PreparedStatement pstmt = conn.prepareStatement(sql)) {
             
             pstmt.setString(1, name);
             
             try (ResultSet rs = pstmt.executeQuery()) {
                 if (rs.next()) {
-                    return rs.getDouble("price");
+                    double price = rs.getDouble("price");
+                    PRICE.success(start, 1, 0);
+                    return price;
                 }
             }
+        } catch (SQLException e) {
+            PRICE.failure(start);
+            throw e;
         }
+        PRICE.success(start, 0, 0);
         return 0.0; 
     }
-}
\ No newline at end of file
+
+    // 7. Atomic add-or-update: a single upsert adds to the existing quantity.
+    //    Returns the quantity now in stock.
+    public int addStock(String name, int quantity, double price) throws SQLException {
+        ItemChangeEvent saved;
+        long start = ADD.start();
+
+        try (Connection conn = openConnection()) {
+            saved = upsertStock(conn, name, quantity, price);
+        } catch (SQLException e) {
+            ADD.failure(start);
+            throw e;
+        }
+        ADD.success(start, 0, 1);
+
+        fireItemChanged(saved);
+        return saved.getItem().getQuantity();
+    }
+
+    // 8. Atomic sale: the stock check and the decrement are one guarded UPDATE,
+    //    so two tills selling the same item can never oversell it.
+    public StockResult sellStock(String name, int quantityToSell, double newPrice) throws SQLException {
+        StockResult result;
+        long start = SELL.start();
+
+        try (Connection conn = openConnection()) {
+            result = decrementStock(conn, name, quantityToSell, newPrice);
+        } catch (SQLException e) {
+            SELL.failure(start);
+            throw e;
+        }
+        // A failed sale costs an extra read to find out why
+        SELL.success(start, result.isSuccess() ? 0 : 1, result.isSuccess() ? 1 : 0);
+
+        if (result.isSuccess()) {
+            fireItemChanged(new ItemChangeEvent(ItemChangeEvent.Kind.SOLD, name, -quantityToSell,
+                    new InventoryItem(name, result.getQuantity(), newPrice, null, result.getVersion())));
+        }
+        return result;
+    }
+
+    // The statements behind addStock/sellStock, on a caller-supplied connection so they can
+    // also run inside a larger transaction (see WriteQueue). They do not fire events.
+    // Both move the row version and return the new one.
+    // upsertStock returns the SAVED event to fire, which tells whether the row was inserted.
+    // Adding to an existing item is one statement; a new item costs a second, the INSERT.
+    static ItemChangeEvent upsertStock(Connection conn, String name, int quantity, double price) throws SQLException {
+        String updateSql = "UPDATE items SET quantity = quantity + ?, price = ?, version = version + 1 " +
+                           "WHERE name = ? RETURNING quantity, version";
+        String insertSql = "INSERT INTO items (name, quantity, price, version) VALUES (?, ?, ?, " +
+                           DatabaseConnection.NEW_ROW_VERSION + ") " +
+                           "ON CONFLICT(name) DO NOTHING RETURNING quantity, version";
+
+        while (true) {
+            try (PreparedStatement update = conn.prepareStatement(updateSql)) {
+                update.setInt(1, quantity);
+                update.setDouble(2, price);
+                update.setString(3, name);
+                try (ResultSet rs = update.executeQuery()) {
+                    if (rs.next()) {
+                        return new ItemChangeEvent(ItemChangeEvent.Kind.SAVED, name, quantity,
+                                new InventoryItem(name, rs.getInt(1), price, null, rs.getLong(2)), false);
+                    }
+                }
+            }
+            try (PreparedStatement insert = conn.prepareStatement(insertSql)) {
+                insert.setString(1, name);
+                insert.setInt(2, quantity);
+                insert.setDouble(3, price);
+                try (ResultSet rs = insert.executeQuery()) {
+                    if (rs.next()) {
+                        return new ItemChangeEvent(ItemChangeEvent.Kind.SAVED, name, quantity,
+                                new InventoryItem(name, rs.getInt(1), price, null, rs.getLong(2)), true);
+                    }
+                }
+            }
+            // Another connection inserted it in between: add to that row
+        }
+    }
+
+    static StockResult decrementStock(Connection conn, String name, int quantityToSell, double newPrice) throws SQLException {
+        String updateSql = "UPDATE items SET quantity = quantity - ?, price = ?, version = version + 1 " +
+                           "WHERE name = ? AND quantity >= ? RETURNING quantity, version";
+
+        try (PreparedStatement updateStmt = conn.prepareStatement(updateSql)) {
+            updateStmt.setInt(1, quantityToSell);
+            updateStmt.setDouble(2, newPrice);
+            updateStmt.setString(3, name);
+            updateStmt.setInt(4, quantityToSell);
+
+            try (ResultSet rs = updateStmt.executeQuery()) {
+                if (rs.next()) {
+                    return StockResult.ok(name, rs.getInt(1), newPrice, rs.getLong(2));
+                }
+            }
+        }
+        return explainFailedSale(conn, name);
+    }
+
+    // Nothing was updated: only now find out why (missing item vs. not enough stock)
+    private static StockResult explainFailedSale(Connection conn, String name) throws SQLException {
+        String checkSql = "SELECT quantity, price, version FROM items WHERE name = ?";
+        try (PreparedStatement checkStmt = conn.prepareStatement(checkSql)) {
+            checkStmt.setString(1, name);
+            try (ResultSet rs = checkStmt.executeQuery()) {
+                if (rs.next()) {
+                    return StockResult.insufficient(name, rs.getInt("quantity"), rs.getDouble("price"),
+                            rs.getLong("version"));
+                }
+            }
+        }
+        return StockResult.notFound(name);
+    }
+
+    // 9. Fetch a single item by its exact name (null if it does not exist)
+    public InventoryItem getItem(String name) throws SQLException {
+        return getFlights.run(name, () -> queryItem(name));
+    }
+
+    private InventoryItem queryItem(String name) throws SQLException {
+        String sql = "SELECT name, quantity, price, version FROM items WHERE name = ?";
+        InventoryItem item = null;
+        long start = GET.start();
+
+        try (Connection conn = openConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+            pstmt.setString(1, name);
+
+            try (ResultSet rs = pstmt.executeQuery()) {
+                if (rs.next()) {
+                    item = new InventoryItem(rs.getString("name"), rs.getInt("quantity"), rs.getDouble("price"),
+                            null, rs.getLong("version"));
+                }
+            }
+        } catch (SQLException e) {
+            GET.failure(start);
+            throw e;
+        }
+        GET.success(start, item == null ? 0 : 1, 0);
+        return item;
+    }
+
+    // 10. Builds the in-memory name index once; afterwards searchItems never scans the table
+    //     and the index is kept current through change events.
+    public synchronized void enableSearchIndex() throws SQLException {
+        if (searchIndex != null) {
+            return;
+        }
+        NameSearchIndex index = new NameSearchIndex();
+        // Register first so writes made while loading are not lost
+        addChangeListener(index);
+        index.load(getAllItems());
+        searchIndex = index;
+    }
+
+    // Same, but starts from a catalog already in memory (e.g. StockJournal.restore()) instead of
+    // reading the table. Changes after that catalog was taken must reach this manager's listeners.
+    public synchronized void enableSearchIndex(CompactItemStore startingPoint) {
+        if (searchIndex != null) {
+            return;
+        }
+        NameSearchIndex index = new NameSearchIndex();
+        addChangeListener(index);
+        List<InventoryItem> items = new ArrayList<>(startingPoint.size());
+        startingPoint.forEach(item -> items.add(((CompactItemStore.Cursor) item).toItem()));
+        index.load(items);
+        searchIndex = index;
+    }
+
+    // Keeps searchItems results for up to 'ttlMillis' (see SearchResultCache), for hot search
+    // terms typed at many tills at once. Not used while the search index is enabled.
+    public void enableSearchCache(long ttlMillis, int maxEntries) {
+        searchCache = new SearchResultCache(TimeUnit.MILLISECONDS.toNanos(ttlMillis), maxEntries);
+    }
+
+    public void disableSearchCache() {
+        searchCache = null;
+    }
+
+    public boolean isSearchIndexEnabled() {
+        return searchIndex != null;
+    }
+
+    // 11. Ranked search (exact, prefix, word-start, substring), at most 'limit' results
+    public List<InventoryItem> searchItems(String nameQuery, int limit) throws SQLException {
+        NameSearchIndex index = searchIndex;
+        if (index != null) {
+            return index.search(nameQuery, limit);
+        }
+        List<InventoryItem> all = searchItems(nameQuery);
+        return all.size() > limit ? new ArrayList<>(all.subList(0, limit)) : all;
+    }
+
+    // 12. Bulk import: batched upserts in large transactions (see BulkImporter)
+    public BulkImporter.Result importItems(Stream<InventoryItem> items) throws SQLException {
+        return new BulkImporter(this).importItems(items);
+    }
+
+    public BulkImporter.Result importCsv(Path csvFile) throws SQLException, IOException {
+        return new BulkImporter(this).importCsv(csvFile);
+    }
+
+    // 13. Keyset pagination: the next 'pageSize' items after 'afterName' (null = first page).
+    //     Uses the primary-key index, so every page costs the same regardless of position.
+    public List<InventoryItem> getItemsPage(String afterName, int pageSize) throws SQLException {
+        return readPage(afterName, false, pageSize);
+    }
+
+    // The first 'pageSize' items from 'fromName' on, 'fromName' included
+    List<InventoryItem> getItemsFrom(String fromName, int pageSize) throws SQLException {
+        return readPage(fromName, true, pageSize);
+    }
+
+    private List<InventoryItem> readPage(String boundary, boolean inclusive, int pageSize) throws SQLException {
+        String sql = boundary == null
+                ? "SELECT name, quantity, price FROM items ORDER BY name LIMIT ?"
+                : inclusive
+                ? "SELECT name, quantity, price FROM items WHERE name >= ? ORDER BY name LIMIT ?"
+                : "SELECT name, quantity, price FROM items WHERE name > ? ORDER BY name LIMIT ?";
+        List<InventoryItem> items = new ArrayList<>(pageSize);
+        long start = PAGE.start();
+
+        try (Connection conn = openConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+            int param = 1;
+            if (boundary != null) {
+                pstmt.setString(param++, boundary);
+            }
+            pstmt.setInt(param, pageSize);
+
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    items.add(new InventoryItem(rs.getString("name"), rs.getInt("quantity"), rs.getDouble("price")));
+                }
+            }
+        } catch (SQLException e) {
+            PAGE.failure(start);
+            throw e;
+        }
+        PAGE.success(start, items.size(), 0);
+        return items;
+    }
+
+    // 14. Page starting at a row position, for jumping straight to a scroll position.
+    //     OFFSET walks the index, so prefer getItemsPage when the previous name is known.
+    public List<InventoryItem> getItemsAt(int offset, int pageSize) throws SQLException {
+        String sql = "SELECT name, quantity, price FROM items ORDER BY name LIMIT ? OFFSET ?";
+        List<InventoryItem> items = new ArrayList<>(pageSize);
+        long start = PAGE.start();
+
+        try (Connection conn = openConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+            pstmt.setInt(1, pageSize);
+            pstmt.setInt(2, offset);
+
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    items.add(new InventoryItem(rs.getString("name"), rs.getInt("quantity"), rs.getDouble("price")));
+                }
+            }
+        } catch (SQLException e) {
+            PAGE.failure(start);
+            throw e;
+        }
+        PAGE.success(start, items.size(), 0);
+        return items;
+    }
+
+    // Name at a row position in name order (null past the end), read from the primary-key
+    // index only. Used with countItemsBefore to find a row position across shards.
+    String nameAt(int position) throws SQLException {
+        long start = PAGE.start();
+        String name;
+        try (Connection conn = openConnection();
+             PreparedStatement pstmt = conn.prepareStatement("SELECT name FROM items ORDER BY name LIMIT 1 OFFSET ?")) {
+            pstmt.setInt(1, position);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                name = rs.next() ? rs.getString(1) : null;
+            }
+        } catch (SQLException e) {
+            PAGE.failure(start);
+            throw e;
+        }
+        PAGE.success(start, name == null ? 0 : 1, 0);
+        return name;
+    }
+
+    // Number of items whose name sorts before 'name'
+    int countItemsBefore(String name) throws SQLException {
+        long start = COUNT.start();
+        int count;
+        try (Connection conn = openConnection();
+             PreparedStatement pstmt = conn.prepareStatement("SELECT COUNT(*) FROM items WHERE name < ?")) {
+            pstmt.setString(1, name);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                count = rs.next() ? rs.getInt(1) : 0;
+            }
+        } catch (SQLException e) {
+            COUNT.failure(start);
+            throw e;
+        }
+        COUNT.success(start, 1, 0);
+        return count;
+    }
+
+    public int countItems() throws SQLException {
+        long start = COUNT.start();
+        int count;
+        try (Connection conn = openConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM items")) {
+            count = rs.next() ? rs.getInt(1) : 0;
+        } catch (SQLException e) {
+            COUNT.failure(start);
+            throw e;
+        }
+        COUNT.success(start, 1, 0);
+        return count;
+    }
+
+    // 15. Streams every item through the callback in name order without building a list
+    public void forEachItem(Consumer<InventoryItem> action) throws SQLException {
+        String sql = "SELECT name, quantity, price FROM items ORDER BY name";
+        long start = FOR_EACH.start();
+        long rows = 0;
+
+        try (Connection conn = openConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(sql)) {
+
+            while (rs.next()) {
+                action.accept(new InventoryItem(rs.getString("name"), rs.getInt("quantity"), rs.getDouble("price")));
+                rows++;
+            }
+        } catch (SQLException | RuntimeException e) {
+            FOR_EACH.failure(start);
+            throw e;
+        }
+        FOR_EACH.success(start, rows, 0);
+    }
+
+    // 16. Lazy Stream over all items, fetched one keyset page at a time.
+    //     No connection is held between pages. SQL errors surface as IllegalStateException.
+    public Stream<InventoryItem> streamItems(int pageSize) {
+        Iterator<InventoryItem> pages = new Iterator<InventoryItem>() {
+            private List<InventoryItem> page = new ArrayList<>();
+            private int index;
+            private String lastName;
+            private boolean exhausted;
+
+            @Override
+            public boolean hasNext() {
+                if (index < page.size()) {
+                    return true;
+                }
+                if (exhausted) {
+                    return false;
+                }
+                try {
+                    page = getItemsPage(lastName, pageSize);
+                } catch (SQLException e) {
+                    throw new IllegalStateException("Could not read inventory page after '" + lastName + "'", e);
+                }
+                index = 0;
+                exhausted = page.size() < pageSize;
+                if (!page.isEmpty()) {
+                    lastName = page.get(page.size() - 1).getName();
+                }
+                return !page.isEmpty();
+            }
+
+            @Override
+            public InventoryItem next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return page.get(index++);
+            }
+        };
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(pages,
+                Spliterator.ORDERED | Spliterator.NONNULL | Spliterator.DISTINCT), false);
+    }
+
+    // 17. Loads the whole catalog into a compact columnar store (primitive arrays, prices in
+    //     paise). Rows are copied straight from the ResultSet without InventoryItem objects.
+    public CompactItemStore loadCompactStore() throws SQLException {
+        String sql = "SELECT name, quantity, price FROM items ORDER BY name";
+        CompactItemStore store = new CompactItemStore(countItems());
+        long start = LOAD_COMPACT.start();
+
+        try (Connection conn = openConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(sql)) {
+
+            while (rs.next()) {
+                store.put(rs.getString(1), rs.getInt(2), CompactItemStore.toMinorUnits(rs.getDouble(3)));
+            }
+        } catch (SQLException e) {
+            LOAD_COMPACT.failure(start);
+            throw e;
+        }
+        LOAD_COMPACT.success(start, store.size(), 0);
+        return store;
+    }
+
+    // 18. Gives an item its barcode/SKU code (null removes it). Codes are unique: a code that
+    //     another item already has is rejected by idx_items_barcode with an SQLException.
+    //     Returns false if there is no such item. Published as a SAVED change with no delta.
+    public boolean assignBarcode(String name, String barcode) throws SQLException {
+        String sql = "UPDATE items SET barcode = ?, version = version + 1 WHERE name = ? " +
+                     "RETURNING quantity, price, version";
+        InventoryItem updated = null;
+        long start = ASSIGN_BARCODE.start();
+
+        try (Connection conn = openConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+            pstmt.setString(1, barcode);
+            pstmt.setString(2, name);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                if (rs.next()) {
+                    updated = new InventoryItem(name, rs.getInt(1), rs.getDouble(2), barcode, rs.getLong(3));
+                }
+            }
+        } catch (SQLException e) {
+            ASSIGN_BARCODE.failure(start);
+            throw e;
+        }
+        ASSIGN_BARCODE.success(start, 0, updated == null ? 0 : 1);
+        if (updated == null) {
+            return false;
+        }
+
+        BarcodeIndex index = barcodeIndex;
+        if (index != null) {
+            index.put(name, barcode, updated.getVersion());
+        }
+        fireItemChanged(new ItemChangeEvent(ItemChangeEvent.Kind.SAVED, name, 0, updated));
+        return true;
+    }
+
+    // 19. Exact scan resolution: the item with this code, or null. Never a fuzzy match.
+    //     With enableBarcodeIndex() a known code costs one hash lookup plus getItem (served
+    //     from memory by CachedInventoryManager) while the row is unchanged; unknown codes and
+    //     rows changed since are checked in the database, so codes assigned, moved or removed
+    //     by another process are still resolved correctly.
+    public InventoryItem findByBarcode(String barcode) throws SQLException {
+        InventoryItem item = findByBarcodeInIndex(barcode);
+        return item != null ? item : findByBarcodeInDatabase(barcode);
+    }
+
+    // Loads all assigned codes into memory; later assignments and deletions keep it current
+    public synchronized void enableBarcodeIndex() throws SQLException {
+        if (barcodeIndex != null) {
+            return;
+        }
+        BarcodeIndex index = new BarcodeIndex();
+        // Register first so deletions made while loading are not lost
+        addChangeListener(index);
+        List<InventoryItem> rows = new ArrayList<>();
+        try (Connection conn = openConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(
+                     "SELECT name, quantity, price, barcode, version FROM items WHERE barcode IS NOT NULL")) {
+            while (rs.next()) {
+                rows.add(new InventoryItem(rs.getString(1), rs.getInt(2), rs.getDouble(3), rs.getString(4), rs.getLong(5)));
+            }
+        }
+        index.load(rows);
+        barcodeIndex = index;
+    }
+
+    public boolean isBarcodeIndexEnabled() {
+        return barcodeIndex != null;
+    }
+
+    // Memory only: null when the index is off or does not know the code
+    InventoryItem findByBarcodeInIndex(String barcode) throws SQLException {
+        BarcodeIndex index = barcodeIndex;
+        if (index == null) {
+            return null;
+        }
+        String name = index.nameFor(barcode);
+        if (name == null) {
+            return null;
+        }
+        InventoryItem item = getItem(name);
+        if (item == null) {
+            // Deleted without an event reaching us (e.g. by another process)
+            index.remove(name);
+            return null;
+        }
+        if (!index.isCurrent(name, barcode, item.getVersion())) {
+            // The row changed since the code was recorded, maybe by another process moving or
+            // removing the code: the database decides (and updates the index)
+            return null;
+        }
+        return new InventoryItem(item.getName(), item.getQuantity(), item.getPrice(), barcode, item.getVersion());
+    }
+
+    InventoryItem findByBarcodeInDatabase(String barcode) throws SQLException {
+        String sql = "SELECT name, quantity, price, barcode, version FROM items WHERE barcode = ?";
+        InventoryItem item = null;
+        long start = BARCODE.start();
+
+        try (Connection conn = openConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+            pstmt.setString(1, barcode);
+
+            try (ResultSet rs = pstmt.executeQuery()) {
+                if (rs.next()) {
+                    item = new InventoryItem(rs.getString(1), rs.getInt(2), rs.getDouble(3), rs.getString(4), rs.getLong(5));
+                }
+            }
+        } catch (SQLException e) {
+            BARCODE.failure(start);
+            throw e;
+        }
+        BARCODE.success(start, item == null ? 0 : 1, 0);
+
+        BarcodeIndex index = barcodeIndex;
+        if (index != null) {
+            if (item != null) {
+                index.put(item.getName(), barcode, item.getVersion());
+            } else {
+                index.removeBarcode(barcode);
+            }
+        }
+        return item;
+    }
+
+    // 20. Basket checkout: sells every line in ONE transaction, all or nothing (see Checkout).
+    //     Lines for the same item are combined. Each line is sold at the item's current price.
+    public Checkout.Result checkout(List<Checkout.Line> basket) throws SQLException {
+        List<Checkout.Line> lines = Checkout.merge(basket);
+        Checkout.Result result;
+        long start = Checkout.CHECKOUT.start();
+
+        try (Connection conn = openConnection()) {
+            result = Checkout.run(conn, lines);
+        } catch (SQLException e) {
+            Checkout.CHECKOUT.failure(start);
+            throw e;
+        }
+        Checkout.CHECKOUT.success(start, lines.size(), result.isCommitted() ? lines.size() : 0);
+
+        if (result.isCommitted()) {
+            for (int i = 0; i < lines.size(); i++) {
+                Checkout.Line line = lines.get(i);
+                StockResult sold = result.getResults().get(i);
+                fireItemChanged(new ItemChangeEvent(ItemChangeEvent.Kind.SOLD, line.getName(), -line.getQuantity(),
+                        new InventoryItem(line.getName(), sold.getQuantity(), sold.getPrice(), null, sold.getVersion())));
+            }
+        }
+        return result;
+    }
+
+    // 21. Current version of an item, 0 if it does not exist. Reads a single integer, so a copy
+    //     held by a client (cache, screen, another terminal) can be checked without refetching it.
+    public long getVersion(String name) throws SQLException {
+        String sql = "SELECT version FROM items WHERE name = ?";
+        long version = 0L;
+        long start = VERSION.start();
+
+        try (Connection conn = openConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+            pstmt.setString(1, name);
+
+            try (ResultSet rs = pstmt.executeQuery()) {
+                if (rs.next()) {
+                    version = rs.getLong(1);
+                }
+            }
+        } catch (SQLException e) {
+            VERSION.failure(start);
+            throw e;
+        }
+        VERSION.success(start, version == 0L ? 0 : 1, 0);
+        return version;
+    }
+
+    // 22. Compare-and-set: stores the new quantity and price only if the row is still at the
+    //     version 'expected' was read with, i.e. nobody changed it in between. No lock is taken
+    //     while the caller decides; the check and the write are one UPDATE.
+    //     Returns the stored item with its new version, or null if the row changed or is gone.
+    public InventoryItem compareAndSet(InventoryItem expected, int newQuantity, double newPrice) throws SQLException {
+        if (expected.getVersion() <= 0) {
+            throw new IllegalArgumentException("'" + expected.getName() + "' was read without its version");
+        }
+        if (newQuantity < 0) {
+            throw new IllegalArgumentException("Quantity of '" + expected.getName() + "' must be >= 0");
+        }
+        String sql = "UPDATE items SET quantity = ?, price = ?, version = version + 1 " +
+                     "WHERE name = ? AND version = ? RETURNING version";
+        InventoryItem stored = null;
+        long start = CAS.start();
+
+        try (Connection conn = openConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+            pstmt.setInt(1, newQuantity);
+            pstmt.setDouble(2, newPrice);
+            pstmt.setString(3, expected.getName());
+            pstmt.setLong(4, expected.getVersion());
+
+            try (ResultSet rs = pstmt.executeQuery()) {
+                if (rs.next()) {
+                    stored = new InventoryItem(expected.getName(), newQuantity, newPrice, null, rs.getLong(1));
+                }
+            }
+        } catch (SQLException e) {
+            CAS.failure(start);
+            throw e;
+        }
+        CAS.success(start, 0, stored == null ? 0 : 1);
+
+        if (stored != null) {
+            // The version matched, so the row still held expected's quantity
+            fireItemChanged(new ItemChangeEvent(ItemChangeEvent.Kind.SAVED, stored.getName(),
+                    newQuantity - expected.getQuantity(), stored));
+        }
+        return stored;
+    }
+
+    // 23. Read-modify-write with optimistic concurrency. 'change' gets the current item and
+    //     returns the state to store (only quantity and price are used; null = leave it as it is).
+    //     If another writer got in first, the item is read again and 'change' applied again, up to
+    //     CAS_MAX_ATTEMPTS times with a short randomized backoff, so contending terminals neither
+    //     lose updates nor hold a database lock while deciding. 'change' may run more than once.
+    //     Returns the item as stored, or null if it does not exist.
+    public InventoryItem updateItem(String name, UnaryOperator<InventoryItem> change) throws SQLException {
+        for (int attempt = 1; ; attempt++) {
+            InventoryItem current = getItem(name);
+            if (current != null && current.getVersion() <= 0) {
+                current = queryItem(name);
+            }
+            if (current == null) {
+                return null;
+            }
+            InventoryItem wanted = change.apply(current);
+            if (wanted == null) {
+                return current;
+            }
+            InventoryItem stored = compareAndSet(current, wanted.getQuantity(), wanted.getPrice());
+            if (stored != null) {
+                return stored;
+            }
+            if (attempt >= CAS_MAX_ATTEMPTS) {
+                throw new SQLException("Gave up updating '" + name + "' after " + attempt +
+                        " attempts: it kept changing concurrently", "40001");
+            }
+            CAS_RETRY.success(CAS_RETRY.start(), 0, 0);
+            LockSupport.parkNanos(ThreadLocalRandom.current().nextLong(1, CAS_BACKOFF_NANOS << Math.min(attempt, 7)));
+        }
+    }
+}
@@ -0,0 +1,175 @@
+package service;
+
+import data.DatabaseConnection;
+import service.InventoryAnalytics.Valuation;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.List;
+
+// Running totals of the whole inventory: item count, units and value.
+// The numbers live in the one-row inventory_totals table, which triggers on 'items' update in
+// the same transaction as every insert, sale and delete (see DatabaseConnection), so reading
+// them is a single-row lookup however large the catalog is.
+// Each database of a sharded inventory keeps its own row; the methods here ask every
+// partition in parallel and add the answers up.
+// verify() compares them with a full scan, rebuild() resets them from one; both can be run
+// from the command line after a crash or a manual edit of the database:
+//   java -cp .:sqlite-jdbc.jar service.InventoryTotals [verify|rebuild]
+public class InventoryTotals {
+
+    private static final String REBUILD_SQL = "INSERT OR REPLACE INTO inventory_totals "
+            + "SELECT 1, COUNT(*), COALESCE(SUM(quantity), 0), "
+            + "COALESCE(SUM(quantity * CAST(ROUND(price * 100) AS INTEGER)), 0) FROM items";
+
+    private final InventoryManager manager;
+
+    public InventoryTotals(InventoryManager manager) {
+        this.manager = manager;
+    }
+
+    // Result of comparing the stored totals with the actual rows
+    public static final class Check {
+        private final Valuation stored;
+        private final Valuation actual;
+        private final boolean consistent;
+
+        Check(Valuation stored, Valuation actual) {
+            this.stored = stored;
+            this.actual = actual;
+            this.consistent = stored != null
+                    && stored.getItemCount() == actual.getItemCount()
+                    && stored.getTotalQuantity() == actual.getTotalQuantity()
+                    && stored.getTotalValueMinorUnits() == actual.getTotalValueMinorUnits();
+        }
+
+        private Check(Valuation stored, Valuation actual, boolean consistent) {
+            this.stored = stored;
+            this.actual = actual;
+            this.consistent = consistent;
+        }
+
+        // Partition checks added up; consistent only if every partition is
+        static Check combine(List<Check> checks) {
+            Valuation stored = new Valuation(0, 0, 0);
+            Valuation actual = new Valuation(0, 0, 0);
+            boolean consistent = true;
+            for (Check check : checks) {
+                stored = stored == null || check.stored == null ? null : stored.plus(check.stored);
+                actual = actual.plus(check.actual);
+                consistent &= check.consistent;
+            }
+            return new Check(stored, actual, consistent);
+        }
+
+        // Null if the totals row is missing (in any partition)
+        public Valuation getStored() {
+            return stored;
+        }
+
+        public Valuation getActual() {
+            return actual;
+        }
+
+        public boolean isConsistent() {
+            return consistent;
+        }
+
+        @Override
+        public String toString() {
+            return isConsistent()
+                    ? "Totals OK: " + actual
+                    : "Totals DRIFTED: stored " + stored + ", actual " + actual;
+        }
+    }
+
+    // 1. Current totals, O(1) per partition
+    public Valuation current() throws SQLException {
+        Valuation total = new Valuation(0, 0, 0);
+        for (Valuation part : ShardedInventoryManager.scatter(manager.partitions(), InventoryTotals::current)) {
+            total = total.plus(part);
+        }
+        return total;
+    }
+
+    // 2. Stored totals next to a full scan
+    public Check verify() throws SQLException {
+        return Check.combine(ShardedInventoryManager.scatter(manager.partitions(), InventoryTotals::verify));
+    }
+
+    // 3. Recomputes the totals from the rows and stores them.
+    //    Returns what verify() would have reported before the fix.
+    public Check rebuild() throws SQLException {
+        return Check.combine(ShardedInventoryManager.scatter(manager.partitions(), InventoryTotals::rebuild));
+    }
+
+    private static Valuation current(InventoryManager partition) throws SQLException {
+        String sql = "SELECT item_count, total_quantity, total_value_minor FROM inventory_totals WHERE id = 1";
+
+        try (Connection conn = partition.openConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql);
+             ResultSet rs = pstmt.executeQuery()) {
+            if (!rs.next()) {
+                throw new SQLException("inventory_totals is empty; run InventoryTotals rebuild");
+            }
+            return new Valuation(rs.getLong(1), rs.getLong(2), rs.getLong(3));
+        }
+    }
+
+    // One statement, so both sides see the same snapshot
+    private static Check verify(InventoryManager partition) throws SQLException {
+        String sql = "SELECT t.item_count, t.total_quantity, t.total_value_minor, a.c, a.q, a.v "
+                + "FROM (SELECT COUNT(*) AS c, COALESCE(SUM(quantity), 0) AS q, "
+                + "COALESCE(SUM(quantity * CAST(ROUND(price * 100) AS INTEGER)), 0) AS v FROM items) a "
+                + "LEFT JOIN inventory_totals t ON t.id = 1";
+
+        try (Connection conn = partition.openConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql);
+             ResultSet rs = pstmt.executeQuery()) {
+            rs.next();
+            rs.getLong(1);
+            Valuation stored = rs.wasNull() ? null : new Valuation(rs.getLong(1), rs.getLong(2), rs.getLong(3));
+            return new Check(stored, new Valuation(rs.getLong(4), rs.getLong(5), rs.getLong(6)));
+        }
+    }
+
+    // A single statement, so a concurrent write lands either before the scan or after the new totals
+    private static Check rebuild(InventoryManager partition) throws SQLException {
+        Check before = verify(partition);
+        try (Connection conn = partition.openConnection();
+             PreparedStatement pstmt = conn.prepareStatement(REBUILD_SQL)) {
+            pstmt.executeUpdate();
+        }
+        return before;
+    }
+
+    // Exit status: 0 = consistent (or rebuilt), 1 = drift found or SQL error, 2 = bad usage
+    public static void main(String[] args) {
+        String command = args.length > 0 ? args[0] : "verify";
+        if (!command.equals("verify") && !command.equals("rebuild")) {
+            System.err.println("Usage: InventoryTotals [verify|rebuild]");
+            System.exit(2);
+        }
+
+        int status = 0;
+        DatabaseConnection.initializeDatabase();
+        try {
+            InventoryTotals totals = new InventoryTotals(new InventoryManager());
+            if (command.equals("rebuild")) {
+                Check before = totals.rebuild();
+                System.out.println(before.isConsistent() ? before : before + " -> rebuilt: " + totals.current());
+            } else {
+                Check check = totals.verify();
+                System.out.println(check);
+                status = check.isConsistent() ? 0 : 1;
+            }
+        } catch (SQLException e) {
+            System.err.println("SQL Error: " + e.getMessage());
+            status = 1;
+        } finally {
+            DatabaseConnection.shutdown();
+        }
+        System.exit(status);
+    }
+}
@@ -0,0 +1,137 @@
+package service;
+
+import model.InventoryItem;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+// Bounded, thread-safe map of item name -> InventoryItem.
+// When the cache grows past maxEntries, a CLOCK sweep evicts entries that were not read
+// since the previous sweep, so hot items (the ones being scanned at the till) stay resident.
+// Each entry remembers when it was loaded or last confirmed, for version checks (see
+// CachedInventoryManager).
+public class ItemCache {
+
+    private static final class Entry {
+        final InventoryItem item;
+        volatile boolean referenced;
+        volatile long validatedAtNanos = System.nanoTime();
+
+        Entry(InventoryItem item) {
+            this.item = item;
+        }
+    }
+
+    private final ConcurrentHashMap<String, Entry> entries = new ConcurrentHashMap<>();
+    private final int maxEntries;
+    private Iterator<Entry> clockHand;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public ItemCache(int maxEntries) {
+        if (maxEntries <= 0) {
+            throw new IllegalArgumentException("Cache size must be > 0");
+        }
+        this.maxEntries = maxEntries;
+    }
+
+    public InventoryItem get(String name) {
+        Entry entry = entries.get(name);
+        if (entry == null) {
+            misses.increment();
+            return null;
+        }
+        entry.referenced = true;
+        hits.increment();
+        return entry.item;
+    }
+
+    public void put(InventoryItem item) {
+        entries.put(item.getName(), new Entry(item));
+        if (entries.size() > maxEntries) {
+            evict();
+        }
+    }
+
+    public void remove(String name) {
+        entries.remove(name);
+    }
+
+    // True if the entry was loaded or last confirmed more than 'ageNanos' ago
+    public boolean isOlderThan(String name, long ageNanos) {
+        Entry entry = entries.get(name);
+        return entry != null && System.nanoTime() - entry.validatedAtNanos > ageNanos;
+    }
+
+    // The entry was found to be current again
+    public void markValidated(String name) {
+        Entry entry = entries.get(name);
+        if (entry != null) {
+            entry.validatedAtNanos = System.nanoTime();
+        }
+    }
+
+    public void clear() {
+        entries.clear();
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public int getMaxEntries() {
+        return maxEntries;
+    }
+
+    private synchronized void evict() {
+        // Each entry gets a second chance: referenced ones are cleared, unreferenced ones go
+        while (entries.size() > maxEntries) {
+            if (clockHand == null || !clockHand.hasNext()) {
+                clockHand = entries.values().iterator();
+                if (!clockHand.hasNext()) {
+                    return;
+                }
+            }
+            Entry entry = clockHand.next();
+            if (entry.referenced) {
+                entry.referenced = false;
+            } else {
+                clockHand.remove();
+                evictions.increment();
+            }
+        }
+    }
+
+    public Stats getStats() {
+        return new Stats(entries.size(), maxEntries, hits.sum(), misses.sum(), evictions.sum());
+    }
+
+    public static final class Stats {
+        public final int size;
+        public final int maxEntries;
+        public final long hits;
+        public final long misses;
+        public final long evictions;
+
+        Stats(int size, int maxEntries, long hits, long misses, long evictions) {
+            this.size = size;
+            this.maxEntries = maxEntries;
+            this.hits = hits;
+            this.misses = misses;
+            this.evictions = evictions;
+        }
+
+        public double getHitRatio() {
+            long total = hits + misses;
+            return total == 0 ? 0.0 : (double) hits / total;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("ItemCache[size=%d/%d, hits=%d, misses=%d, hitRatio=%.1f%%, evictions=%d]",
+                    size, maxEntries, hits, misses, getHitRatio() * 100, evictions);
+        }
+    }
+}
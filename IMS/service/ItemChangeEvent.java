@@ -0,0 +1,87 @@
+package service;
+
+import model.InventoryItem;
+
+// Describes one successful stock mutation made through InventoryManager.
+public final class ItemChangeEvent {
+
+    public enum Kind {
+        SAVED,
+        SOLD,
+        DELETED
+    }
+
+    private final Kind kind;
+    private final String name;
+    private final int quantityDelta;
+    private final InventoryItem item;
+    private final long timestamp;
+    private final boolean created;
+    private final long version;
+
+    public ItemChangeEvent(Kind kind, String name, int quantityDelta, InventoryItem item) {
+        this(kind, name, quantityDelta, item, System.currentTimeMillis(), false);
+    }
+
+    public ItemChangeEvent(Kind kind, String name, int quantityDelta, InventoryItem item, boolean created) {
+        this(kind, name, quantityDelta, item, System.currentTimeMillis(), created);
+    }
+
+    public ItemChangeEvent(Kind kind, String name, int quantityDelta, InventoryItem item, long timestamp) {
+        this(kind, name, quantityDelta, item, timestamp, false);
+    }
+
+    public ItemChangeEvent(Kind kind, String name, int quantityDelta, InventoryItem item, long timestamp,
+                           boolean created) {
+        this(kind, name, quantityDelta, item, timestamp, created, item != null ? item.getVersion() : 0L);
+    }
+
+    // 'version' matters for DELETED events, which have no item: the version of the deleted row
+    public ItemChangeEvent(Kind kind, String name, int quantityDelta, InventoryItem item, long timestamp,
+                           boolean created, long version) {
+        this.kind = kind;
+        this.name = name;
+        this.quantityDelta = quantityDelta;
+        this.item = item;
+        this.timestamp = timestamp;
+        this.created = created;
+        this.version = version;
+    }
+
+    public Kind getKind() {
+        return kind;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    // Units added (positive) or removed (negative) by this change
+    public int getQuantityDelta() {
+        return quantityDelta;
+    }
+
+    // State of the item after the change, or null when it was deleted
+    public InventoryItem getItem() {
+        return item;
+    }
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    // Row version after the change; for a deletion, the version the row had. 0 if unknown.
+    public long getVersion() {
+        return version;
+    }
+
+    // True for a SAVED event that inserted the row: the item did not exist before
+    public boolean isCreated() {
+        return created;
+    }
+
+    @Override
+    public String toString() {
+        return "ItemChangeEvent[" + kind + (created ? " (new)" : "") + ", " + name + ", delta=" + quantityDelta + "]";
+    }
+}
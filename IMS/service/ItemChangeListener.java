@@ -0,0 +1,7 @@
+package service;
+
+// Notified after each successful write made through InventoryManager.
+// Called on the writing thread, so implementations must be quick and thread-safe.
+public interface ItemChangeListener {
+    void itemChanged(ItemChangeEvent event);
+}
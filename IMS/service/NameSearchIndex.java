@@ -0,0 +1,455 @@
+package service;
+
+import model.InventoryItem;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.Predicate;
+
+// In-memory substring/prefix index over item names, kept in sync through ItemChangeEvents.
+//  - A sorted map of lower-cased names answers prefix queries with a range scan.
+//  - Trigram posting lists answer substring queries of 3+ characters: only names that
+//    contain the rarest trigram of the query are checked.
+//  - Queries of 1-2 characters (the first keystrokes of a live search) use short lists of the
+//    first SHORT_LIST_SIZE names in the order search() ranks within a rank (shortest, then by
+//    name): one per first characters of a name, one per first characters of its later words and
+//    one per 1-2 character substring. search() takes hits from them rank by rank and stops at
+//    'limit', so it looks at about 'limit' names whatever the catalog size. Only if a list runs
+//    out first (a large 'limit') are all names ranked.
+// Matching is case-insensitive, like SQLite's LIKE for ASCII text. Lower-cased names are
+// computed once, when the item is added.
+public class NameSearchIndex implements ItemChangeListener {
+
+    private static final char KEY_SEPARATOR = '\u0000';
+    private static final int LOCK_STRIPES = 64;
+    // Names kept per 1-2 character key; enough for the default page of every caller
+    private static final int SHORT_LIST_SIZE = 256;
+    // Order of hits within one rank
+    private static final Comparator<String> SHORTEST_FIRST =
+            Comparator.comparingInt(String::length).thenComparing(Comparator.naturalOrder());
+
+    private static final class Entry {
+        final InventoryItem item;
+        final String lower;
+
+        Entry(InventoryItem item, String lower) {
+            this.item = item;
+            this.lower = lower;
+        }
+    }
+
+    private final Map<String, Entry> items = new ConcurrentHashMap<>();
+    // key = lowerName + '\0' + name, so different names with the same lower-case form stay distinct
+    private final ConcurrentSkipListMap<String, String> sortedNames = new ConcurrentSkipListMap<>();
+    private final Map<String, Set<String>> trigrams = new ConcurrentHashMap<>();
+    private final Map<String, TopNames> prefixes = new ConcurrentHashMap<>();
+    private final Map<String, TopNames> wordStarts = new ConcurrentHashMap<>();
+    private final Map<String, TopNames> shortGrams = new ConcurrentHashMap<>();
+
+    // A name's entry and postings change together under its stripe's lock
+    private final Object[] locks = new Object[LOCK_STRIPES];
+    // Until load() has run, names changed by events are remembered so the (older) snapshot
+    // cannot bring back a deleted item or an old row
+    private final Set<String> changedBeforeLoad = ConcurrentHashMap.newKeySet();
+    private volatile boolean loaded;
+
+    public NameSearchIndex() {
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            locks[i] = new Object();
+        }
+    }
+
+    // Bulk load of a snapshot taken after this index started receiving events.
+    // Entries added or deleted by a change event since then are newer and are kept.
+    public void load(Collection<InventoryItem> allItems) {
+        for (InventoryItem item : allItems) {
+            String name = item.getName();
+            synchronized (lockFor(name)) {
+                if (!changedBeforeLoad.contains(name) && !items.containsKey(name)) {
+                    add(item);
+                }
+            }
+        }
+        loaded = true;
+        changedBeforeLoad.clear();
+    }
+
+    public int size() {
+        return items.size();
+    }
+
+    @Override
+    public void itemChanged(ItemChangeEvent event) {
+        String name = event.getName();
+        synchronized (lockFor(name)) {
+            if (!loaded) {
+                changedBeforeLoad.add(name);
+            }
+            if (event.getKind() == ItemChangeEvent.Kind.DELETED) {
+                remove(name);
+            } else {
+                put(event.getItem());
+            }
+        }
+    }
+
+    public void put(InventoryItem item) {
+        synchronized (lockFor(item.getName())) {
+            add(item);
+        }
+    }
+
+    public void remove(String name) {
+        synchronized (lockFor(name)) {
+            Entry entry = items.remove(name);
+            if (entry == null) {
+                return;
+            }
+            sortedNames.remove(entry.lower + KEY_SEPARATOR + name);
+            for (String gram : trigramsOf(entry.lower)) {
+                unpost(trigrams, gram, name);
+            }
+            for (String key : prefixKeys(entry.lower)) {
+                unlist(prefixes, key, name);
+            }
+            for (String key : wordStartKeys(entry.lower)) {
+                unlist(wordStarts, key, name);
+            }
+            for (String key : shortGramKeys(entry.lower)) {
+                unlist(shortGrams, key, name);
+            }
+        }
+    }
+
+    // Caller holds the name's lock
+    private void add(InventoryItem item) {
+        String name = item.getName();
+        Entry previous = items.get(name);
+        String lower = previous != null ? previous.lower : lower(name);
+        items.put(name, new Entry(item, lower));
+        if (previous != null) {
+            // Same name, same postings
+            return;
+        }
+        sortedNames.put(lower + KEY_SEPARATOR + name, name);
+        for (String gram : trigramsOf(lower)) {
+            trigrams.computeIfAbsent(gram, g -> ConcurrentHashMap.newKeySet()).add(name);
+        }
+        for (String key : prefixKeys(lower)) {
+            prefixes.computeIfAbsent(key, k -> new TopNames(l -> l.startsWith(k))).add(name);
+        }
+        for (String key : wordStartKeys(lower)) {
+            wordStarts.computeIfAbsent(key, k -> new TopNames(l -> startsLaterWord(l, k))).add(name);
+        }
+        for (String key : shortGramKeys(lower)) {
+            shortGrams.computeIfAbsent(key, k -> new TopNames(l -> l.contains(k))).add(name);
+        }
+    }
+
+    private static void unpost(Map<String, Set<String>> postings, String key, String name) {
+        Set<String> names = postings.get(key);
+        if (names != null) {
+            names.remove(name);
+        }
+    }
+
+    private static void unlist(Map<String, TopNames> lists, String key, String name) {
+        TopNames names = lists.get(key);
+        if (names != null) {
+            names.remove(name);
+        }
+    }
+
+    // All items whose name contains the query, ordered by name (same result as LIKE '%query%')
+    public List<InventoryItem> findContaining(String query) {
+        String q = lower(query);
+        List<InventoryItem> result = new ArrayList<>();
+        for (String name : candidates(q)) {
+            Entry entry = items.get(name);
+            if (entry != null && entry.lower.contains(q)) {
+                result.add(entry.item);
+            }
+        }
+        result.sort(Comparator.comparing(InventoryItem::getName));
+        return result;
+    }
+
+    // Best 'limit' matches, ranked: exact name, then prefix, then word-start, then any substring.
+    // Within a rank, shorter names come first, then alphabetical order.
+    public List<InventoryItem> search(String query, int limit) {
+        String q = lower(query);
+        if (q.isEmpty() || limit <= 0) {
+            return new ArrayList<>();
+        }
+        if (q.length() < 3) {
+            return searchShort(q, limit);
+        }
+
+        return rankAll(candidates(q), q, limit);
+    }
+
+    // Ranks every candidate, keeping the best 'limit' in a bounded heap
+    private List<InventoryItem> rankAll(Collection<String> names, String q, int limit) {
+        // Max-heap of the current best 'limit' hits, so the worst one can be dropped cheaply
+        Comparator<Hit> ranking = Comparator.<Hit>comparingInt(h -> h.rank)
+                .thenComparingInt(h -> h.name.length())
+                .thenComparing(h -> h.name);
+        PriorityQueue<Hit> best = new PriorityQueue<>(limit + 1, ranking.reversed());
+
+        for (String name : names) {
+            Entry entry = items.get(name);
+            int rank = entry == null ? -1 : rank(entry.lower, q);
+            if (rank < 0) {
+                continue;
+            }
+            best.add(new Hit(name, rank));
+            if (best.size() > limit) {
+                best.poll();
+            }
+        }
+
+        List<Hit> hits = new ArrayList<>(best);
+        hits.sort(ranking);
+        List<InventoryItem> result = new ArrayList<>(hits.size());
+        for (Hit hit : hits) {
+            Entry entry = items.get(hit.name);
+            if (entry != null) {
+                result.add(entry.item);
+            }
+        }
+        return result;
+    }
+
+    // Each list is already in within-rank order, so hits are taken rank by rank until 'limit'.
+    // A list also holds names of better ranks; those were all taken before (or the limit was
+    // reached), so fewer than 'limit' names are ever skipped.
+    private List<InventoryItem> searchShort(String q, int limit) {
+        List<InventoryItem> result = new ArrayList<>(Math.min(limit, 64));
+        // Ranks 0 and 1: an exact match is the shortest name with the prefix, so it comes first
+        if (takeRanked(prefixes.get(q), q, 0, 1, limit, result)
+                && takeRanked(wordStarts.get(q), q, 2, 2, limit, result)
+                && takeRanked(shortGrams.get(q), q, 3, 3, limit, result)) {
+            return result;
+        }
+        // A list ended before 'limit' and holds only the first names of its key
+        return rankAll(items.keySet(), q, limit);
+    }
+
+    // False if the list was cut short and ran out before 'limit' hits
+    private boolean takeRanked(TopNames names, String q, int minRank, int maxRank,
+                               int limit, List<InventoryItem> result) {
+        if (names == null) {
+            return true;
+        }
+        synchronized (names) {
+            for (int i = 0; i < names.size && result.size() < limit; i++) {
+                Entry entry = items.get(names.names[i]);
+                if (entry != null) {
+                    int rank = rank(entry.lower, q);
+                    if (rank >= minRank && rank <= maxRank) {
+                        result.add(entry.item);
+                    }
+                }
+            }
+            return result.size() >= limit || !names.truncated;
+        }
+    }
+
+    // 0 = exact, 1 = prefix, 2 = starts a later word, 3 = elsewhere, -1 = no match
+    private static int rank(String lower, String q) {
+        if (lower.startsWith(q)) {
+            return lower.length() == q.length() ? 0 : 1;
+        }
+        int pos = lower.indexOf(q, 1);
+        if (pos < 0) {
+            return -1;
+        }
+        for (; pos >= 0; pos = lower.indexOf(q, pos + 1)) {
+            if (!Character.isLetterOrDigit(lower.charAt(pos - 1))) {
+                return 2;
+            }
+        }
+        return 3;
+    }
+
+    // Names starting with the prefix, in name order
+    public List<InventoryItem> findByPrefix(String prefix, int limit) {
+        String p = lower(prefix);
+        List<InventoryItem> result = new ArrayList<>();
+        for (String name : sortedNames.subMap(p, p + Character.MAX_VALUE).values()) {
+            if (result.size() >= limit) {
+                break;
+            }
+            Entry entry = items.get(name);
+            if (entry != null) {
+                result.add(entry.item);
+            }
+        }
+        return result;
+    }
+
+    private Collection<String> candidates(String q) {
+        if (q.isEmpty()) {
+            return sortedNames.values();
+        }
+        if (q.length() < 3) {
+            // The short lists only hold the first names of each key
+            return items.keySet();
+        }
+        Set<String> smallest = null;
+        for (String gram : trigramsOf(q)) {
+            Set<String> postings = trigrams.get(gram);
+            if (postings == null) {
+                return new ArrayList<>();
+            }
+            if (smallest == null || postings.size() < smallest.size()) {
+                smallest = postings;
+            }
+        }
+        return smallest;
+    }
+
+    private static List<String> trigramsOf(String lower) {
+        List<String> grams = new ArrayList<>(Math.max(0, lower.length() - 2));
+        for (int i = 0; i + 3 <= lower.length(); i++) {
+            grams.add(lower.substring(i, i + 3));
+        }
+        return grams;
+    }
+
+    // The first 1 and 2 characters
+    private static List<String> prefixKeys(String lower) {
+        List<String> keys = new ArrayList<>(2);
+        for (int n = 1; n <= 2 && n <= lower.length(); n++) {
+            keys.add(lower.substring(0, n));
+        }
+        return keys;
+    }
+
+    // The first 1 and 2 characters at each word start after the first character (may repeat;
+    // adding or removing a name twice is harmless)
+    private static List<String> wordStartKeys(String lower) {
+        List<String> keys = new ArrayList<>();
+        for (int i = 1; i < lower.length(); i++) {
+            if (!Character.isLetterOrDigit(lower.charAt(i - 1))) {
+                keys.add(lower.substring(i, i + 1));
+                if (i + 2 <= lower.length()) {
+                    keys.add(lower.substring(i, i + 2));
+                }
+            }
+        }
+        return keys;
+    }
+
+    // Every substring of 1 and 2 characters (may repeat, like wordStartKeys)
+    private static List<String> shortGramKeys(String lower) {
+        List<String> keys = new ArrayList<>(2 * lower.length());
+        for (int i = 0; i < lower.length(); i++) {
+            keys.add(lower.substring(i, i + 1));
+            if (i + 2 <= lower.length()) {
+                keys.add(lower.substring(i, i + 2));
+            }
+        }
+        return keys;
+    }
+
+    // True if a word after the first starts with 'key'
+    private static boolean startsLaterWord(String lower, String key) {
+        for (int pos = lower.indexOf(key, 1); pos >= 0; pos = lower.indexOf(key, pos + 1)) {
+            if (!Character.isLetterOrDigit(lower.charAt(pos - 1))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private Object lockFor(String name) {
+        return locks[(name.hashCode() & 0x7fffffff) % LOCK_STRIPES];
+    }
+
+    private static String lower(String s) {
+        return s.toLowerCase(Locale.ROOT);
+    }
+
+    // The first SHORT_LIST_SIZE names of one 1-2 character key, in SHORTEST_FIRST order.
+    // Removing a name keeps the list a prefix of the key's full order; once names were left
+    // out ('truncated'), names sorting after the last one kept are not added. A list that
+    // shrinks to half is filled again from all names. Guarded by itself.
+    private final class TopNames {
+        // Whether a lower-cased name belongs under this key
+        private final Predicate<String> matches;
+        private String[] names = new String[4];
+        private int size;
+        private boolean truncated;
+
+        TopNames(Predicate<String> matches) {
+            this.matches = matches;
+        }
+
+        synchronized void add(String name) {
+            // Most names of a common key sort after a full list: one comparison rejects them
+            boolean full = size == SHORT_LIST_SIZE;
+            if ((full || truncated) && size > 0 && SHORTEST_FIRST.compare(name, names[size - 1]) > 0) {
+                truncated = true;
+                return;
+            }
+            int pos = Arrays.binarySearch(names, 0, size, name, SHORTEST_FIRST);
+            if (pos >= 0) {
+                return;
+            }
+            pos = -pos - 1;
+            if (full) {
+                truncated = true;
+                names[--size] = null;
+            }
+            if (size == names.length) {
+                names = Arrays.copyOf(names, Math.min(names.length * 2, SHORT_LIST_SIZE));
+            }
+            System.arraycopy(names, pos, names, pos + 1, size - pos);
+            names[pos] = name;
+            size++;
+        }
+
+        synchronized void remove(String name) {
+            int pos = Arrays.binarySearch(names, 0, size, name, SHORTEST_FIRST);
+            if (pos < 0) {
+                return;
+            }
+            System.arraycopy(names, pos + 1, names, pos, size - pos - 1);
+            names[--size] = null;
+            if (truncated && size < SHORT_LIST_SIZE / 2) {
+                refill();
+            }
+        }
+
+        // Caller holds this list's lock. Names added meanwhile are added again, which is a no-op.
+        private void refill() {
+            names = new String[4];
+            size = 0;
+            truncated = false;
+            for (Map.Entry<String, Entry> entry : items.entrySet()) {
+                if (matches.test(entry.getValue().lower)) {
+                    add(entry.getKey());
+                }
+            }
+        }
+    }
+
+    private static final class Hit {
+        final String name;
+        final int rank;
+
+        Hit(String name, int rank) {
+            this.name = name;
+            this.rank = rank;
+        }
+    }
+}
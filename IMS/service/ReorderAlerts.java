@@ -0,0 +1,505 @@
+package service;
+
+import model.InventoryItem;
+import metrics.InventoryMetrics;
+import metrics.OperationMetrics;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.TreeSet;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+// Low-stock alerts kept current by change events, so nothing has to poll getAllItems.
+// An item needs reordering when its quantity is at or below its reorder point: its own point if
+// one was set (stored in 'reorder_points'), otherwise the default point.
+//  - Every save, sale and delete re-evaluates just that item, O(log n). An alert is RAISED when
+//    the item drops to its point and CLEARED when it is restocked above it (or deleted), once
+//    per crossing, however many sales happen in between.
+//  - Two ordered indexes answer "what needs reordering" in O(log n + k) for k answers: items on
+//    the default point ordered by quantity, items with their own point ordered by margin
+//    (quantity - point). Changing the default point only visits the items that cross it.
+// Loading reads the catalog once. Changes made by other processes arrive through itemChanged
+// when the caller forwards them (e.g. from a ChangeFeed); reload() rebuilds from the database.
+// Changes are ordered by row version: one no newer than what is known is ignored, so a feed
+// repeating a change made here, or delivering it late, applies nothing twice. Deleted items
+// leave a marker with the deleted row's version, so a late change cannot bring them back.
+public final class ReorderAlerts implements ItemChangeListener, AutoCloseable {
+
+    // Default point until setDefaultReorderPoint, tunable with -Dims.reorder.defaultPoint=...
+    public static final int DEFAULT_REORDER_POINT = Integer.getInteger("ims.reorder.defaultPoint", 5);
+
+    private static final OperationMetrics EVALUATE = InventoryMetrics.operation("reorder.evaluate");
+    // Deletion markers kept; late copies of changes arrive within a feed poll or two
+    private static final int DELETION_MARKERS = 4096;
+
+    // One transition of an item into or out of "needs reordering"
+    public static final class Alert {
+
+        public enum Kind {
+            RAISED,
+            CLEARED
+        }
+
+        private final Kind kind;
+        private final String name;
+        private final int quantity;
+        private final int reorderPoint;
+        private final long timestamp;
+
+        Alert(Kind kind, String name, int quantity, int reorderPoint, long timestamp) {
+            this.kind = kind;
+            this.name = name;
+            this.quantity = quantity;
+            this.reorderPoint = reorderPoint;
+            this.timestamp = timestamp;
+        }
+
+        public Kind getKind() {
+            return kind;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        // Stock when the alert was raised or cleared (0 for a deleted item)
+        public int getQuantity() {
+            return quantity;
+        }
+
+        public int getReorderPoint() {
+            return reorderPoint;
+        }
+
+        // Units needed to get back above the reorder point
+        public int getShortfall() {
+            return Math.max(0, reorderPoint - quantity + 1);
+        }
+
+        // Time of the crossing; for open alerts, when they were raised
+        public long getTimestamp() {
+            return timestamp;
+        }
+
+        @Override
+        public String toString() {
+            return kind + ": " + name + " (" + quantity + " left, reorder point " + reorderPoint + ")";
+        }
+    }
+
+    // Notified of each alert as the change that caused it is applied.
+    // Called on the writing thread, so implementations must be quick and thread-safe.
+    public interface Listener {
+        void reorderAlert(Alert alert);
+    }
+
+    // What is known about one item
+    private static final class State {
+        int quantity;
+        long version;
+        // Own reorder point, or -1 for the default one
+        int point = -1;
+        // When its alert was raised, 0 while it is above its point
+        long raisedAt;
+        // Value of changeCount at the last event for it, so loading never overwrites newer state
+        long changedAt;
+    }
+
+    // Index entry: a quantity (default index) or margin (own-point index), then the name.
+    // A null name sorts after every name with the same value, for range bounds.
+    private record Key(long value, String name) {
+    }
+
+    // One item as read by load()
+    private record Row(String name, int quantity, long version, int point) {
+    }
+
+    private static final Comparator<Key> KEY_ORDER = Comparator.comparingLong(Key::value)
+            .thenComparing(Key::name, Comparator.nullsLast(Comparator.naturalOrder()));
+
+    private final InventoryManager manager;
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+    // Guarded by 'this'
+    private final Map<String, State> states = new HashMap<>();
+    private final NavigableSet<Key> byQuantity = new TreeSet<>(KEY_ORDER);
+    private final NavigableSet<Key> byMargin = new TreeSet<>(KEY_ORDER);
+    // Name -> version of the deleted row, oldest deletion first
+    private final Map<String, Long> deletedVersions = new LinkedHashMap<>(16, 0.75f, false) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Long> eldest) {
+            return size() > DELETION_MARKERS;
+        }
+    };
+    private int defaultPoint;
+    private int openCount;
+    private long changeCount;
+    // Set while the initial load runs, which opens alerts without sending them
+    private boolean quiet;
+
+    private ReorderAlerts(InventoryManager manager, int defaultPoint) {
+        if (defaultPoint < 0) {
+            throw new IllegalArgumentException("Reorder point must be >= 0");
+        }
+        this.manager = manager;
+        this.defaultPoint = defaultPoint;
+    }
+
+    public static ReorderAlerts open(InventoryManager manager) throws SQLException {
+        return open(manager, DEFAULT_REORDER_POINT);
+    }
+
+    // Items already at or below their point when loading are open alerts, but no event is sent
+    // for them; listeners added afterwards can call openAlerts() to catch up.
+    public static ReorderAlerts open(InventoryManager manager, int defaultPoint) throws SQLException {
+        ReorderAlerts alerts = new ReorderAlerts(manager, defaultPoint);
+        for (InventoryManager partition : manager.partitions()) {
+            install(partition);
+        }
+        // Register first so changes made while loading are not lost
+        manager.addChangeListener(alerts);
+        try {
+            alerts.load(false);
+        } catch (SQLException | RuntimeException e) {
+            manager.removeChangeListener(alerts);
+            throw e;
+        }
+        return alerts;
+    }
+
+    // Per-item reorder points live next to the item; a deleted item loses its point
+    private static void install(InventoryManager partition) throws SQLException {
+        try (Connection conn = partition.openConnection();
+             Statement stmt = conn.createStatement()) {
+            stmt.execute("CREATE TABLE IF NOT EXISTS reorder_points (" +
+                         "name TEXT PRIMARY KEY," +
+                         "reorder_point INTEGER NOT NULL CHECK (reorder_point >= 0))");
+            stmt.execute("CREATE TRIGGER IF NOT EXISTS items_reorder_delete AFTER DELETE ON items BEGIN " +
+                         "DELETE FROM reorder_points WHERE name = OLD.name; END");
+        }
+    }
+
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    @Override
+    public void close() {
+        manager.removeChangeListener(this);
+        listeners.clear();
+    }
+
+    // --- Rules ---
+
+    public synchronized int getDefaultReorderPoint() {
+        return defaultPoint;
+    }
+
+    // Applies to every item without its own point. Only the items between the old and the new
+    // point change state, and only they are visited. Kept in memory, not in the database.
+    public synchronized void setDefaultReorderPoint(int point) {
+        if (point < 0) {
+            throw new IllegalArgumentException("Reorder point must be >= 0");
+        }
+        int old = defaultPoint;
+        if (point == old) {
+            return;
+        }
+        defaultPoint = point;
+        long now = System.currentTimeMillis();
+        // Quantities in (min, max] cross the point one way or the other
+        NavigableSet<Key> crossing = byQuantity.subSet(
+                new Key(Math.min(old, point), null), false, new Key(Math.max(old, point), null), true);
+        List<String> names = new ArrayList<>();
+        for (Key key : crossing) {
+            names.add(key.name());
+        }
+        for (String name : names) {
+            evaluate(name, states.get(name), now);
+        }
+    }
+
+    // Own reorder point of an item, or -1 if it uses the default one
+    public synchronized int getReorderPoint(String name) {
+        State state = states.get(name);
+        return state == null ? -1 : state.point;
+    }
+
+    // Gives 'name' its own reorder point (-1 = back to the default). Stored with the item.
+    // Returns false if there is no such item.
+    public boolean setReorderPoint(String name, int point) throws SQLException {
+        if (point < -1) {
+            throw new IllegalArgumentException("Reorder point must be >= 0, or -1 for the default");
+        }
+        InventoryItem item = manager.getItem(name);
+        if (item == null) {
+            return false;
+        }
+        String sql = point < 0
+                ? "DELETE FROM reorder_points WHERE name = ?"
+                : "INSERT INTO reorder_points (name, reorder_point) VALUES (?, ?) "
+                + "ON CONFLICT(name) DO UPDATE SET reorder_point = excluded.reorder_point";
+        try (Connection conn = manager.partitionFor(name).openConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setString(1, name);
+            if (point >= 0) {
+                pstmt.setInt(2, point);
+            }
+            pstmt.executeUpdate();
+        }
+        synchronized (this) {
+            State state = states.get(name);
+            if (state == null) {
+                state = new State();
+                state.quantity = item.getQuantity();
+                state.version = item.getVersion();
+            } else {
+                unindex(name, state);
+            }
+            state.point = point;
+            state.changedAt = ++changeCount;
+            put(name, state, System.currentTimeMillis());
+        }
+        return true;
+    }
+
+    // --- Queries ---
+
+    // Items at or below their reorder point, most short (smallest margin) first, at most 'limit'.
+    // Walks the two indexes from their low ends, so the cost depends on the answer, not the catalog.
+    public synchronized List<Alert> openAlerts(int limit) {
+        if (limit <= 0) {
+            throw new IllegalArgumentException("limit must be > 0");
+        }
+        List<Alert> open = new ArrayList<>(Math.min(limit, openCount));
+        Iterator<Key> defaults = byQuantity.headSet(new Key(defaultPoint, null), true).iterator();
+        Iterator<Key> own = byMargin.headSet(new Key(0, null), true).iterator();
+        Key nextDefault = defaults.hasNext() ? defaults.next() : null;
+        Key nextOwn = own.hasNext() ? own.next() : null;
+        while (open.size() < limit && (nextDefault != null || nextOwn != null)) {
+            boolean takeDefault = nextOwn == null || (nextDefault != null
+                    && Long.compare(nextDefault.value() - defaultPoint, nextOwn.value()) <= 0);
+            String name;
+            if (takeDefault) {
+                name = nextDefault.name();
+                nextDefault = defaults.hasNext() ? defaults.next() : null;
+            } else {
+                name = nextOwn.name();
+                nextOwn = own.hasNext() ? own.next() : null;
+            }
+            State state = states.get(name);
+            open.add(new Alert(Alert.Kind.RAISED, name, state.quantity, pointOf(state), state.raisedAt));
+        }
+        return open;
+    }
+
+    // Number of open alerts, O(1)
+    public synchronized int openCount() {
+        return openCount;
+    }
+
+    public synchronized boolean needsReorder(String name) {
+        State state = states.get(name);
+        return state != null && state.raisedAt != 0;
+    }
+
+    // --- Keeping current ---
+
+    @Override
+    public void itemChanged(ItemChangeEvent event) {
+        long start = EVALUATE.start();
+        String name = event.getName();
+        long version = event.getVersion();
+        synchronized (this) {
+            changeCount++;
+            State state = states.get(name);
+            if (event.getKind() == ItemChangeEvent.Kind.DELETED || event.getItem() == null) {
+                if (version > 0 && state != null && version < state.version) {
+                    // Deletion of an earlier row of the same name, recreated since
+                    EVALUATE.success(start, 0, 0);
+                    return;
+                }
+                markDeleted(name, version > 0 ? version : state != null ? state.version : 0);
+                remove(name, event.getTimestamp());
+            } else {
+                if (version > 0 && (state != null ? version <= state.version : isDeleted(name, version))) {
+                    // Already applied (a feed repeating a change made here) or older than what is
+                    // known; a late change to a deleted item must not bring it back
+                    EVALUATE.success(start, 0, 0);
+                    return;
+                }
+                if (state == null) {
+                    state = new State();
+                } else {
+                    unindex(name, state);
+                }
+                state.quantity = event.getItem().getQuantity();
+                state.version = Math.max(state.version, version);
+                state.changedAt = changeCount;
+                put(name, state, event.getTimestamp());
+            }
+        }
+        EVALUATE.success(start, 0, 0);
+    }
+
+    // Rebuilds everything from the database, e.g. after a ChangeFeed reported missed changes.
+    // Sends the alerts for items whose state differs from before.
+    public void reload() throws SQLException {
+        load(true);
+    }
+
+    // Items changed by an event while reading keep the event's state; items deleted since the
+    // row was read stay deleted
+    private void load(boolean announce) throws SQLException {
+        long startCount;
+        synchronized (this) {
+            startCount = changeCount;
+        }
+        Map<String, Row> rows = new HashMap<>();
+        for (List<Row> part : ShardedInventoryManager.scatter(manager.partitions(), ReorderAlerts::readRows)) {
+            for (Row row : part) {
+                rows.put(row.name(), row);
+            }
+        }
+
+        long now = System.currentTimeMillis();
+        synchronized (this) {
+            quiet = !announce;
+            try {
+                for (String name : new ArrayList<>(states.keySet())) {
+                    if (!rows.containsKey(name) && states.get(name).changedAt <= startCount) {
+                        remove(name, now);
+                    }
+                }
+                for (Row row : rows.values()) {
+                    State state = states.get(row.name());
+                    if (state == null) {
+                        if (isDeleted(row.name(), row.version())) {
+                            continue;
+                        }
+                        state = new State();
+                    } else if (state.changedAt > startCount) {
+                        continue;
+                    } else {
+                        unindex(row.name(), state);
+                    }
+                    state.quantity = row.quantity();
+                    state.version = row.version();
+                    state.point = row.point();
+                    put(row.name(), state, now);
+                }
+            } finally {
+                quiet = false;
+            }
+        }
+    }
+
+    // Every item with its version and own reorder point (-1 if none), in one consistent read
+    private static List<Row> readRows(InventoryManager partition) throws SQLException {
+        String sql = "SELECT i.name, i.quantity, i.version, p.reorder_point " +
+                     "FROM items i LEFT JOIN reorder_points p ON p.name = i.name";
+        List<Row> rows = new ArrayList<>();
+        try (Connection conn = partition.openConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(sql)) {
+            while (rs.next()) {
+                int point = rs.getInt(4);
+                rows.add(new Row(rs.getString(1), rs.getInt(2), rs.getLong(3), rs.wasNull() ? -1 : point));
+            }
+        }
+        return rows;
+    }
+
+    private void markDeleted(String name, long version) {
+        Long known = deletedVersions.remove(name);
+        // Re-inserted, so the newest deletions are evicted last
+        deletedVersions.put(name, known != null ? Math.max(known, version) : version);
+    }
+
+    // True if 'name' was deleted at or after row 'version'
+    private boolean isDeleted(String name, long version) {
+        Long deleted = deletedVersions.get(name);
+        return deleted != null && version <= deleted;
+    }
+
+    // --- Index maintenance (callers hold the lock) ---
+
+    private int pointOf(State state) {
+        return state.point >= 0 ? state.point : defaultPoint;
+    }
+
+    private boolean isLow(State state) {
+        return state.quantity <= pointOf(state);
+    }
+
+    private void index(String name, State state) {
+        if (state.point >= 0) {
+            byMargin.add(new Key((long) state.quantity - state.point, name));
+        } else {
+            byQuantity.add(new Key(state.quantity, name));
+        }
+    }
+
+    private void unindex(String name, State state) {
+        if (state.point >= 0) {
+            byMargin.remove(new Key((long) state.quantity - state.point, name));
+        } else {
+            byQuantity.remove(new Key(state.quantity, name));
+        }
+    }
+
+    // Stores an already unindexed state and sends an alert if it crossed its point
+    private void put(String name, State state, long now) {
+        states.put(name, state);
+        index(name, state);
+        evaluate(name, state, now);
+    }
+
+    private void evaluate(String name, State state, long now) {
+        boolean low = isLow(state);
+        if (low && state.raisedAt == 0) {
+            state.raisedAt = now;
+            openCount++;
+            fire(new Alert(Alert.Kind.RAISED, name, state.quantity, pointOf(state), now));
+        } else if (!low && state.raisedAt != 0) {
+            state.raisedAt = 0;
+            openCount--;
+            fire(new Alert(Alert.Kind.CLEARED, name, state.quantity, pointOf(state), now));
+        }
+    }
+
+    private void remove(String name, long now) {
+        State state = states.remove(name);
+        if (state == null) {
+            return;
+        }
+        unindex(name, state);
+        if (state.raisedAt != 0) {
+            openCount--;
+            fire(new Alert(Alert.Kind.CLEARED, name, 0, pointOf(state), now));
+        }
+    }
+
+    // Under the lock, so every listener sees each item's alerts in order
+    private void fire(Alert alert) {
+        if (quiet) {
+            return;
+        }
+        for (Listener listener : listeners) {
+            listener.reorderAlert(alert);
+        }
+    }
+}
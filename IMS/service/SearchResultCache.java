@@ -0,0 +1,71 @@
+package service;
+
+import model.InventoryItem;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Short-lived results of searchItems, keyed by the search text.
+// An entry is served only while it is younger than the TTL and no change has been published
+// since it was read, so writes made through this process show up at once; the TTL bounds how
+// long a change made by another process on the same database can stay invisible.
+// When full, expired and outdated entries are dropped first, then everything.
+final class SearchResultCache {
+
+    private static final class Entry {
+        final List<InventoryItem> items;
+        final long generation;
+        final long expiresAtNanos;
+
+        Entry(List<InventoryItem> items, long generation, long expiresAtNanos) {
+            this.items = items;
+            this.generation = generation;
+            this.expiresAtNanos = expiresAtNanos;
+        }
+
+        boolean isValid(long currentGeneration, long nowNanos) {
+            return generation == currentGeneration && nowNanos - expiresAtNanos < 0;
+        }
+    }
+
+    private final ConcurrentHashMap<String, Entry> entries = new ConcurrentHashMap<>();
+    private final long ttlNanos;
+    private final int maxEntries;
+
+    SearchResultCache(long ttlNanos, int maxEntries) {
+        if (ttlNanos <= 0 || maxEntries <= 0) {
+            throw new IllegalArgumentException("TTL and size of the search cache must be > 0");
+        }
+        this.ttlNanos = ttlNanos;
+        this.maxEntries = maxEntries;
+    }
+
+    // A copy of the cached result, or null
+    List<InventoryItem> get(String query, long currentGeneration) {
+        Entry entry = entries.get(query);
+        if (entry == null) {
+            return null;
+        }
+        if (!entry.isValid(currentGeneration, System.nanoTime())) {
+            entries.remove(query, entry);
+            return null;
+        }
+        return new ArrayList<>(entry.items);
+    }
+
+    // 'generation' must have been taken before the query ran
+    void put(String query, List<InventoryItem> items, long generation) {
+        entries.put(query, new Entry(new ArrayList<>(items), generation, System.nanoTime() + ttlNanos));
+        if (entries.size() > maxEntries) {
+            long now = System.nanoTime();
+            entries.values().removeIf(e -> e.generation < generation || now - e.expiresAtNanos >= 0);
+            if (entries.size() > maxEntries) {
+                entries.clear();
+            }
+        }
+    }
+
+    void clear() {
+        entries.clear();
+    }
+}
@@ -0,0 +1,586 @@
+package service;
+
+import model.CompactItemStore;
+import model.InventoryItem;
+import data.ConnectionPool;
+import data.DatabaseConnection;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.UnaryOperator;
+import java.util.stream.Stream;
+
+// Spreads the catalog over several SQLite files ("shards"), each with its own connection pool,
+// so writers to different shards never wait on the same database lock.
+//  - Single-item calls (add, sell, get, delete, price) go to the one shard that owns the name.
+//  - Catalog-wide reads (listing, search, pages, counts) ask every shard in parallel and merge
+//    the name-ordered results, so callers see one catalog in the usual order.
+//  - Change events of all shards are re-published by this manager, so caches, indexes,
+//    journals and the UI can listen here as they would on a single InventoryManager.
+// The shard of an item depends on the shard count and the router; changing either needs the
+// data to be redistributed first.
+public final class ShardedInventoryManager extends InventoryManager implements AutoCloseable {
+
+    private static final Comparator<InventoryItem> BY_NAME = Comparator.comparing(InventoryItem::getName);
+    // Boundary-refining rounds in getItemsAt; names hash evenly, so one or two usually suffice
+    private static final int LOCATE_ROUNDS = 4;
+
+    // Chooses the shard for an item name
+    @FunctionalInterface
+    public interface ShardRouter {
+        int shardFor(String name, int shardCount);
+
+        // Spreads items evenly by a hash of the whole name
+        static ShardRouter byNameHash() {
+            return (name, shardCount) -> Math.floorMod(mix(name.hashCode()), shardCount);
+        }
+
+        // Keeps all items of one store together: names look like "<storeId><separator><item>",
+        // e.g. "BLR01/Laptop Pro"; names without the separator are routed by full name
+        static ShardRouter byStorePrefix(char separator) {
+            return (name, shardCount) -> {
+                int end = name.indexOf(separator);
+                String key = end > 0 ? name.substring(0, end) : name;
+                return Math.floorMod(mix(key.hashCode()), shardCount);
+            };
+        }
+
+        private static int mix(int h) {
+            h *= 0x9E3779B9;
+            return h ^ (h >>> 16);
+        }
+    }
+
+    // Like Function, but for the checked SQLException thrown by InventoryManager
+    @FunctionalInterface
+    interface SqlFunction<T, R> {
+        R apply(T target) throws SQLException;
+    }
+
+    private final List<InventoryManager> shards;
+    private final List<ConnectionPool> pools;
+    private final ShardRouter router;
+    private List<WriteQueue> writeQueues;
+
+    // 'urlPattern' contains %d for the shard number, e.g. "jdbc:sqlite:inventory-shard-%d.db"
+    public ShardedInventoryManager(String urlPattern, int shardCount) {
+        this(urlPattern, shardCount, ShardRouter.byNameHash());
+    }
+
+    public ShardedInventoryManager(String urlPattern, int shardCount, ShardRouter router) {
+        super(null, false);
+        if (shardCount <= 0) {
+            throw new IllegalArgumentException("Shard count must be > 0");
+        }
+        this.router = router;
+        List<InventoryManager> managers = new ArrayList<>(shardCount);
+        List<ConnectionPool> shardPools = new ArrayList<>(shardCount);
+        for (int i = 0; i < shardCount; i++) {
+            ConnectionPool pool = DatabaseConnection.newPool(String.format(urlPattern, i));
+            InventoryManager shard = new InventoryManager(pool);
+            shard.addChangeListener(this::fireItemChanged);
+            shardPools.add(pool);
+            managers.add(shard);
+        }
+        this.shards = List.copyOf(managers);
+        this.pools = List.copyOf(shardPools);
+    }
+
+    public int getShardCount() {
+        return shards.size();
+    }
+
+    public InventoryManager shardFor(String name) {
+        return shards.get(router.shardFor(name, shards.size()));
+    }
+
+    @Override
+    public List<InventoryManager> partitions() {
+        return shards;
+    }
+
+    @Override
+    InventoryManager partitionFor(String name) {
+        return shardFor(name);
+    }
+
+    // There is no single database behind this manager; work on partitions() instead
+    @Override
+    protected Connection openConnection() throws SQLException {
+        throw new SQLException("A sharded inventory has no single database; use partitions()");
+    }
+
+    // One group-commit writer per shard, started on first use. Pass the result to
+    // AsyncInventoryService.useWriteQueue so each write goes to its shard's writer.
+    public synchronized Function<String, WriteQueue> writeQueues() {
+        if (writeQueues == null) {
+            List<WriteQueue> queues = new ArrayList<>(shards.size());
+            for (InventoryManager shard : shards) {
+                queues.add(new WriteQueue(shard));
+            }
+            writeQueues = List.copyOf(queues);
+        }
+        List<WriteQueue> queues = writeQueues;
+        return name -> queues.get(router.shardFor(name, queues.size()));
+    }
+
+    // --- Single-item operations: routed to the owning shard ---
+
+    @Override
+    public boolean removeItem(String name) throws SQLException {
+        return shardFor(name).removeItem(name);
+    }
+
+    @Override
+    public double getItemPrice(String name) throws SQLException {
+        return shardFor(name).getItemPrice(name);
+    }
+
+    @Override
+    public int addStock(String name, int quantity, double price) throws SQLException {
+        return shardFor(name).addStock(name, quantity, price);
+    }
+
+    @Override
+    public StockResult sellStock(String name, int quantityToSell, double newPrice) throws SQLException {
+        return shardFor(name).sellStock(name, quantityToSell, newPrice);
+    }
+
+    @Override
+    public InventoryItem getItem(String name) throws SQLException {
+        return shardFor(name).getItem(name);
+    }
+
+    @Override
+    public long getVersion(String name) throws SQLException {
+        return shardFor(name).getVersion(name);
+    }
+
+    @Override
+    public InventoryItem compareAndSet(InventoryItem expected, int newQuantity, double newPrice) throws SQLException {
+        return shardFor(expected.getName()).compareAndSet(expected, newQuantity, newPrice);
+    }
+
+    @Override
+    public InventoryItem updateItem(String name, UnaryOperator<InventoryItem> change) throws SQLException {
+        return shardFor(name).updateItem(name, change);
+    }
+
+    @Override
+    public boolean assignBarcode(String name, String barcode) throws SQLException {
+        return shardFor(name).assignBarcode(name, barcode);
+    }
+
+    // The code does not say which shard owns the item: ask the shards' in-memory indexes
+    // first, then all databases in parallel. Each shard's unique index only covers its own
+    // rows, so keeping codes unique across shards is up to whoever assigns them.
+    @Override
+    public InventoryItem findByBarcode(String barcode) throws SQLException {
+        for (InventoryManager shard : shards) {
+            InventoryItem item = shard.findByBarcodeInIndex(barcode);
+            if (item != null) {
+                return item;
+            }
+        }
+        for (InventoryItem item : scatter(shards, shard -> shard.findByBarcodeInDatabase(barcode))) {
+            if (item != null) {
+                return item;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public synchronized void enableBarcodeIndex() throws SQLException {
+        for (InventoryManager shard : shards) {
+            shard.enableBarcodeIndex();
+        }
+    }
+
+    @Override
+    public boolean isBarcodeIndexEnabled() {
+        return shards.get(0).isBarcodeIndexEnabled();
+    }
+
+    // A basket on one shard is a single local transaction. A basket spanning shards deducts on
+    // every shard it touches, each in its own open transaction, and commits them all only if
+    // every line could be sold; otherwise all are rolled back. Shards are locked one after the
+    // other in shard order, so two spanning baskets cannot deadlock. The shard commits are not
+    // atomic together: if a database fails between them, the earlier shards stay committed.
+    @Override
+    public Checkout.Result checkout(List<Checkout.Line> basket) throws SQLException {
+        List<Checkout.Line> lines = Checkout.merge(basket);
+        List<List<Integer>> lineIndexes = new ArrayList<>(shards.size());
+        for (int i = 0; i < shards.size(); i++) {
+            lineIndexes.add(new ArrayList<>());
+        }
+        int touched = 0;
+        for (int i = 0; i < lines.size(); i++) {
+            List<Integer> indexes = lineIndexes.get(router.shardFor(lines.get(i).getName(), shards.size()));
+            if (indexes.isEmpty()) {
+                touched++;
+            }
+            indexes.add(i);
+        }
+        if (touched == 1) {
+            return shardFor(lines.get(0).getName()).checkout(lines);
+        }
+
+        Checkout.Result result;
+        long start = Checkout.CHECKOUT.start();
+        List<Connection> open = new ArrayList<>(touched);
+        try {
+            List<StockResult> deducted = new ArrayList<>(lines.size());
+            for (int i = 0; i < lines.size(); i++) {
+                deducted.add(null);
+            }
+            for (int shard = 0; shard < shards.size(); shard++) {
+                List<Integer> indexes = lineIndexes.get(shard);
+                if (indexes.isEmpty()) {
+                    continue;
+                }
+                Connection conn = shards.get(shard).openConnection();
+                open.add(conn);
+                conn.setAutoCommit(false);
+                List<Checkout.Line> part = new ArrayList<>(indexes.size());
+                for (int i : indexes) {
+                    part.add(lines.get(i));
+                }
+                List<StockResult> partResults = Checkout.deduct(conn, part);
+                for (int j = 0; j < indexes.size(); j++) {
+                    deducted.set(indexes.get(j), partResults.get(j));
+                }
+            }
+            result = new Checkout.Result(lines, deducted);
+            for (Connection conn : open) {
+                if (result.isCommitted()) {
+                    conn.commit();
+                } else {
+                    conn.rollback();
+                }
+            }
+        } catch (SQLException | RuntimeException e) {
+            Checkout.CHECKOUT.failure(start);
+            for (Connection conn : open) {
+                try {
+                    conn.rollback();
+                } catch (SQLException rollbackFailure) {
+                    e.addSuppressed(rollbackFailure);
+                }
+            }
+            throw e;
+        } finally {
+            for (Connection conn : open) {
+                try (conn) {
+                    conn.setAutoCommit(true);
+                } catch (SQLException e) {
+                    // The outcome is already decided; the pool resets the connection on release
+                    System.err.println("Could not release shard connection: " + e.getMessage());
+                }
+            }
+        }
+        Checkout.CHECKOUT.success(start, lines.size(), result.isCommitted() ? lines.size() : 0);
+
+        if (result.isCommitted()) {
+            // Through each shard, so the shards' own caches see the sale before it is re-published
+            for (int shard = 0; shard < shards.size(); shard++) {
+                List<Integer> indexes = lineIndexes.get(shard);
+                for (int i : indexes) {
+                    Checkout.Line line = lines.get(i);
+                    StockResult sold = result.getResults().get(i);
+                    shards.get(shard).fireItemChanged(new ItemChangeEvent(ItemChangeEvent.Kind.SOLD, line.getName(),
+                            -line.getQuantity(), new InventoryItem(line.getName(), sold.getQuantity(), sold.getPrice(), null, sold.getVersion())));
+                }
+            }
+        }
+        return result;
+    }
+
+    // --- Catalog-wide reads: scatter to all shards, merge by name ---
+
+    @Override
+    public List<InventoryItem> getAllItems() throws SQLException {
+        return mergeByName(scatter(shards, InventoryManager::getAllItems), Integer.MAX_VALUE);
+    }
+
+    @Override
+    public List<InventoryItem> searchItems(String nameQuery) throws SQLException {
+        if (isSearchIndexEnabled()) {
+            return super.searchItems(nameQuery);
+        }
+        return mergeByName(scatter(shards, shard -> shard.searchItems(nameQuery)), Integer.MAX_VALUE);
+    }
+
+    // Every shard returns its first 'pageSize' names after 'afterName'; the merged page is
+    // the first 'pageSize' of those, so keyset paging works across shards unchanged
+    @Override
+    public List<InventoryItem> getItemsPage(String afterName, int pageSize) throws SQLException {
+        return mergeByName(scatter(shards, shard -> shard.getItemsPage(afterName, pageSize)), pageSize);
+    }
+
+    // A global row position is not known to any shard, so it is located from counts. Each shard's
+    // share of 'offset' is estimated from its size and the smallest name at those estimates
+    // becomes the start boundary; it can only fall short of 'offset', and the counts of names
+    // before it tell how far. A few rounds bring it within a page, then every shard reads just
+    // the rows from the boundary on, instead of offset + pageSize rows each.
+    @Override
+    public List<InventoryItem> getItemsAt(int offset, int pageSize) throws SQLException {
+        if (offset <= 0) {
+            return getItemsPage(null, pageSize);
+        }
+        int[] counts = toArray(scatter(shards, InventoryManager::countItems));
+        long total = sum(counts);
+        if (offset >= total) {
+            return new ArrayList<>();
+        }
+
+        List<Integer> indexes = new ArrayList<>(shards.size());
+        for (int i = 0; i < shards.size(); i++) {
+            indexes.add(i);
+        }
+        String boundary = null;
+        int[] before = new int[shards.size()];
+        long skipped = 0;
+        for (int round = 0; round < LOCATE_ROUNDS && offset - skipped > pageSize; round++) {
+            long toSkip = offset - skipped;
+            long rowsLeft = total - skipped;
+            int[] from = before;
+            List<String> estimates = scatter(indexes, i -> {
+                long left = counts[i] - from[i];
+                return left <= 0 ? null : shards.get(i).nameAt(from[i] + (int) (toSkip * left / rowsLeft));
+            });
+            String next = null;
+            for (String name : estimates) {
+                if (name != null && (next == null || name.compareTo(next) < 0)) {
+                    next = name;
+                }
+            }
+            if (next == null || next.equals(boundary)) {
+                break;
+            }
+            String pivot = next;
+            int[] counted = toArray(scatter(shards, shard -> shard.countItemsBefore(pivot)));
+            if (sum(counted) > offset) {
+                // Rows were added meanwhile; keep the last boundary
+                break;
+            }
+            boundary = pivot;
+            before = counted;
+            skipped = sum(counted);
+        }
+
+        int rest = (int) (offset - skipped);
+        String start = boundary;
+        List<InventoryItem> head = mergeByName(scatter(shards, shard -> start == null
+                ? shard.getItemsPage(null, rest + pageSize)
+                : shard.getItemsFrom(start, rest + pageSize)), rest + pageSize);
+        return head.size() <= rest ? new ArrayList<>() : new ArrayList<>(head.subList(rest, head.size()));
+    }
+
+    private static int[] toArray(List<Integer> values) {
+        int[] array = new int[values.size()];
+        for (int i = 0; i < array.length; i++) {
+            array[i] = values.get(i);
+        }
+        return array;
+    }
+
+    private static long sum(int[] values) {
+        long total = 0;
+        for (int value : values) {
+            total += value;
+        }
+        return total;
+    }
+
+    @Override
+    public int countItems() throws SQLException {
+        int total = 0;
+        for (int count : scatter(shards, InventoryManager::countItems)) {
+            total += count;
+        }
+        return total;
+    }
+
+    // Merged keyset pages, so memory stays bounded however large the shards are
+    @Override
+    public void forEachItem(Consumer<InventoryItem> action) throws SQLException {
+        try (Stream<InventoryItem> items = streamItems(1_000)) {
+            items.forEach(action);
+        } catch (IllegalStateException e) {
+            if (e.getCause() instanceof SQLException) {
+                throw (SQLException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    @Override
+    public CompactItemStore loadCompactStore() throws SQLException {
+        List<CompactItemStore> parts = scatter(shards, InventoryManager::loadCompactStore);
+        int total = 0;
+        for (CompactItemStore part : parts) {
+            total += part.size();
+        }
+        CompactItemStore store = new CompactItemStore(total);
+        for (CompactItemStore part : parts) {
+            CompactItemStore.Cursor item = part.cursor();
+            for (int slot = 0; slot < part.size(); slot++) {
+                item.moveTo(slot);
+                store.put(item.getName(), item.getQuantity(), item.getPriceMinorUnits());
+            }
+        }
+        return store;
+    }
+
+    // --- Bulk import: rows are split by shard and the shards load in parallel ---
+
+    @Override
+    public BulkImporter.Result importItems(Stream<InventoryItem> items) throws SQLException {
+        return importRows(items.iterator(), new ArrayList<>(), 0);
+    }
+
+    @Override
+    public BulkImporter.Result importCsv(Path csvFile) throws SQLException, IOException {
+        List<String> errors = new ArrayList<>();
+        long[] rejected = new long[1];
+        try (BufferedReader reader = Files.newBufferedReader(csvFile, StandardCharsets.UTF_8)) {
+            try {
+                BulkImporter.Result result = importRows(BulkImporter.csvRows(reader, errors, rejected), errors, 0);
+                return new BulkImporter.Result(result.rowsImported, rejected[0], result.elapsedNanos, errors);
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+        }
+    }
+
+    private BulkImporter.Result importRows(Iterator<InventoryItem> rows, List<String> errors, long rejected)
+            throws SQLException {
+        long start = System.nanoTime();
+        long imported = 0;
+        int chunkRows = BulkImporter.DEFAULT_BATCH_SIZE * shards.size();
+
+        while (rows.hasNext()) {
+            // Split the next chunk by shard, then load every shard's part at the same time
+            List<List<InventoryItem>> parts = new ArrayList<>(shards.size());
+            for (int i = 0; i < shards.size(); i++) {
+                parts.add(new ArrayList<>());
+            }
+            for (int n = 0; n < chunkRows && rows.hasNext(); n++) {
+                InventoryItem item = rows.next();
+                parts.get(router.shardFor(item.getName(), shards.size())).add(item);
+            }
+            List<Integer> indexes = new ArrayList<>();
+            for (int i = 0; i < shards.size(); i++) {
+                indexes.add(i);
+            }
+            for (BulkImporter.Result part : scatter(indexes, i -> parts.get(i).isEmpty()
+                    ? null
+                    : new BulkImporter(shards.get(i)).importItems(parts.get(i)))) {
+                if (part != null) {
+                    imported += part.rowsImported;
+                }
+            }
+        }
+        return new BulkImporter.Result(imported, rejected, System.nanoTime() - start, errors);
+    }
+
+    // --- Scatter-gather ---
+
+    // Runs 'call' for every target at once (one virtual thread each) and returns the results
+    // in target order. The first failure is rethrown after all calls have finished.
+    static <T, R> List<R> scatter(List<T> targets, SqlFunction<T, R> call) throws SQLException {
+        if (targets.size() == 1) {
+            List<R> single = new ArrayList<>(1);
+            single.add(call.apply(targets.get(0)));
+            return single;
+        }
+        List<Future<R>> futures = new ArrayList<>(targets.size());
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (T target : targets) {
+                futures.add(executor.submit(() -> call.apply(target)));
+            }
+        }
+        List<R> results = new ArrayList<>(targets.size());
+        SQLException failure = null;
+        for (Future<R> future : futures) {
+            try {
+                results.add(future.get());
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof RuntimeException) {
+                    throw (RuntimeException) cause;
+                }
+                if (failure == null) {
+                    failure = cause instanceof SQLException ? (SQLException) cause : new SQLException(cause);
+                }
+                results.add(null);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new SQLException("Interrupted while querying shards", e);
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+        return results;
+    }
+
+    // k-way merge of name-ordered lists, keeping at most 'limit' items
+    static List<InventoryItem> mergeByName(List<List<InventoryItem>> sortedLists, int limit) {
+        int total = 0;
+        for (List<InventoryItem> list : sortedLists) {
+            total += list.size();
+        }
+        List<InventoryItem> merged = new ArrayList<>(Math.min(total, limit));
+        // Heap entries: [list index, position in that list]
+        PriorityQueue<int[]> heads = new PriorityQueue<>(Math.max(1, sortedLists.size()),
+                (a, b) -> BY_NAME.compare(sortedLists.get(a[0]).get(a[1]), sortedLists.get(b[0]).get(b[1])));
+        for (int i = 0; i < sortedLists.size(); i++) {
+            if (!sortedLists.get(i).isEmpty()) {
+                heads.add(new int[] { i, 0 });
+            }
+        }
+        while (!heads.isEmpty() && merged.size() < limit) {
+            int[] head = heads.poll();
+            List<InventoryItem> list = sortedLists.get(head[0]);
+            merged.add(list.get(head[1]));
+            if (++head[1] < list.size()) {
+                heads.add(head);
+            }
+        }
+        return merged;
+    }
+
+    @Override
+    public void close() {
+        List<WriteQueue> queues;
+        synchronized (this) {
+            queues = writeQueues;
+        }
+        if (queues != null) {
+            for (WriteQueue queue : queues) {
+                queue.close();
+            }
+        }
+        for (ConnectionPool pool : pools) {
+            pool.close();
+        }
+    }
+}
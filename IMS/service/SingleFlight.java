@@ -0,0 +1,106 @@
+package service;
+
+import metrics.OperationMetrics;
+import java.sql.SQLException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.function.LongSupplier;
+import java.util.function.UnaryOperator;
+
+// Lets concurrent callers asking for the same key share one database query ("single flight").
+// The first caller runs the query; callers arriving while it is still running wait for it and
+// get the same result instead of queueing a duplicate query on the database.
+// A flight is only joined if no change has been published since it started (see 'generation'),
+// so a read issued after a write has returned never gets an answer read before that write.
+// If the leader is interrupted, the callers waiting on it do not share its failure: they run
+// the query again, one of them as the new leader. A waiting caller can itself be interrupted.
+final class SingleFlight<K, V> {
+
+    private static final class Flight<V> {
+        final long generation;
+        final CompletableFuture<V> result = new CompletableFuture<>();
+        // Set before 'result' fails if the failure came from interrupting the leader
+        volatile boolean abandoned;
+
+        Flight(long generation) {
+            this.generation = generation;
+        }
+    }
+
+    private final ConcurrentHashMap<K, Flight<V>> flights = new ConcurrentHashMap<>();
+    private final LongSupplier generation;
+    private final UnaryOperator<V> copy;
+    private final OperationMetrics shared;
+
+    // 'generation' must increase with every published change; 'copy' gives each caller its own
+    // instance of a mutable result; 'shared' counts the callers that did not run a query.
+    SingleFlight(LongSupplier generation, UnaryOperator<V> copy, OperationMetrics shared) {
+        this.generation = generation;
+        this.copy = copy;
+        this.shared = shared;
+    }
+
+    V run(K key, AsyncInventoryService.SqlCall<V> query) throws SQLException {
+        while (true) {
+            long now = generation.getAsLong();
+            Flight<V> mine = new Flight<>(now);
+            Flight<V> flight = flights.compute(key,
+                    (k, current) -> current != null && current.generation >= now ? current : mine);
+
+            if (flight == mine) {
+                return lead(key, mine, query);
+            }
+
+            long start = shared.start();
+            try {
+                V value = copy.apply(flight.result.get());
+                shared.success(start, 0, 0);
+                return value;
+            } catch (ExecutionException e) {
+                if (flight.abandoned) {
+                    // The leader was interrupted, not the query refused: run it again
+                    continue;
+                }
+                shared.failure(start);
+                throw rethrow(e.getCause());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                shared.failure(start);
+                throw new SQLException("Interrupted while waiting for a shared query", e);
+            }
+        }
+    }
+
+    private V lead(K key, Flight<V> mine, AsyncInventoryService.SqlCall<V> query) throws SQLException {
+        V value;
+        try {
+            value = query.call();
+        } catch (SQLException | RuntimeException | Error e) {
+            // Removed before completing, so a waiter that runs the query again starts a new flight
+            flights.remove(key, mine);
+            // A leader is interrupted when its own caller gives up (searchLatest cancels the
+            // search a new keystroke replaced); that failure is not the waiters' answer
+            mine.abandoned = Thread.currentThread().isInterrupted() || e.getCause() instanceof InterruptedException;
+            mine.result.completeExceptionally(e);
+            throw e;
+        }
+        flights.remove(key, mine);
+        mine.result.complete(value);
+        return copy.apply(value);
+    }
+
+    // The leader's failure, re-raised in a waiting caller's thread
+    private static SQLException rethrow(Throwable cause) {
+        if (cause instanceof SQLException e) {
+            return new SQLException(e.getMessage(), e.getSQLState(), e.getErrorCode(), e);
+        }
+        if (cause instanceof RuntimeException e) {
+            throw e;
+        }
+        if (cause instanceof Error e) {
+            throw e;
+        }
+        return new SQLException(cause);
+    }
+}
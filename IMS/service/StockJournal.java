@@ -0,0 +1,525 @@
+package service;
+
+import model.CompactItemStore;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+// Append-only log of every stock movement, next to the 'items' table.
+// Register it as an ItemChangeListener: each committed add, sale and delete becomes one small
+// binary record (sequence number, time, kind, delta, resulting quantity and price) appended to
+// an in-memory buffer and written to the current segment file in large sequential writes.
+// Segments roll over at a fixed size, so old history can be archived or pruned per file.
+//
+// checkpoint() folds the log into a compact snapshot of all items; restore() rebuilds the
+// catalog from the newest snapshot plus the records after it, which is far cheaper than a full
+// table read for warming a cache or index. Records carry the state AFTER the change, so
+// replaying a record twice is harmless.
+//
+// Durability: 'items' stays the source of truth. Buffered records reach the OS every
+// flushMillis (0 = on every append) and disk on sync()/close(); a crash may lose that tail,
+// and a torn last record is cut off when the journal is reopened.
+//
+// Files: segment-<first seq>.log and snapshot-<last seq>.bin in the journal directory.
+// Record layout: int length | long seq | long time | byte kind | int delta | int quantity |
+//                long price (paise) | short nameLength | name (UTF-8) | int crc32
+public final class StockJournal implements ItemChangeListener, AutoCloseable {
+
+    public static final long DEFAULT_SEGMENT_BYTES = 64L << 20;
+    public static final long DEFAULT_FLUSH_MILLIS = 50;
+
+    private static final int SNAPSHOT_MAGIC = 0x494D5353; // "IMSS"
+    private static final int SNAPSHOT_VERSION = 1;
+    private static final int FIXED_RECORD_BYTES = 8 + 8 + 1 + 4 + 4 + 8 + 2;
+    private static final ItemChangeEvent.Kind[] KINDS = ItemChangeEvent.Kind.values();
+
+    private final Path directory;
+    private final long segmentBytes;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(64 * 1024);
+    private final CRC32 crc = new CRC32();
+    private final ScheduledExecutorService flusher;
+
+    private FileChannel segment;
+    private long nextSequence;
+    private boolean closed;
+
+    // One entry of the journal
+    public static final class Record {
+        private final long sequence;
+        private final long timestamp;
+        private final ItemChangeEvent.Kind kind;
+        private final String name;
+        private final int quantityDelta;
+        private final int quantity;
+        private final long priceMinorUnits;
+        private int encodedBytes;
+
+        Record(long sequence, long timestamp, ItemChangeEvent.Kind kind, String name,
+               int quantityDelta, int quantity, long priceMinorUnits) {
+            this.sequence = sequence;
+            this.timestamp = timestamp;
+            this.kind = kind;
+            this.name = name;
+            this.quantityDelta = quantityDelta;
+            this.quantity = quantity;
+            this.priceMinorUnits = priceMinorUnits;
+        }
+
+        public long getSequence() {
+            return sequence;
+        }
+
+        public long getTimestamp() {
+            return timestamp;
+        }
+
+        public ItemChangeEvent.Kind getKind() {
+            return kind;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public int getQuantityDelta() {
+            return quantityDelta;
+        }
+
+        // Quantity after the change (0 for a delete)
+        public int getQuantity() {
+            return quantity;
+        }
+
+        public long getPriceMinorUnits() {
+            return priceMinorUnits;
+        }
+
+        @Override
+        public String toString() {
+            return "#" + sequence + " " + kind + " " + name + " delta=" + quantityDelta + " qty=" + quantity;
+        }
+    }
+
+    public StockJournal(Path directory) throws IOException {
+        this(directory, DEFAULT_SEGMENT_BYTES, DEFAULT_FLUSH_MILLIS);
+    }
+
+    public StockJournal(Path directory, long segmentBytes, long flushMillis) throws IOException {
+        this.directory = directory;
+        this.segmentBytes = segmentBytes;
+        Files.createDirectories(directory);
+        recover();
+
+        if (flushMillis > 0) {
+            flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "stock-journal-flush");
+                t.setDaemon(true);
+                return t;
+            });
+            flusher.scheduleWithFixedDelay(this::flushQuietly, flushMillis, flushMillis, TimeUnit.MILLISECONDS);
+        } else {
+            flusher = null;
+        }
+    }
+
+    // --- Writing ---
+
+    @Override
+    public void itemChanged(ItemChangeEvent event) {
+        try {
+            append(event);
+        } catch (IOException e) {
+            // The change is committed in 'items' already; losing the audit entry must not fail it
+            System.err.println("Stock journal write failed for " + event + ": " + e.getMessage());
+        }
+    }
+
+    // Appends one record and returns its sequence number
+    public synchronized long append(ItemChangeEvent event) throws IOException {
+        if (closed) {
+            throw new IOException("Stock journal is closed");
+        }
+        byte[] name = event.getName().getBytes(StandardCharsets.UTF_8);
+        if (name.length > 0xFFFF) {
+            throw new IOException("Item name too long for the journal: " + name.length + " bytes");
+        }
+        int length = FIXED_RECORD_BYTES + name.length + 4;
+        if (buffer.remaining() < 4 + length) {
+            flush();
+        }
+        ByteBuffer out = buffer.remaining() >= 4 + length ? buffer : ByteBuffer.allocate(4 + length);
+
+        long sequence = nextSequence++;
+        int start = out.position();
+        out.putInt(length)
+           .putLong(sequence)
+           .putLong(event.getTimestamp())
+           .put((byte) event.getKind().ordinal())
+           .putInt(event.getQuantityDelta())
+           .putInt(event.getItem() == null ? 0 : event.getItem().getQuantity())
+           .putLong(event.getItem() == null ? 0 : CompactItemStore.toMinorUnits(event.getItem().getPrice()))
+           .putShort((short) name.length)
+           .put(name);
+        crc.reset();
+        crc.update(out.duplicate().position(start + 4).limit(out.position()));
+        out.putInt((int) crc.getValue());
+
+        if (out != buffer) {
+            out.flip();
+            writeFully(out); // larger than the whole buffer
+        } else if (flusher == null) {
+            flush();
+        }
+        return sequence;
+    }
+
+    // Hands buffered records to the OS, rolling to a new segment when the current one is full
+    public synchronized void flush() throws IOException {
+        if (buffer.position() > 0) {
+            buffer.flip();
+            writeFully(buffer);
+            buffer.clear();
+        }
+        if (segment.size() >= segmentBytes) {
+            segment.force(false);
+            segment.close();
+            segment = openSegment(nextSequence);
+        }
+    }
+
+    // flush() plus fsync: everything appended so far survives a power failure
+    public synchronized void sync() throws IOException {
+        flush();
+        segment.force(false);
+    }
+
+    public synchronized long getLastSequence() {
+        return nextSequence - 1;
+    }
+
+    private void writeFully(ByteBuffer data) throws IOException {
+        while (data.hasRemaining()) {
+            segment.write(data);
+        }
+    }
+
+    private void flushQuietly() {
+        try {
+            synchronized (this) {
+                if (!closed) {
+                    flush();
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("Stock journal flush failed: " + e.getMessage());
+        }
+    }
+
+    // --- Reading ---
+
+    // Calls 'action' for every record after 'afterSequence', in order
+    public void replay(long afterSequence, Consumer<Record> action) throws IOException {
+        long upTo;
+        List<Path> segments;
+        synchronized (this) {
+            flush();
+            upTo = getLastSequence();
+            segments = listFiles("segment-", ".log");
+        }
+
+        for (int i = 0; i < segments.size(); i++) {
+            // Skip whole segments when the next one starts at or before the first wanted record
+            if (i + 1 < segments.size() && sequenceOf(segments.get(i + 1)) <= afterSequence + 1) {
+                continue;
+            }
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(segments.get(i))))) {
+                Record record;
+                while ((record = readRecord(in)) != null && record.sequence <= upTo) {
+                    if (record.sequence > afterSequence) {
+                        action.accept(record);
+                    }
+                }
+            }
+        }
+    }
+
+    // Every movement of one item, oldest first (scans the retained segments)
+    public List<Record> history(String name) throws IOException {
+        List<Record> records = new ArrayList<>();
+        replay(0, record -> {
+            if (record.name.equals(name)) {
+                records.add(record);
+            }
+        });
+        return records;
+    }
+
+    // Catalog state at the end of the journal: newest snapshot plus the records after it
+    public CompactItemStore restore() throws IOException {
+        CompactItemStore store = new CompactItemStore();
+        long fromSequence = loadLatestSnapshot(store);
+        replay(fromSequence, record -> apply(store, record));
+        return store;
+    }
+
+    private static void apply(CompactItemStore store, Record record) {
+        if (record.kind == ItemChangeEvent.Kind.DELETED) {
+            store.remove(record.name);
+        } else {
+            store.put(record.name, record.quantity, record.priceMinorUnits);
+        }
+    }
+
+    // Opens the journal in 'directory' and subscribes it to 'manager'. The first time, the
+    // current table is read once to give the journal its starting snapshot.
+    public static StockJournal attach(InventoryManager manager, Path directory) throws IOException, SQLException {
+        StockJournal journal = new StockJournal(directory);
+        manager.addChangeListener(journal);
+        if (!journal.hasSnapshot()) {
+            long covered = journal.getLastSequence();
+            journal.bootstrap(manager.loadCompactStore(), covered);
+        }
+        return journal;
+    }
+
+    // --- Snapshots ---
+
+    public boolean hasSnapshot() throws IOException {
+        return !listFiles("snapshot-", ".bin").isEmpty();
+    }
+
+    // Seeds a journal without snapshots with the current catalog so restore() has a starting
+    // point. Register the journal as a listener, take getLastSequence(), THEN read the catalog
+    // (e.g. InventoryManager.loadCompactStore()) and pass both here: records up to that sequence
+    // are in 'current', later ones are replayed on top, which is harmless if they are too.
+    public synchronized void bootstrap(CompactItemStore current, long coveredSequence) throws IOException {
+        if (!hasSnapshot()) {
+            writeSnapshot(current, coveredSequence);
+        }
+    }
+
+    // Writes a snapshot of the current state; returns the last sequence it covers
+    public long checkpoint() throws IOException {
+        CompactItemStore store = new CompactItemStore();
+        long[] last = { loadLatestSnapshot(store) };
+        replay(last[0], record -> {
+            apply(store, record);
+            last[0] = record.sequence;
+        });
+        writeSnapshot(store, last[0]);
+        return last[0];
+    }
+
+    // Deletes older snapshots and the segments fully covered by the newest snapshot.
+    // Skip this to keep the complete audit trail.
+    public synchronized void prune() throws IOException {
+        List<Path> snapshots = listFiles("snapshot-", ".bin");
+        if (snapshots.isEmpty()) {
+            return;
+        }
+        long covered = sequenceOf(snapshots.get(snapshots.size() - 1));
+        for (int i = 0; i < snapshots.size() - 1; i++) {
+            Files.deleteIfExists(snapshots.get(i));
+        }
+        List<Path> segments = listFiles("segment-", ".log");
+        // A segment can go once the next one starts at or before the first record not covered
+        for (int i = 0; i + 1 < segments.size(); i++) {
+            if (sequenceOf(segments.get(i + 1)) <= covered + 1) {
+                Files.deleteIfExists(segments.get(i));
+            }
+        }
+    }
+
+    private void writeSnapshot(CompactItemStore store, long lastSequence) throws IOException {
+        Path target = directory.resolve(String.format("snapshot-%020d.bin", lastSequence));
+        Path temp = directory.resolve(target.getFileName() + ".tmp");
+        CRC32 checksum = new CRC32();
+
+        try (OutputStream file = Files.newOutputStream(temp);
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new CheckedOutputStream(file, checksum)))) {
+            out.writeInt(SNAPSHOT_MAGIC);
+            out.writeInt(SNAPSHOT_VERSION);
+            out.writeLong(lastSequence);
+            out.writeInt(store.size());
+            CompactItemStore.Cursor item = store.cursor();
+            for (int slot = 0; slot < store.size(); slot++) {
+                item.moveTo(slot);
+                out.writeUTF(item.getName());
+                out.writeInt(item.getQuantity());
+                out.writeLong(item.getPriceMinorUnits());
+            }
+            out.flush();
+            // Checksum of everything above, written outside the checked stream
+            new DataOutputStream(file).writeLong(checksum.getValue());
+            file.flush();
+        }
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+            channel.force(true);
+        }
+        Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    // Loads the newest valid snapshot into 'store'; returns its last sequence (0 if none)
+    private long loadLatestSnapshot(CompactItemStore store) throws IOException {
+        List<Path> snapshots = listFiles("snapshot-", ".bin");
+        for (int i = snapshots.size() - 1; i >= 0; i--) {
+            store.clear();
+            try {
+                return readSnapshot(snapshots.get(i), store);
+            } catch (IOException e) {
+                System.err.println("Skipping unreadable snapshot " + snapshots.get(i).getFileName() + ": " + e.getMessage());
+            }
+        }
+        store.clear();
+        return 0;
+    }
+
+    private static long readSnapshot(Path file, CompactItemStore store) throws IOException {
+        CRC32 checksum = new CRC32();
+        try (InputStream raw = Files.newInputStream(file);
+             DataInputStream in = new DataInputStream(new BufferedInputStream(raw))) {
+            CheckedInputStream checked = new CheckedInputStream(in, checksum);
+            DataInputStream body = new DataInputStream(checked);
+            if (body.readInt() != SNAPSHOT_MAGIC || body.readInt() != SNAPSHOT_VERSION) {
+                throw new IOException("not a stock snapshot");
+            }
+            long lastSequence = body.readLong();
+            int count = body.readInt();
+            for (int i = 0; i < count; i++) {
+                store.put(body.readUTF(), body.readInt(), body.readLong());
+            }
+            if (in.readLong() != checksum.getValue()) {
+                throw new IOException("checksum mismatch");
+            }
+            return lastSequence;
+        }
+    }
+
+    // --- Files and recovery ---
+
+    // Finds where the last segment really ends, cuts off a torn record and continues from there
+    private void recover() throws IOException {
+        List<Path> segments = listFiles("segment-", ".log");
+        if (segments.isEmpty()) {
+            List<Path> snapshots = listFiles("snapshot-", ".bin");
+            nextSequence = snapshots.isEmpty() ? 1 : sequenceOf(snapshots.get(snapshots.size() - 1)) + 1;
+            segment = openSegment(nextSequence);
+            return;
+        }
+
+        Path last = segments.get(segments.size() - 1);
+        long validBytes = 0;
+        nextSequence = sequenceOf(last);
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(last)))) {
+            Record record;
+            while ((record = readRecord(in)) != null) {
+                validBytes += record.encodedBytes;
+                nextSequence = record.sequence + 1;
+            }
+        }
+
+        segment = FileChannel.open(last, StandardOpenOption.WRITE);
+        if (segment.size() > validBytes) {
+            System.err.println("Stock journal: dropping " + (segment.size() - validBytes)
+                    + " bytes of incomplete records from " + last.getFileName());
+            segment.truncate(validBytes);
+        }
+        segment.position(validBytes);
+    }
+
+    private FileChannel openSegment(long firstSequence) throws IOException {
+        Path file = directory.resolve(String.format("segment-%020d.log", firstSequence));
+        return FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    // Next record, or null at the end of the data or at the first damaged record
+    private static Record readRecord(DataInputStream in) throws IOException {
+        try {
+            int length = in.readInt();
+            if (length < FIXED_RECORD_BYTES + 4 || length > FIXED_RECORD_BYTES + 4 + 0xFFFF) {
+                return null;
+            }
+            byte[] body = new byte[length];
+            in.readFully(body);
+
+            CRC32 check = new CRC32();
+            check.update(body, 0, length - 4);
+            ByteBuffer data = ByteBuffer.wrap(body);
+            if (data.getInt(length - 4) != (int) check.getValue()) {
+                return null;
+            }
+            long sequence = data.getLong();
+            long timestamp = data.getLong();
+            int kind = data.get();
+            int delta = data.getInt();
+            int quantity = data.getInt();
+            long price = data.getLong();
+            int nameLength = data.getShort() & 0xFFFF;
+            if (kind < 0 || kind >= KINDS.length || nameLength != length - FIXED_RECORD_BYTES - 4) {
+                return null;
+            }
+            String name = new String(body, FIXED_RECORD_BYTES, nameLength, StandardCharsets.UTF_8);
+            Record record = new Record(sequence, timestamp, KINDS[kind], name, delta, quantity, price);
+            record.encodedBytes = 4 + length;
+            return record;
+        } catch (EOFException e) {
+            return null;
+        }
+    }
+
+    private List<Path> listFiles(String prefix, String suffix) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(p -> {
+                        String n = p.getFileName().toString();
+                        return n.startsWith(prefix) && n.endsWith(suffix);
+                    })
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    // The zero-padded number in segment-/snapshot- file names
+    private static long sequenceOf(Path file) {
+        String n = file.getFileName().toString();
+        return Long.parseLong(n.substring(n.indexOf('-') + 1, n.lastIndexOf('.')));
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (flusher != null) {
+            flusher.shutdown();
+        }
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            flush();
+            segment.force(false);
+            segment.close();
+            closed = true;
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package service;
+
+// Outcome of a single stock mutation (see InventoryManager.sellStock).
+// Lets callers branch on the status instead of parsing message strings.
+public final class StockResult {
+
+    public enum Status {
+        OK,
+        NOT_FOUND,
+        INSUFFICIENT_STOCK
+    }
+
+    private final Status status;
+    private final String name;
+    private final int quantity;
+    private final double price;
+    private final long version;
+
+    private StockResult(Status status, String name, int quantity, double price, long version) {
+        this.status = status;
+        this.name = name;
+        this.quantity = quantity;
+        this.price = price;
+        this.version = version;
+    }
+
+    public static StockResult ok(String name, int newQuantity, double price) {
+        return ok(name, newQuantity, price, 0L);
+    }
+
+    public static StockResult ok(String name, int newQuantity, double price, long newVersion) {
+        return new StockResult(Status.OK, name, newQuantity, price, newVersion);
+    }
+
+    public static StockResult notFound(String name) {
+        return new StockResult(Status.NOT_FOUND, name, 0, 0.0, 0L);
+    }
+
+    public static StockResult insufficient(String name, int available, double price) {
+        return insufficient(name, available, price, 0L);
+    }
+
+    public static StockResult insufficient(String name, int available, double price, long version) {
+        return new StockResult(Status.INSUFFICIENT_STOCK, name, available, price, version);
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public boolean isSuccess() {
+        return status == Status.OK;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    // New quantity after an OK mutation, or the units still available for INSUFFICIENT_STOCK
+    public int getQuantity() {
+        return quantity;
+    }
+
+    public double getPrice() {
+        return price;
+    }
+
+    // Row version after an OK mutation, or of the unchanged row for INSUFFICIENT_STOCK; 0 if unknown
+    public long getVersion() {
+        return version;
+    }
+
+    @Override
+    public String toString() {
+        return "StockResult[" + status + ", " + name + ", qty=" + quantity + "]";
+    }
+}
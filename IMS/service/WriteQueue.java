@@ -0,0 +1,236 @@
+package service;
+
+import model.InventoryItem;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+// Group commit for stock mutations.
+// Callers enqueue sales and additions and get a CompletableFuture back. A single writer thread
+// takes whatever arrived within a short window (maxDelay, or until maxBatch operations are
+// waiting) and runs the whole group in ONE transaction, so N sales cost one fsync instead of N.
+// Each caller still gets its own StockResult, including INSUFFICIENT_STOCK / NOT_FOUND.
+public class WriteQueue implements AutoCloseable {
+
+    public static final int DEFAULT_MAX_BATCH = 256;
+    public static final long DEFAULT_MAX_DELAY_MICROS = 2_000;
+
+    private final InventoryManager manager;
+    private final int maxBatch;
+    private final long maxDelayNanos;
+    private final BlockingQueue<Op<?>> queue = new LinkedBlockingQueue<>();
+    private final Thread writer;
+    private volatile boolean running = true;
+
+    private final LongAdder commits = new LongAdder();
+    private final LongAdder operations = new LongAdder();
+
+    public WriteQueue(InventoryManager manager) {
+        this(manager, DEFAULT_MAX_BATCH, DEFAULT_MAX_DELAY_MICROS);
+    }
+
+    public WriteQueue(InventoryManager manager, int maxBatch, long maxDelayMicros) {
+        if (maxBatch <= 0) {
+            throw new IllegalArgumentException("Batch size must be > 0");
+        }
+        this.manager = manager;
+        this.maxBatch = maxBatch;
+        this.maxDelayNanos = TimeUnit.MICROSECONDS.toNanos(maxDelayMicros);
+        this.writer = new Thread(this::writeLoop, "inventory-write-queue");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    // --- Operations ---
+
+    public CompletableFuture<StockResult> sell(String name, int quantityToSell, double newPrice) {
+        return enqueue(new Op<StockResult>() {
+            @Override
+            StockResult apply(Connection conn) throws SQLException {
+                return InventoryManager.decrementStock(conn, name, quantityToSell, newPrice);
+            }
+
+            @Override
+            ItemChangeEvent eventFor(StockResult result) {
+                return result.isSuccess()
+                        ? new ItemChangeEvent(ItemChangeEvent.Kind.SOLD, name, -quantityToSell,
+                                new InventoryItem(name, result.getQuantity(), newPrice, null, result.getVersion()))
+                        : null;
+            }
+        });
+    }
+
+    public CompletableFuture<Integer> add(String name, int quantity, double price) {
+        return enqueue(new Op<ItemChangeEvent>() {
+            @Override
+            ItemChangeEvent apply(Connection conn) throws SQLException {
+                return InventoryManager.upsertStock(conn, name, quantity, price);
+            }
+
+            @Override
+            ItemChangeEvent eventFor(ItemChangeEvent saved) {
+                return saved;
+            }
+        }).thenApply(saved -> saved.getItem().getQuantity());
+    }
+
+    private <T> CompletableFuture<T> enqueue(Op<T> op) {
+        if (!running) {
+            op.future.completeExceptionally(new SQLException("Write queue is closed"));
+            return op.future;
+        }
+        queue.add(op);
+        // Closed meanwhile: the writer and close() may both have taken their last look at the
+        // queue. Whoever removes the op completes it, so it cannot be left waiting forever.
+        if (!running && queue.remove(op)) {
+            op.future.completeExceptionally(new SQLException("Write queue is closed"));
+        }
+        return op.future;
+    }
+
+    // --- Writer thread ---
+
+    private void writeLoop() {
+        List<Op<?>> group = new ArrayList<>(maxBatch);
+        while (running || !queue.isEmpty()) {
+            try {
+                Op<?> first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                group.add(first);
+
+                // Collect more operations until the window closes or the group is full
+                long deadline = System.nanoTime() + maxDelayNanos;
+                while (group.size() < maxBatch) {
+                    long remaining = deadline - System.nanoTime();
+                    Op<?> next = remaining > 0 ? queue.poll(remaining, TimeUnit.NANOSECONDS) : queue.poll();
+                    if (next == null) {
+                        break;
+                    }
+                    group.add(next);
+                }
+
+                commitGroup(group);
+            } catch (InterruptedException e) {
+                running = false;
+                if (!group.isEmpty()) {
+                    commitGroup(group);
+                }
+            } finally {
+                group.clear();
+            }
+        }
+    }
+
+    private void commitGroup(List<Op<?>> group) {
+        try (Connection conn = manager.openConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                for (Op<?> op : group) {
+                    op.run(conn);
+                }
+                conn.commit();
+            } catch (SQLException | RuntimeException e) {
+                conn.rollback();
+                conn.setAutoCommit(true);
+                // One bad operation must not fail the others: redo them one by one
+                runIndividually(conn, group);
+                return;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            for (Op<?> op : group) {
+                op.future.completeExceptionally(e);
+            }
+            return;
+        }
+
+        commits.increment();
+        operations.add(group.size());
+        for (Op<?> op : group) {
+            op.complete(manager);
+        }
+    }
+
+    private void runIndividually(Connection conn, List<Op<?>> group) {
+        for (Op<?> op : group) {
+            try {
+                op.run(conn);
+                commits.increment();
+                operations.increment();
+                op.complete(manager);
+            } catch (SQLException | RuntimeException e) {
+                op.future.completeExceptionally(e);
+            }
+        }
+    }
+
+    public long getCommitCount() {
+        return commits.sum();
+    }
+
+    public long getOperationCount() {
+        return operations.sum();
+    }
+
+    public double getAverageGroupSize() {
+        long c = commits.sum();
+        return c == 0 ? 0.0 : (double) operations.sum() / c;
+    }
+
+    public int getPendingCount() {
+        return queue.size();
+    }
+
+    // Stops accepting work, finishes everything already queued and waits for the writer
+    @Override
+    public void close() {
+        running = false;
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        // Anything that slipped in after the writer's last look at the queue
+        Op<?> op;
+        while ((op = queue.poll()) != null) {
+            op.future.completeExceptionally(new SQLException("Write queue is closed"));
+        }
+    }
+
+    // One queued mutation: its statement, its caller's future and the event to publish
+    private abstract static class Op<T> {
+        final CompletableFuture<T> future = new CompletableFuture<>();
+        private T result;
+
+        abstract T apply(Connection conn) throws SQLException;
+
+        abstract ItemChangeEvent eventFor(T result);
+
+        void run(Connection conn) throws SQLException {
+            result = apply(conn);
+        }
+
+        // Only called once the transaction holding this operation has committed
+        void complete(InventoryManager manager) {
+            ItemChangeEvent event = eventFor(result);
+            if (event != null) {
+                try {
+                    manager.fireItemChanged(event);
+                } catch (RuntimeException e) {
+                    // The write is committed; a failing listener must not stop the writer thread
+                    System.err.println("Change listener failed for " + event + ": " + e.getMessage());
+                }
+            }
+            future.complete(result);
+        }
+    }
+}
@@ -1,27 +1,62 @@
 package view;
 
+import service.AsyncInventoryService;
+import service.CachedInventoryManager;
+import service.ChangeFeed;
+import service.Checkout;
 import service.InventoryManager;
+import service.ReorderAlerts;
+import service.StockJournal;
+import service.StockResult;
 import model.InventoryItem;
 import javax.swing.*;
+import javax.swing.border.TitledBorder;
+import javax.swing.event.TableModelEvent;
 import java.awt.*;
 import java.awt.event.ActionEvent;
 import java.awt.event.KeyEvent;
 import java.awt.event.KeyListener;
+import java.io.IOException;
+import java.nio.file.Paths;
 import java.sql.SQLException;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
 
 public class InventoryApp extends JFrame {
 
-    private InventoryManager manager = new InventoryManager(); 
+    private final InventoryManager manager;
+    // All database work runs here, never on the event-dispatch thread
+    private final AsyncInventoryService service;
+    private static final Executor EDT = SwingUtilities::invokeLater;
     
     // UI Components
     private JTextField nameField, quantityField, priceField;
     private JTextField searchField; 
+    private LiveSearch liveSearch;
     private JButton addButton, deleteButton, sellButton, searchButton; 
-    private JTextArea displayArea;
+    private JButton basketButton, checkoutButton, reorderButton;
+    // Lines waiting for checkout, sold together in one transaction
+    private final List<Checkout.Line> basket = new ArrayList<>();
+    // Set once the listing follows the database's change feed (EDT only)
+    private boolean followingFeed;
+    // Low-stock alerts, null until loaded (EDT only)
+    private ReorderAlerts reorderAlerts;
+    private JTable inventoryTable;
+    private InventoryTableModel tableModel;
+    private JScrollPane listingPane;
+    private TitledBorder listingBorder;
 
     // --- CONSTRUCTOR ---
-    public InventoryApp() {
+    // 'manager' must already be open; building it touches the database, so do that off the EDT
+    public InventoryApp(InventoryManager manager) {
+        this.manager = manager;
+        this.service = new AsyncInventoryService(manager);
+
         // --- Frame Setup ---
         setTitle("Inventory Management System");
         setSize(800, 600); 
@@ -58,20 +93,42 @@ public class InventoryApp extends JFrame {
         addButton.addActionListener(this::addItemAction);
         sellButton.addActionListener(this::sellItemAction);
         deleteButton.addActionListener(this::deleteItemAction);
+
+        basketButton = new JButton("Add to Basket");
+        checkoutButton = new JButton("Checkout (0)");
+        basketButton.addActionListener(this::addToBasketAction);
+        checkoutButton.addActionListener(this::checkoutAction);
+
+        reorderButton = new JButton("Reorder (0)");
+        reorderButton.setEnabled(false);
+        reorderButton.addActionListener(this::reorderAction);
         
         // --- 3. Search Bar ---
         searchField = new JTextField(15);
         searchButton = new JButton("Search");
         searchButton.addActionListener(this::searchInventory);
+        searchField.addActionListener(this::searchInventory);
+        // Results follow the search field as you type (see LiveSearch)
+        liveSearch = new LiveSearch(searchField, service,
+                (query, results) -> displayInventory(results, "--- Search Results for '" + query + "' ---"),
+                this::viewInventory,
+                ex -> JOptionPane.showMessageDialog(this, "Search Database Error: " + ex.getMessage(), "SQL Error", JOptionPane.ERROR_MESSAGE));
+        searchField.getDocument().addDocumentListener(liveSearch);
+        JCheckBox liveBox = new JCheckBox("As you type", true);
+        liveBox.addActionListener(_ -> liveSearch.setLive(liveBox.isSelected()));
         
         controlPanel.add(addButton);
         controlPanel.add(sellButton);
         controlPanel.add(deleteButton);
+        controlPanel.add(basketButton);
+        controlPanel.add(checkoutButton);
+        controlPanel.add(reorderButton);
 
         JPanel searchBarPanel = new JPanel(new FlowLayout(FlowLayout.CENTER, 10, 5));
         searchBarPanel.add(new JLabel("Search Item:"));
         searchBarPanel.add(searchField);
         searchBarPanel.add(searchButton);
+        searchBarPanel.add(liveBox);
 
         // Group all NORTH components
         JPanel northContainer = new JPanel(new BorderLayout());
@@ -82,24 +139,150 @@ public class InventoryApp extends JFrame {
         add(northContainer, BorderLayout.NORTH);
 
         // --- 4. Display Area (CENTER) ---
-        displayArea = new JTextArea();
-        displayArea.setFont(new Font("Monospaced", Font.PLAIN, 13));
-        displayArea.setEditable(false);
-        JScrollPane scrollPane = new JScrollPane(displayArea);
-        scrollPane.setBorder(BorderFactory.createTitledBorder("Current Stock Listing (Click Refresh to view all)"));
+        // Virtualized table: rows are only fetched when they scroll into view
+        tableModel = new InventoryTableModel(service);
+        inventoryTable = new JTable(tableModel);
+        inventoryTable.setFont(new Font("Monospaced", Font.PLAIN, 13));
+        inventoryTable.setFillsViewportHeight(true);
+        listingPane = new JScrollPane(inventoryTable);
+        listingBorder = BorderFactory.createTitledBorder("Current Stock Listing (Click Refresh to view all)");
+        listingPane.setBorder(listingBorder);
+
+        // Committed changes patch just the affected rows. Until the change feed is running only
+        // this window's own changes are known; after that the feed brings every terminal's.
+        manager.addChangeListener(event -> EDT.execute(() -> {
+            if (!followingFeed) {
+                tableModel.applyChange(event);
+                liveSearch.invalidate();
+            }
+        }));
+        tableModel.addTableModelListener(event -> {
+            if (event.getType() != TableModelEvent.UPDATE && tableModel.isShowingAll()) {
+                setListingTitle(fullListingTitle(tableModel.getRowCount()));
+            }
+        });
 
-        add(scrollPane, BorderLayout.CENTER);
+        add(listingPane, BorderLayout.CENTER);
         
         // Add a view button to the bottom for manual refresh
         JButton refreshButton = new JButton("View All Inventory / Refresh");
         refreshButton.addActionListener(_ -> viewInventory()); 
         add(refreshButton, BorderLayout.SOUTH);
 
+        // Barcode -> item hash index, so scans resolve without a query
+        service.submit(() -> {
+            manager.enableBarcodeIndex();
+            return null;
+        }).exceptionally(ex -> {
+            System.err.println("Barcode index unavailable, scans query the database: " + ex.getMessage());
+            return null;
+        });
+
+        // In-memory name index instead of LIKE '%x%' scans, built in the background.
+        // With -Dims.journal.dir=... every stock movement is also journaled, and the index
+        // starts from the journal's snapshot + replay instead of a full table read.
+        String journalDir = System.getProperty("ims.journal.dir");
+        service.submit(() -> {
+            if (journalDir == null) {
+                manager.enableSearchIndex();
+                return null;
+            }
+            try {
+                StockJournal journal = StockJournal.attach(manager, Paths.get(journalDir));
+                Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                    try {
+                        journal.close();
+                    } catch (IOException e) {
+                        System.err.println("Stock journal close failed: " + e.getMessage());
+                    }
+                }));
+                manager.enableSearchIndex(journal.restore());
+                journal.checkpoint(); // keeps the next startup's replay short
+            } catch (IOException e) {
+                throw new SQLException("Stock journal unavailable: " + e.getMessage(), e);
+            }
+            return null;
+        }).exceptionally(ex -> {
+            System.err.println("Search index unavailable, using SQL search: " + ex.getMessage());
+            return null;
+        });
+
+        watchReorderPoints();
+        followChangeFeed();
+
         viewInventory(); // Load initial data
         setLocationRelativeTo(null); 
         setVisible(true);
     } 
 
+    // The Reorder button counts the items at or below their reorder point, updated by each change
+    private void watchReorderPoints() {
+        service.submit(() -> ReorderAlerts.open(manager)).whenCompleteAsync((alerts, ex) -> {
+            if (ex != null) {
+                System.err.println("Reorder alerts unavailable: " + unwrap(ex).getMessage());
+                return;
+            }
+            Runtime.getRuntime().addShutdownHook(new Thread(alerts::close));
+            alerts.addListener(alert -> EDT.execute(this::updateReorderButton));
+            reorderAlerts = alerts;
+            reorderButton.setEnabled(true);
+            updateReorderButton();
+        }, EDT);
+    }
+
+    private void updateReorderButton() {
+        int open = reorderAlerts.openCount();
+        reorderButton.setText("Reorder (" + open + ")");
+        reorderButton.setForeground(open > 0 ? Color.RED.darker() : null);
+    }
+
+    // Other tills' sales and additions show up within a poll interval, without reloading the table
+    private void followChangeFeed() {
+        service.submit(() -> ChangeFeed.open(manager)).whenCompleteAsync((feed, ex) -> {
+            if (ex != null) {
+                System.err.println("Change feed unavailable, only this window's changes are shown live: " + unwrap(ex).getMessage());
+                return;
+            }
+            Runtime.getRuntime().addShutdownHook(new Thread(feed::close));
+            // Subscribe from the current position, then reload so nothing falls in between
+            feed.subscribe(feed.getLatestSequence(), new ChangeFeed.Subscriber() {
+                @Override
+                public void onChanges(List<ChangeFeed.Change> changes) {
+                    EDT.execute(() -> {
+                        for (ChangeFeed.Change change : changes) {
+                            tableModel.applyChange(change.toEvent());
+                            if (reorderAlerts != null) {
+                                // Changes made here come back from the feed with the version the
+                                // alerts already have, and are ignored (deletions included)
+                                reorderAlerts.itemChanged(change.toEvent());
+                            }
+                        }
+                        liveSearch.invalidate();
+                    });
+                }
+
+                @Override
+                public void onMissedChanges(long sequence) {
+                    EDT.execute(() -> {
+                        liveSearch.invalidate();
+                        viewInventory();
+                        ReorderAlerts alerts = reorderAlerts;
+                        if (alerts != null) {
+                            whenDone(service.submit(() -> {
+                                alerts.reload();
+                                return null;
+                            }), "Database Error reloading reorder alerts: ", _ -> updateReorderButton());
+                        }
+                    });
+                }
+            });
+            followingFeed = true;
+            if (tableModel.isShowingAll()) {
+                viewInventory();
+            }
+        }, EDT);
+    }
+
     // ------------------------------------------------------------------
     // 👇 NEW FEATURE: KeyListener for Barcode Scanning
     // ------------------------------------------------------------------
@@ -138,14 +321,19 @@ public class InventoryApp extends JFrame {
             return;
         }
 
-        try {
-            // 1. Check if the item exists in the inventory
-            List<InventoryItem> results = manager.searchItems(barcode);
-            
-            if (results.isEmpty()) {
-                // Item not found, assume user wants to ADD it.
+        // 1. Check if the item exists in the inventory: by its barcode (hash index), then by
+        //    exact name (served from the cache). A scan never falls back to a fuzzy search,
+        //    which could pick some other item that merely contains the code.
+        CompletableFuture<InventoryItem> lookup = service.findByBarcode(barcode)
+                .thenCompose(scanned -> scanned != null
+                        ? CompletableFuture.completedFuture(scanned)
+                        : service.getItem(barcode));
+
+        whenDone(lookup, "Database Error during barcode lookup: ", item -> {
+            if (item == null) {
+                // Unknown code, assume user wants to ADD it.
                 JOptionPane.showMessageDialog(this, 
-                    "Barcode '" + barcode + "' not found. Ready to ADD new item.", 
+                    "Unknown code '" + barcode + "'. Ready to ADD new item.", 
                     "New Item Scan", JOptionPane.INFORMATION_MESSAGE);
                 
                 // Clear all fields except the name/barcode field
@@ -153,31 +341,20 @@ public class InventoryApp extends JFrame {
                 priceField.setText("");
                 quantityField.requestFocus(); // Move focus to Quantity for adding details
                 
-            } else if (results.size() == 1) {
+            } else {
                 // Item found, assume user wants to SELL it (or update quantity).
-                InventoryItem item = results.get(0);
-
                 // Set relevant fields
                 nameField.setText(item.getName()); 
                 priceField.setText(String.format("%.2f", item.getPrice()));
                 quantityField.setText(""); // Ready for quantity to sell/add
                 
-                // Display the single item/search result
-                displayInventory(results, "--- Item Found by Scan ---");
+                // Display the single item
+                displayInventory(List.of(item), "--- Item Found by Scan ---");
                 
                 // Move focus to Quantity for selling/adding
                 quantityField.requestFocus();
-
-            } else {
-                // Should not happen if barcodes are unique, but handle multiple matches
-                JOptionPane.showMessageDialog(this, 
-                    "Multiple items found matching '" + barcode + "'. Please refine search.", 
-                    "Ambiguous Scan", JOptionPane.WARNING_MESSAGE);
             }
-
-        } catch (SQLException ex) {
-            JOptionPane.showMessageDialog(this, "Database Error during barcode lookup: " + ex.getMessage(), "SQL Error", JOptionPane.ERROR_MESSAGE);
-        }
+        });
     }
 
 
@@ -186,40 +363,51 @@ public class InventoryApp extends JFrame {
     // ------------------------------------------------------------------
 
     private void displayInventory(List<InventoryItem> items, String title) {
-        displayArea.setText(""); 
-        displayArea.append(title + "\n");
-        
-        displayArea.append(String.format("%-20s | %-5s | %-12s | %s\n", 
-                                          "ITEM NAME", "QTY", "UNIT PRICE (₹)", "TOTAL VALUE (₹)"));
-        displayArea.append("----------------------------------------------------------------\n");
-        
-        if (items.isEmpty()) {
-            displayArea.append("The inventory is currently empty or no items match the criteria.");
-        } else {
-            for (InventoryItem item : items) {
-                String name = item.getName();
-                int quantity = item.getQuantity();
-                double unitPrice = item.getPrice(); 
-                double totalPrice = quantity * unitPrice; 
-
-                String outputLine = String.format("%-20s | %-5d | ₹%-11.2f | ₹%.2f\n", 
-                                                  name, 
-                                                  quantity, 
-                                                  unitPrice, 
-                                                  totalPrice);
-                displayArea.append(outputLine);
-            }
-        }
+        tableModel.showItems(items);
+        setListingTitle(items.isEmpty()
+                ? title + " (The inventory is currently empty or no items match the criteria.)"
+                : title);
     }
     
     private void viewInventory() {
-        try {
-            List<InventoryItem> currentItems = manager.getAllItems();
-            displayInventory(currentItems, "--- FULL STOCK LISTING ---");
-        } catch (SQLException ex) {
-            displayArea.setText("ERROR: Could not load inventory from database. Check your JDBC setup.");
-            System.err.println("SQL Error: " + ex.getMessage());
-        }
+        tableModel.showAll().whenCompleteAsync((count, ex) -> {
+            if (ex instanceof CancellationException) {
+                return;
+            }
+            if (ex != null) {
+                tableModel.showItems(List.of());
+                setListingTitle("ERROR: Could not load inventory from database. Check your JDBC setup.");
+                System.err.println("SQL Error: " + unwrap(ex).getMessage());
+                return;
+            }
+            setListingTitle(fullListingTitle(count));
+        }, EDT);
+    }
+
+    private static String fullListingTitle(int count) {
+        return count == 0
+                ? "--- FULL STOCK LISTING --- (The inventory is currently empty.)"
+                : "--- FULL STOCK LISTING --- (" + count + " items)";
+    }
+
+    // Runs onSuccess on the EDT when the background call finishes; database errors become a dialog
+    private <T> void whenDone(CompletableFuture<T> future, String errorPrefix, Consumer<T> onSuccess) {
+        future.whenCompleteAsync((value, ex) -> {
+            if (ex == null) {
+                onSuccess.accept(value);
+            } else if (!(ex instanceof CancellationException)) {
+                JOptionPane.showMessageDialog(this, errorPrefix + unwrap(ex).getMessage(), "SQL Error", JOptionPane.ERROR_MESSAGE);
+            }
+        }, EDT);
+    }
+
+    private static Throwable unwrap(Throwable ex) {
+        return ex instanceof CompletionException && ex.getCause() != null ? ex.getCause() : ex;
+    }
+
+    private void setListingTitle(String title) {
+        listingBorder.setTitle(title);
+        listingPane.repaint();
     }
 
     private void clearFields() {
@@ -239,23 +427,20 @@ public class InventoryApp extends JFrame {
         try {
             quantity = Integer.parseInt(quantityField.getText().trim());
             price = Double.parseDouble(priceField.getText().trim());
-
-            if (name.isEmpty() || quantity <= 0 || price <= 0) {
-                JOptionPane.showMessageDialog(this, "Please enter valid item details (Name, Quantity > 0, Price > 0).", "Input Error", JOptionPane.ERROR_MESSAGE);
-                return;
-            }
-            
-            manager.saveItem(name, quantity, price); 
-            
-            clearFields();
-            viewInventory(); 
-            JOptionPane.showMessageDialog(this, "Item processed successfully! (Stock Updated/Added)", "Success", JOptionPane.INFORMATION_MESSAGE);
-
         } catch (NumberFormatException ex) {
             JOptionPane.showMessageDialog(this, "Quantity and Price must be valid numbers.", "Input Error", JOptionPane.ERROR_MESSAGE);
-        } catch (SQLException ex) { 
-            JOptionPane.showMessageDialog(this, "Database Error during Add/Update: " + ex.getMessage(), "SQL Error", JOptionPane.ERROR_MESSAGE);
+            return;
         }
+
+        if (name.isEmpty() || quantity <= 0 || price <= 0) {
+            JOptionPane.showMessageDialog(this, "Please enter valid item details (Name, Quantity > 0, Price > 0).", "Input Error", JOptionPane.ERROR_MESSAGE);
+            return;
+        }
+        
+        whenDone(service.saveItem(name, quantity, price), "Database Error during Add/Update: ", _ -> {
+            clearFields();
+            JOptionPane.showMessageDialog(this, "Item processed successfully! (Stock Updated/Added)", "Success", JOptionPane.INFORMATION_MESSAGE);
+        });
     }
 
     private void sellItemAction(ActionEvent e) {
@@ -264,34 +449,139 @@ public class InventoryApp extends JFrame {
 
         try {
             quantityToSell = Integer.parseInt(quantityField.getText().trim());
+        } catch (NumberFormatException ex) {
+            JOptionPane.showMessageDialog(this, "Quantity must be a valid number.", "Input Error", JOptionPane.ERROR_MESSAGE);
+            return;
+        }
 
-            if (name.isEmpty() || quantityToSell <= 0) {
-                JOptionPane.showMessageDialog(this, "Enter item name and quantity > 0 to sell.", "Input Required", JOptionPane.WARNING_MESSAGE);
-                return;
-            }
-            
-            double currentPrice = manager.getItemPrice(name); 
-            
+        if (name.isEmpty() || quantityToSell <= 0) {
+            JOptionPane.showMessageDialog(this, "Enter item name and quantity > 0 to sell.", "Input Required", JOptionPane.WARNING_MESSAGE);
+            return;
+        }
+
+        int quantity = quantityToSell;
+        whenDone(service.getItemPrice(name), "Database Error during Sale lookup: ", currentPrice -> {
             if (currentPrice == 0.0) {
-                 JOptionPane.showMessageDialog(this, "Item '" + name + "' not found or price is 0.0. Please add item first.", "Item Not Found", JOptionPane.ERROR_MESSAGE);
+                JOptionPane.showMessageDialog(this, "Item '" + name + "' not found or price is 0.0. Please add item first.", "Item Not Found", JOptionPane.ERROR_MESSAGE);
                 return;
             }
             
             priceField.setText(String.format("%.2f", currentPrice));
 
-            String result = manager.sellItem(name, quantityToSell, currentPrice); 
-            
-            clearFields();
-            viewInventory(); 
-            
-            int messageType = result.startsWith("Error") ? JOptionPane.ERROR_MESSAGE : JOptionPane.INFORMATION_MESSAGE;
-            JOptionPane.showMessageDialog(this, result, "Sales Status", messageType);
+            // Sold at the price in the database, which is not written back: a price changed on
+            // another terminal since the lookup above is kept rather than overwritten
+            whenDone(service.checkout(List.of(new Checkout.Line(name, quantity))), "Database Error during Sale: ", sale -> {
+                clearFields();
+
+                StockResult line = sale.getResults().get(0);
+                String result = InventoryManager.describeSale(line, quantity, line.getPrice());
+                int messageType = result.startsWith("Error") ? JOptionPane.ERROR_MESSAGE : JOptionPane.INFORMATION_MESSAGE;
+                JOptionPane.showMessageDialog(this, result, "Sales Status", messageType);
+            });
+        });
+    }
 
+    private void addToBasketAction(ActionEvent e) {
+        String name = nameField.getText().trim();
+        int quantity;
+
+        try {
+            quantity = Integer.parseInt(quantityField.getText().trim());
         } catch (NumberFormatException ex) {
             JOptionPane.showMessageDialog(this, "Quantity must be a valid number.", "Input Error", JOptionPane.ERROR_MESSAGE);
-        } catch (SQLException ex) {
-            JOptionPane.showMessageDialog(this, "Database Error during Sale lookup: " + ex.getMessage(), "SQL Error", JOptionPane.ERROR_MESSAGE);
+            return;
+        }
+
+        if (name.isEmpty() || quantity <= 0) {
+            JOptionPane.showMessageDialog(this, "Enter item name and quantity > 0 to add to the basket.", "Input Required", JOptionPane.WARNING_MESSAGE);
+            return;
         }
+
+        // Stock is only checked at checkout, for the whole basket at once
+        basket.add(new Checkout.Line(name, quantity));
+        checkoutButton.setText("Checkout (" + basket.size() + ")");
+        clearFields();
+    }
+
+    private void checkoutAction(ActionEvent e) {
+        if (basket.isEmpty()) {
+            JOptionPane.showMessageDialog(this, "The basket is empty. Use 'Add to Basket' first.", "Input Required", JOptionPane.WARNING_MESSAGE);
+            return;
+        }
+
+        // The basket cannot change until the checkout has finished
+        List<Checkout.Line> submitted = new ArrayList<>(basket);
+        setBasketEnabled(false);
+        CompletableFuture<Checkout.Result> checkout = service.checkout(submitted)
+                .whenCompleteAsync((result, ex) -> setBasketEnabled(true), EDT);
+
+        whenDone(checkout, "Database Error during Checkout: ", result -> {
+            String message = InventoryManager.describeCheckout(result);
+            // Nothing was sold from a failed basket: keep it unless the cashier starts over
+            if (result.isCommitted()
+                    || JOptionPane.showConfirmDialog(this, message + "\n\nEmpty the basket?", "Checkout Status",
+                            JOptionPane.YES_NO_OPTION, JOptionPane.ERROR_MESSAGE) == JOptionPane.YES_OPTION) {
+                // Only the submitted lines; lines are only ever appended, so they come first
+                basket.subList(0, Math.min(submitted.size(), basket.size())).clear();
+                checkoutButton.setText("Checkout (" + basket.size() + ")");
+            }
+            if (result.isCommitted()) {
+                JOptionPane.showMessageDialog(this, message, "Checkout Status", JOptionPane.INFORMATION_MESSAGE);
+            }
+        });
+    }
+
+    private void setBasketEnabled(boolean enabled) {
+        basketButton.setEnabled(enabled);
+        checkoutButton.setEnabled(enabled);
+    }
+
+    // Lists what needs restocking. With an item name entered, also sets that item's reorder point.
+    private void reorderAction(ActionEvent e) {
+        List<ReorderAlerts.Alert> open = reorderAlerts.openAlerts(50);
+        StringBuilder message = new StringBuilder();
+        if (open.isEmpty()) {
+            message.append("No item is at or below its reorder point.");
+        } else {
+            message.append(reorderAlerts.openCount()).append(" item(s) need reordering, most urgent first:\n");
+            for (ReorderAlerts.Alert alert : open) {
+                message.append("\n").append(alert.getName()).append(": ").append(alert.getQuantity())
+                        .append(" left (reorder point ").append(alert.getReorderPoint())
+                        .append(", order at least ").append(alert.getShortfall()).append(")");
+            }
+        }
+        message.append("\n\nDefault reorder point: ").append(reorderAlerts.getDefaultReorderPoint());
+
+        String name = nameField.getText().trim();
+        if (name.isEmpty()) {
+            JOptionPane.showMessageDialog(this, message.toString(), "Reorder List", JOptionPane.INFORMATION_MESSAGE);
+            return;
+        }
+        int own = reorderAlerts.getReorderPoint(name);
+        String input = JOptionPane.showInputDialog(this,
+                message + "\n\nReorder point for '" + name + "' (empty = use the default):",
+                own < 0 ? "" : String.valueOf(own));
+        if (input == null) {
+            return;
+        }
+        int point;
+        try {
+            point = input.trim().isEmpty() ? -1 : Integer.parseInt(input.trim());
+        } catch (NumberFormatException ex) {
+            point = -2;
+        }
+        if (point < -1) {
+            JOptionPane.showMessageDialog(this, "Reorder point must be a whole number >= 0.", "Input Error", JOptionPane.ERROR_MESSAGE);
+            return;
+        }
+        ReorderAlerts alerts = reorderAlerts;
+        int newPoint = point;
+        whenDone(service.submit(() -> alerts.setReorderPoint(name, newPoint)), "Database Error setting the reorder point: ", found -> {
+            if (!found) {
+                JOptionPane.showMessageDialog(this, "Item '" + name + "' not found.", "Reorder Point", JOptionPane.ERROR_MESSAGE);
+            }
+            updateReorderButton();
+        });
     }
 
     private void deleteItemAction(ActionEvent e) {
@@ -302,34 +592,28 @@ public class InventoryApp extends JFrame {
             return;
         }
 
-        try {
-            String result = manager.deleteItem(name);
+        whenDone(service.deleteItem(name), "Database Error during Deletion: ", result -> {
             clearFields();
-            viewInventory(); 
             JOptionPane.showMessageDialog(this, result, "Deletion Status", JOptionPane.INFORMATION_MESSAGE);
-        } catch (SQLException ex) {
-            JOptionPane.showMessageDialog(this, "Database Error during Deletion: " + ex.getMessage(), "SQL Error", JOptionPane.ERROR_MESSAGE);
-        }
+        });
     }
     
     private void searchInventory(ActionEvent e) {
-        String query = searchField.getText().trim();
-        
-        if (query.isEmpty()) {
-            viewInventory(); 
-            return;
-        }
-        
-        try {
-            List<InventoryItem> results = manager.searchItems(query);
-            displayInventory(results, "--- Search Results for '" + query + "' ---");
-            
-        } catch (SQLException ex) {
-            JOptionPane.showMessageDialog(this, "Search Database Error: " + ex.getMessage(), "SQL Error", JOptionPane.ERROR_MESSAGE);
-        }
+        // Empty text shows everything; a newer search cancels this one, so stale results
+        // never replace fresh ones
+        liveSearch.searchNow();
     }
 
+    // Database setup runs here on the main thread, not on the EDT. The cache is filled after
+    // the window is up, so the first screen does not wait for the warm-up.
     public static void main(String[] args) {
-        SwingUtilities.invokeLater(() -> new InventoryApp());
+        CachedInventoryManager manager = new CachedInventoryManager(CachedInventoryManager.DEFAULT_MAX_ENTRIES, 0);
+        SwingUtilities.invokeLater(() -> new InventoryApp(manager));
+        try {
+            manager.warmUp(Math.min(CachedInventoryManager.DEFAULT_WARM_UP, CachedInventoryManager.DEFAULT_MAX_ENTRIES));
+        } catch (SQLException e) {
+            // The cache still works without warm-up, it just starts cold
+            System.err.println("Item cache warm-up failed: " + e.getMessage());
+        }
     }
 }
\ No newline at end of file
@@ -0,0 +1,309 @@
+package view;
+
+import service.AsyncInventoryService;
+import service.ItemChangeEvent;
+import model.InventoryItem;
+import javax.swing.SwingUtilities;
+import javax.swing.table.AbstractTableModel;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+// Table model for the stock listing.
+// In "full listing" mode it only knows the row count up front and loads rows page by page
+// as the JTable asks for them, so only the visible part of a large catalog is ever read.
+// Pages are fetched in the background; rows show as blank until their page arrives.
+// In "fixed list" mode it simply shows a given list (search and scan results).
+// applyChange() patches single rows from ItemChangeEvents, so a mutation repaints one row
+// instead of re-reading the whole listing.
+// All methods must be called on the event-dispatch thread.
+public class InventoryTableModel extends AbstractTableModel {
+
+    private static final String[] COLUMNS = { "ITEM NAME", "QTY", "UNIT PRICE (₹)", "TOTAL VALUE (₹)" };
+    private static final int PAGE_SIZE = 200;
+    private static final int MAX_CACHED_PAGES = 16;
+    private static final Executor EDT = SwingUtilities::invokeLater;
+    private static final Comparator<InventoryItem> BY_NAME = Comparator.comparing(InventoryItem::getName);
+
+    private final AsyncInventoryService service;
+
+    private List<InventoryItem> fixedItems;
+    private int rowCount;
+    // Bumped on every reset so pages requested for an older listing are ignored
+    private int generation;
+    // Bumped when rows are inserted or removed, since that shifts the rows of pages in flight
+    private int shifts;
+
+    // page index -> rows, least recently used page dropped first
+    private final Map<Integer, List<InventoryItem>> pages = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, List<InventoryItem>> eldest) {
+            return size() > MAX_CACHED_PAGES;
+        }
+    };
+    // page index -> name of its last row, so the next page can be read with a keyset query
+    private final Map<Integer, String> pageLastNames = new HashMap<>();
+    private final Set<Integer> loading = new HashSet<>();
+
+    public InventoryTableModel(AsyncInventoryService service) {
+        this.service = service;
+    }
+
+    // Switches to the lazily loaded full listing; completes with the row count
+    public CompletableFuture<Integer> showAll() {
+        int requested = reset();
+        return service.countItems().thenApplyAsync(count -> {
+            if (requested == generation) {
+                fixedItems = null;
+                rowCount = count;
+                fireTableDataChanged();
+            }
+            return count;
+        }, EDT);
+    }
+
+    // Shows just the given items (e.g. search results)
+    public void showItems(List<InventoryItem> items) {
+        reset();
+        fixedItems = new ArrayList<>(items);
+        rowCount = items.size();
+        fireTableDataChanged();
+    }
+
+    public boolean isShowingAll() {
+        return fixedItems == null;
+    }
+
+    private int reset() {
+        generation++;
+        shifts++;
+        pages.clear();
+        pageLastNames.clear();
+        loading.clear();
+        return generation;
+    }
+
+    public InventoryItem getItemAt(int row) {
+        if (row < 0 || row >= rowCount) {
+            return null;
+        }
+        if (fixedItems != null) {
+            return fixedItems.get(row);
+        }
+        int index = row % PAGE_SIZE;
+        List<InventoryItem> page = pageFor(row / PAGE_SIZE, index);
+        return page != null && index < page.size() ? page.get(index) : null;
+    }
+
+    // Returns the page if it is loaded, otherwise starts loading it and returns null.
+    // A page that lost rows to a deletion is reloaded too, but keeps showing meanwhile.
+    private List<InventoryItem> pageFor(int pageIndex, int index) {
+        List<InventoryItem> page = pages.get(pageIndex);
+        if ((page != null && index < page.size()) || !loading.add(pageIndex)) {
+            return page;
+        }
+
+        CompletableFuture<List<InventoryItem>> request;
+        if (pageIndex == 0) {
+            request = service.getItemsPage(null, PAGE_SIZE);
+        } else if (pageLastNames.containsKey(pageIndex - 1)) {
+            request = service.getItemsPage(pageLastNames.get(pageIndex - 1), PAGE_SIZE);
+        } else {
+            // Jumped past pages we have never seen (e.g. scrollbar drag)
+            request = service.getItemsAt(pageIndex * PAGE_SIZE, PAGE_SIZE);
+        }
+
+        int requested = generation;
+        int requestedShifts = shifts;
+        request.whenCompleteAsync((rows, error) -> {
+            if (requested != generation) {
+                return;
+            }
+            loading.remove(pageIndex);
+            int first = pageIndex * PAGE_SIZE;
+            if (requestedShifts != shifts) {
+                // Rows moved while this page was read; ask again for the rows now at this position
+                fireRowsUpdated(first, first + PAGE_SIZE - 1);
+                return;
+            }
+            if (error != null) {
+                System.err.println("SQL Error loading rows " + first + "+: " + error.getMessage());
+                return;
+            }
+            if (!rows.isEmpty()) {
+                pageLastNames.put(pageIndex, rows.get(rows.size() - 1).getName());
+            }
+            pages.put(pageIndex, new ArrayList<>(rows));
+            if (rows.size() < PAGE_SIZE && first + rows.size() != rowCount) {
+                // A short page is the last one: the table changed behind our back, trust the database
+                rowCount = first + rows.size();
+                fireTableDataChanged();
+                return;
+            }
+            fireRowsUpdated(first, first + PAGE_SIZE - 1);
+        }, EDT);
+        return page;
+    }
+
+    private void fireRowsUpdated(int first, int last) {
+        last = Math.min(rowCount - 1, last);
+        if (first <= last) {
+            fireTableRowsUpdated(first, last);
+        }
+    }
+
+    // --- Change events ---
+
+    // Applies one committed change to the rows on screen. Only the affected row is repainted;
+    // an insert or delete also drops the cached pages after it, whose rows have shifted.
+    public void applyChange(ItemChangeEvent event) {
+        if (fixedItems != null) {
+            applyToFixedList(event);
+        } else {
+            applyToListing(event);
+        }
+    }
+
+    // Search results: update or remove rows that are shown, never add new ones
+    private void applyToFixedList(ItemChangeEvent event) {
+        for (int row = 0; row < fixedItems.size(); row++) {
+            if (fixedItems.get(row).getName().equals(event.getName())) {
+                if (event.getItem() == null) {
+                    fixedItems.remove(row);
+                    rowCount--;
+                    fireTableRowsDeleted(row, row);
+                } else {
+                    fixedItems.set(row, event.getItem());
+                    fireTableRowsUpdated(row, row);
+                }
+                return;
+            }
+        }
+    }
+
+    private void applyToListing(ItemChangeEvent event) {
+        String name = event.getName();
+
+        // Find the loaded page that the name belongs to, in name (= row) order
+        int firstPageAfter = -1;
+        for (Map.Entry<Integer, List<InventoryItem>> entry : new TreeMap<>(pages).entrySet()) {
+            int pageIndex = entry.getKey();
+            List<InventoryItem> rows = entry.getValue();
+            if (rows.isEmpty()) {
+                continue;
+            }
+            String previousLast = pageLastNames.get(pageIndex - 1);
+            boolean afterStart = name.compareTo(rows.get(0).getName()) >= 0
+                    || pageIndex == 0
+                    || (previousLast != null && name.compareTo(previousLast) > 0);
+            if (!afterStart) {
+                firstPageAfter = pageIndex;
+                break;
+            }
+            boolean beforeEnd = name.compareTo(rows.get(rows.size() - 1).getName()) <= 0
+                    || (pageIndex + 1) * PAGE_SIZE >= rowCount;
+            if (beforeEnd) {
+                applyToPage(pageIndex, rows, event);
+                return;
+            }
+        }
+
+        // The name falls between pages that are not loaded: nothing to repaint, but an
+        // insert or delete moves every later row by one
+        int lastValidPage = firstPageAfter < 0 ? Integer.MAX_VALUE : firstPageAfter - 1;
+        int boundary = firstPageAfter < 0 ? rowCount : firstPageAfter * PAGE_SIZE;
+        if (event.getKind() == ItemChangeEvent.Kind.DELETED && boundary > 0) {
+            forgetRowsAfter(name, lastValidPage);
+            rowCount--;
+            fireTableRowsDeleted(boundary - 1, boundary - 1);
+        } else if (event.isCreated()) {
+            forgetRowsAfter(name, lastValidPage);
+            rowCount++;
+            fireTableRowsInserted(boundary, boundary);
+        }
+    }
+
+    private void applyToPage(int pageIndex, List<InventoryItem> rows, ItemChangeEvent event) {
+        InventoryItem item = event.getItem();
+        int found = Collections.binarySearch(rows, new InventoryItem(event.getName(), 0, 0), BY_NAME);
+        int row = pageIndex * PAGE_SIZE + (found >= 0 ? found : -found - 1);
+
+        if (found >= 0 && item != null) {
+            rows.set(found, item);
+            fireTableRowsUpdated(row, row);
+        } else if (found >= 0) {
+            // The page is one row short now and tops itself up the next time it is painted
+            rows.remove(found);
+            forgetRowsAfter(event.getName(), pageIndex);
+            rowCount--;
+            fireTableRowsDeleted(row, row);
+        } else if (item != null && event.getKind() == ItemChangeEvent.Kind.SAVED) {
+            rows.add(-found - 1, item);
+            if (rows.size() > PAGE_SIZE) {
+                rows.remove(rows.size() - 1); // pushed into the next page
+            }
+            forgetRowsAfter(event.getName(), pageIndex);
+            if (rows.size() == PAGE_SIZE) {
+                pageLastNames.put(pageIndex, rows.get(rows.size() - 1).getName());
+            }
+            rowCount++;
+            fireTableRowsInserted(row, row);
+        }
+    }
+
+    // After an insert/delete of 'name': pages past 'lastValidPage' hold shifted rows, and any
+    // keyset position at or after 'name' now points one row off
+    private void forgetRowsAfter(String name, int lastValidPage) {
+        shifts++;
+        pages.keySet().removeIf(p -> p > lastValidPage);
+        pageLastNames.values().removeIf(last -> last.compareTo(name) >= 0);
+    }
+
+    @Override
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    @Override
+    public int getColumnCount() {
+        return COLUMNS.length;
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        return COLUMNS[column];
+    }
+
+    @Override
+    public Class<?> getColumnClass(int column) {
+        return column == 1 ? Integer.class : String.class;
+    }
+
+    // Values are formatted here, i.e. only for rows the table actually paints
+    @Override
+    public Object getValueAt(int row, int column) {
+        InventoryItem item = getItemAt(row);
+        if (item == null) {
+            return column == 0 ? "Loading..." : null;
+        }
+        switch (column) {
+            case 0:
+                return item.getName();
+            case 1:
+                return item.getQuantity();
+            case 2:
+                return String.format("₹%.2f", item.getPrice());
+            default:
+                return String.format("₹%.2f", item.getQuantity() * item.getPrice());
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package view;
+
+import service.AsyncInventoryService;
+import model.InventoryItem;
+import javax.swing.JTextField;
+import javax.swing.SwingUtilities;
+import javax.swing.Timer;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletionException;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+// Search-as-you-type for the search field.
+//  - Keystrokes are debounced: a search runs once typing pauses for DEBOUNCE_MS.
+//  - When the new text contains the text of the last completed search, its matches are a
+//    subset of those results, so they are filtered in memory instead of queried again.
+//  - Otherwise the query runs in the background through searchLatest, which cancels the one
+//    still in flight; an answer for text that is no longer in the field is dropped.
+// Matching is case-insensitive, like searchItems. Everything except the query runs on the EDT.
+class LiveSearch implements DocumentListener {
+
+    // Tunable with -Dims.search.debounceMillis=...
+    private static final int DEBOUNCE_MS = Integer.getInteger("ims.search.debounceMillis", 30);
+
+    private final JTextField field;
+    private final AsyncInventoryService service;
+    private final BiConsumer<String, List<InventoryItem>> onResults;
+    private final Runnable onCleared;
+    private final Consumer<Throwable> onError;
+    private final Timer timer;
+    private boolean live = true;
+
+    // Last completed search, reused for refining until the inventory changes
+    private String baseQuery;
+    private List<InventoryItem> baseResults;
+    private int changes;
+    // Text of the query in flight, if any
+    private String pending;
+
+    LiveSearch(JTextField field, AsyncInventoryService service, BiConsumer<String, List<InventoryItem>> onResults,
+               Runnable onCleared, Consumer<Throwable> onError) {
+        this.field = field;
+        this.service = service;
+        this.onResults = onResults;
+        this.onCleared = onCleared;
+        this.onError = onError;
+        this.timer = new Timer(DEBOUNCE_MS, _ -> searchNow());
+        this.timer.setRepeats(false);
+    }
+
+    // Off = search only on searchNow() (the Search button / Enter)
+    void setLive(boolean live) {
+        this.live = live;
+        if (!live) {
+            timer.stop();
+        }
+    }
+
+    // Runs the search for the current text right away
+    void searchNow() {
+        timer.stop();
+        String query = field.getText().trim();
+        if (query.isEmpty()) {
+            baseResults = null;
+            pending = null;
+            onCleared.run();
+            return;
+        }
+
+        String lower = query.toLowerCase(Locale.ROOT);
+        if (baseResults != null && lower.contains(baseQuery)) {
+            List<InventoryItem> refined = new ArrayList<>();
+            for (InventoryItem item : baseResults) {
+                if (containsIgnoreCase(item.getName(), lower)) {
+                    refined.add(item);
+                }
+            }
+            baseQuery = lower;
+            baseResults = refined;
+            pending = null;
+            onResults.accept(query, refined);
+            return;
+        }
+
+        pending = query;
+        int changesAtStart = changes;
+        service.searchLatest(query).whenComplete((results, ex) -> SwingUtilities.invokeLater(() -> {
+            if (!query.equals(pending)) {
+                return;
+            }
+            pending = null;
+            if (ex != null) {
+                if (!(ex instanceof CancellationException)) {
+                    onError.accept(ex instanceof CompletionException && ex.getCause() != null ? ex.getCause() : ex);
+                }
+                return;
+            }
+            // Results that may predate a change are shown, but not refined later
+            if (changesAtStart == changes) {
+                baseQuery = lower;
+                baseResults = results;
+            }
+            onResults.accept(query, results);
+        }));
+    }
+
+    // name.toLowerCase().contains(query) without allocating, for large result sets
+    private static boolean containsIgnoreCase(String name, String query) {
+        for (int i = 0, last = name.length() - query.length(); i <= last; i++) {
+            if (name.regionMatches(true, i, query, 0, query.length())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // The inventory changed: the next search must ask the database again
+    void invalidate() {
+        changes++;
+        baseResults = null;
+    }
+
+    // --- DocumentListener ---
+
+    @Override
+    public void insertUpdate(DocumentEvent e) {
+        textChanged();
+    }
+
+    @Override
+    public void removeUpdate(DocumentEvent e) {
+        textChanged();
+    }
+
+    @Override
+    public void changedUpdate(DocumentEvent e) {
+        // Attribute changes only
+    }
+
+    private void textChanged() {
+        if (live) {
+            timer.restart();
+        }
+    }
+}